@@ -0,0 +1,94 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client.benchmark;
+
+import lombok.Getter;
+import org.eclipse.leshan.client.resource.ObjectsInitializer;
+import org.eclipse.leshan.client.servers.LwM2mServer;
+import org.eclipse.leshan.core.model.LwM2mModelRepository;
+import org.eclipse.leshan.core.peer.IpPeer;
+import org.thingsboard.lwm2m.demo.client.objects.FwLwM2MDevice;
+import org.thingsboard.lwm2m.demo.client.objects.LwM2mBinaryAppDataContainer;
+import org.thingsboard.lwm2m.demo.client.objects.MyDevice;
+import org.thingsboard.lwm2m.demo.client.objects.MyLocation;
+import org.thingsboard.lwm2m.demo.client.objects.RandomTemperatureSensor;
+import org.thingsboard.lwm2m.demo.client.scheduler.HashedWheelScheduler;
+
+import java.io.File;
+import java.net.InetSocketAddress;
+import java.net.URI;
+
+import static org.eclipse.leshan.core.LwM2mId.DEVICE;
+import static org.eclipse.leshan.core.LwM2mId.FIRMWARE;
+import static org.eclipse.leshan.core.LwM2mId.LOCATION;
+import static org.thingsboard.lwm2m.demo.client.util.Utils.BINARY_APP_DATA_CONTAINER;
+import static org.thingsboard.lwm2m.demo.client.util.Utils.OBJECT_ID_TEMPERATURE_SENSOR;
+import static org.thingsboard.lwm2m.demo.client.util.Utils.createModel;
+
+/**
+ * Simulated objects of one client, with model and instance ids set by their object enablers, shared by the benchmarks.
+ * <p>
+ * Requests come from a real server (not {@link LwM2mServer#SYSTEM}) so read logs are evaluated, with INFO disabled as
+ * in a large fleet ({@link #LOGBACK}). Periodic notifications are pushed far away to keep background tasks out of
+ * the measurements.
+ */
+@Getter
+final class BenchmarkObjects {
+
+    /**
+     * JVM option of benchmark forks, <code>logback-jmh.xml</code> is a test resource of the <code>jmh</code> profile.
+     */
+    static final String LOGBACK = "-Dlogback.configurationFile=logback-jmh.xml";
+
+    private static final int NOTIFY_PERIOD_IN_SEC = 3600;
+
+    private final LwM2mServer server;
+    private final HashedWheelScheduler scheduler;
+    private final MyDevice device;
+    private final RandomTemperatureSensor temperature;
+    private final MyLocation location;
+    private final LwM2mBinaryAppDataContainer binaryAppData;
+    private final FwLwM2MDevice firmware;
+
+    BenchmarkObjects() throws Exception {
+        server = new LwM2mServer(new IpPeer(new InetSocketAddress("127.0.0.1", 5685)), 123L,
+                URI.create("coap://127.0.0.1:5685"));
+        scheduler = new HashedWheelScheduler("Benchmark", 1);
+        device = new MyDevice(NOTIFY_PERIOD_IN_SEC, scheduler);
+        temperature = new RandomTemperatureSensor(NOTIFY_PERIOD_IN_SEC, scheduler);
+        location = new MyLocation(NOTIFY_PERIOD_IN_SEC, null, null, 1.0f, scheduler);
+        binaryAppData = new LwM2mBinaryAppDataContainer(NOTIFY_PERIOD_IN_SEC, 0, scheduler);
+        firmware = new FwLwM2MDevice(NOTIFY_PERIOD_IN_SEC, false, false, scheduler);
+
+        LwM2mModelRepository repository = createModel((File) null);
+        ObjectsInitializer initializer = new ObjectsInitializer(repository.getLwM2mModel());
+        initializer.setInstancesForObject(DEVICE, device);
+        initializer.setInstancesForObject(OBJECT_ID_TEMPERATURE_SENSOR, temperature);
+        initializer.setInstancesForObject(LOCATION, location);
+        initializer.setInstancesForObject(BINARY_APP_DATA_CONTAINER, binaryAppData);
+        initializer.setInstancesForObject(FIRMWARE, firmware);
+        initializer.create(DEVICE, OBJECT_ID_TEMPERATURE_SENSOR, LOCATION, BINARY_APP_DATA_CONTAINER, FIRMWARE);
+    }
+
+    void destroy() {
+        device.destroy();
+        temperature.destroy();
+        location.destroy();
+        binaryAppData.destroy();
+        firmware.destroy();
+        scheduler.destroy();
+    }
+}
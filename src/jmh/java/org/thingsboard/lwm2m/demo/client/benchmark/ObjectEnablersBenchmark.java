@@ -0,0 +1,177 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client.benchmark;
+
+import org.eclipse.leshan.client.servers.LwM2mServer;
+import org.eclipse.leshan.core.node.LwM2mMultipleResource;
+import org.eclipse.leshan.core.node.LwM2mSingleResource;
+import org.eclipse.leshan.core.request.argument.Arguments;
+import org.eclipse.leshan.core.response.ExecuteResponse;
+import org.eclipse.leshan.core.response.ReadResponse;
+import org.eclipse.leshan.core.response.WriteResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.thingsboard.lwm2m.demo.client.objects.FwLwM2MDevice;
+import org.thingsboard.lwm2m.demo.client.objects.LwM2mBinaryAppDataContainer;
+import org.thingsboard.lwm2m.demo.client.objects.MyDevice;
+import org.thingsboard.lwm2m.demo.client.objects.MyLocation;
+import org.thingsboard.lwm2m.demo.client.objects.RandomTemperatureSensor;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read/write/execute hot paths of the simulated objects, as called by Leshan when a server request is handled.
+ * <p>
+ * Objects are set up by {@link BenchmarkObjects}. Run with <code>mvn -Pjmh -DskipTests verify</code>, the gc profiler
+ * reports allocations by operation (<code>gc.alloc.rate.norm</code>).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = BenchmarkObjects.LOGBACK)
+public class ObjectEnablersBenchmark {
+
+    private BenchmarkObjects objects;
+    private LwM2mServer server;
+    private MyDevice device;
+    private RandomTemperatureSensor temperature;
+    private MyLocation location;
+    private LwM2mBinaryAppDataContainer binaryAppData;
+    private FwLwM2MDevice firmware;
+
+    private LwM2mSingleResource timezone;
+    private LwM2mMultipleResource data;
+    private LwM2mSingleResource description;
+    private LwM2mSingleResource packageUri;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        objects = new BenchmarkObjects();
+        server = objects.getServer();
+        device = objects.getDevice();
+        temperature = objects.getTemperature();
+        location = objects.getLocation();
+        binaryAppData = objects.getBinaryAppData();
+        firmware = objects.getFirmware();
+        timezone = LwM2mSingleResource.newStringResource(15, "Europe/Kyiv");
+        data = LwM2mMultipleResource.newBinaryResource(0, Collections.singletonMap(0, new byte[] { 1, 2, 3, 4 }));
+        description = LwM2mSingleResource.newStringResource(3, "benchmark");
+        packageUri = LwM2mSingleResource.newStringResource(1, "coap://127.0.0.1:5685/fw");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        objects.destroy();
+    }
+
+    /* ********************************** Device (3) ******************************** */
+
+    @Benchmark
+    public ReadResponse deviceReadManufacturer() {
+        return device.read(server, 0);
+    }
+
+    @Benchmark
+    public ReadResponse deviceReadBatteryLevel() {
+        return device.read(server, 9);
+    }
+
+    @Benchmark
+    public ReadResponse deviceReadErrorCodes() {
+        return device.read(server, 11);
+    }
+
+    @Benchmark
+    public ReadResponse deviceReadCurrentTime() {
+        return device.read(server, 13);
+    }
+
+    @Benchmark
+    public WriteResponse deviceWriteTimezone() {
+        return device.write(server, true, 15, timezone);
+    }
+
+    /* ********************************** Temperature (3303) ******************************** */
+
+    @Benchmark
+    public ReadResponse temperatureReadSensorValue() {
+        return temperature.read(server, 5700);
+    }
+
+    @Benchmark
+    public ReadResponse temperatureReadUnits() {
+        return temperature.read(server, 5701);
+    }
+
+    @Benchmark
+    public ExecuteResponse temperatureExecuteResetMinMax() {
+        return temperature.execute(server, 5605, Arguments.emptyArguments());
+    }
+
+    /* ********************************** Location (6) ******************************** */
+
+    @Benchmark
+    public ReadResponse locationReadLatitude() {
+        return location.read(server, 0);
+    }
+
+    @Benchmark
+    public ReadResponse locationReadTimestamp() {
+        return location.read(server, 5);
+    }
+
+    /* ********************************** Binary App Data Container (19) ******************************** */
+
+    @Benchmark
+    public ReadResponse binaryAppDataReadData() {
+        return binaryAppData.read(server, 0);
+    }
+
+    @Benchmark
+    public WriteResponse binaryAppDataWriteData() {
+        return binaryAppData.write(server, true, 0, data);
+    }
+
+    @Benchmark
+    public WriteResponse binaryAppDataWriteDescription() {
+        return binaryAppData.write(server, true, 3, description);
+    }
+
+    /* ********************************** Firmware (5) ******************************** */
+
+    @Benchmark
+    public ReadResponse firmwareReadState() {
+        return firmware.read(server, 3);
+    }
+
+    @Benchmark
+    public WriteResponse firmwareWritePackageUri() {
+        return firmware.write(server, true, 1, packageUri);
+    }
+}
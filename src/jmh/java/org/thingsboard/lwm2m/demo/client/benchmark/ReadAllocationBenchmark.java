@@ -0,0 +1,129 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client.benchmark;
+
+import org.eclipse.leshan.client.servers.LwM2mServer;
+import org.eclipse.leshan.core.response.ReadResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.eclipse.leshan.core.LwM2mId.DEVICE;
+import static org.eclipse.leshan.core.LwM2mId.FIRMWARE;
+import static org.eclipse.leshan.core.LwM2mId.LOCATION;
+import static org.thingsboard.lwm2m.demo.client.util.Utils.BINARY_APP_DATA_CONTAINER;
+import static org.thingsboard.lwm2m.demo.client.util.Utils.OBJECT_ID_TEMPERATURE_SENSOR;
+
+/**
+ * Steady-state reads of the simulated objects must not allocate.
+ * <p>
+ * The gc profiler reports <code>gc.alloc.rate.norm</code> by read, it is expected to be ~0 B/op. Values which change
+ * over time (current time, timestamps) rebuild their response once per second at most, which is negligible here. On
+ * top of this, each iteration measures the bytes allocated by the benchmark thread and fails if reads allocate more
+ * than {@link #MAX_BYTES_PER_OP}, so a regression breaks the run instead of hiding in a report.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = BenchmarkObjects.LOGBACK)
+public class ReadAllocationBenchmark {
+
+    // JMH itself allocates a few objects per iteration, amortized over millions of reads
+    private static final double MAX_BYTES_PER_OP = 1.0;
+
+    @Param({"3/0", "3/9", "3/11", "3/13", "3303/5700", "3303/5601", "3303/5701", "6/0", "6/5", "19/0", "19/1", "19/2",
+            "5/3"})
+    public String path;
+
+    private BenchmarkObjects objects;
+    private LwM2mServer server;
+
+    private Reader reader;
+    private int resourceId;
+    private long operations;
+    private long allocatedAtStart;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        objects = new BenchmarkObjects();
+        server = objects.getServer();
+        String[] ids = path.split("/");
+        resourceId = Integer.parseInt(ids[1]);
+        reader = switch (Integer.parseInt(ids[0])) {
+            case DEVICE -> objects.getDevice()::read;
+            case OBJECT_ID_TEMPERATURE_SENSOR -> objects.getTemperature()::read;
+            case LOCATION -> objects.getLocation()::read;
+            case BINARY_APP_DATA_CONTAINER -> objects.getBinaryAppData()::read;
+            case FIRMWARE -> objects.getFirmware()::read;
+            default -> throw new IllegalArgumentException("Unsupported object: " + path);
+        };
+        // first read builds the cached responses
+        reader.read(server, resourceId);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        objects.destroy();
+    }
+
+    @Setup(Level.Iteration)
+    public void startIteration() {
+        operations = 0;
+        allocatedAtStart = allocatedBytes();
+    }
+
+    @TearDown(Level.Iteration)
+    public void checkIteration() {
+        double bytesPerOp = (double) (allocatedBytes() - allocatedAtStart) / Math.max(1, operations);
+        if (bytesPerOp > MAX_BYTES_PER_OP) {
+            throw new IllegalStateException(
+                    String.format("Read of /%s allocates %.2f bytes/op, expected 0", path, bytesPerOp));
+        }
+    }
+
+    @Benchmark
+    public ReadResponse read() {
+        operations++;
+        return reader.read(server, resourceId);
+    }
+
+    /**
+     * State is thread scoped, so iteration fixtures run on the benchmark thread.
+     */
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    @FunctionalInterface
+    private interface Reader {
+        ReadResponse read(LwM2mServer server, int resourceId);
+    }
+}
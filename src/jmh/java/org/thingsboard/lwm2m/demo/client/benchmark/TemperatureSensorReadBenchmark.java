@@ -0,0 +1,112 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client.benchmark;
+
+import org.eclipse.leshan.client.servers.LwM2mServer;
+import org.eclipse.leshan.core.request.argument.Arguments;
+import org.eclipse.leshan.core.response.ExecuteResponse;
+import org.eclipse.leshan.core.response.ReadResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.thingsboard.lwm2m.demo.client.objects.RandomTemperatureSensor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrent reads of one temperature sensor, as done by several servers or by notifications while a server reads.
+ * <p>
+ * Throughput by thread count shows whether reads scale: they must not serialize on the sensor. The
+ * <code>readWhileReset</code> group adds a writer resetting min/max values while readers run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = BenchmarkObjects.LOGBACK)
+public class TemperatureSensorReadBenchmark {
+
+    private static final int SENSOR_VALUE = 5700;
+    private static final int MAX_MEASURED_VALUE = 5602;
+    private static final int RESET_MIN_MAX_MEASURED_VALUES = 5605;
+
+    private BenchmarkObjects objects;
+    private LwM2mServer server;
+    private RandomTemperatureSensor temperature;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        objects = new BenchmarkObjects();
+        server = objects.getServer();
+        temperature = objects.getTemperature();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        objects.destroy();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public ReadResponse readSensorValue1Thread() {
+        return temperature.read(server, SENSOR_VALUE);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public ReadResponse readSensorValue4Threads() {
+        return temperature.read(server, SENSOR_VALUE);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public ReadResponse readSensorValueMaxThreads() {
+        return temperature.read(server, SENSOR_VALUE);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public ReadResponse readInstance4Threads() {
+        return temperature.read(server);
+    }
+
+    @Benchmark
+    @Group("readWhileReset")
+    @GroupThreads(3)
+    public ReadResponse readWhileResetReader() {
+        return temperature.read(server, MAX_MEASURED_VALUE);
+    }
+
+    @Benchmark
+    @Group("readWhileReset")
+    @GroupThreads(1)
+    public ExecuteResponse readWhileResetWriter() {
+        return temperature.execute(server, RESET_MIN_MAX_MEASURED_VALUES, Arguments.emptyArguments());
+    }
+}
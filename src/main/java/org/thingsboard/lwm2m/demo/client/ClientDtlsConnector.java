@@ -0,0 +1,144 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client;
+
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.californium.scandium.DTLSConnector;
+import org.eclipse.californium.scandium.config.DtlsConnectorConfig;
+import org.eclipse.californium.scandium.dtls.Record;
+import org.thingsboard.lwm2m.demo.client.engine.NatRebindingSimulator;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * DTLS connector of a client, with the optional behaviors of the demo:
+ * <ul>
+ * <li>connections loaded from a {@link DtlsSessionCache} before the first start, and saved on stop,</li>
+ * <li>local address or port changed by a {@link NatRebindingSimulator}, which also counts the bytes exchanged.</li>
+ * </ul>
+ */
+@Slf4j
+public class ClientDtlsConnector extends DTLSConnector {
+
+    private static final long REBIND_TIMEOUT_MS = 2000;
+
+    private final DtlsSessionCache sessionCache;
+    private final NatRebindingSimulator rebinding;
+    private boolean loaded;
+
+    /**
+     * @param sessionCache may be <code>null</code>
+     * @param rebinding    may be <code>null</code>
+     */
+    public ClientDtlsConnector(DtlsConnectorConfig config, DtlsSessionCache sessionCache,
+            NatRebindingSimulator rebinding) {
+        super(config);
+        this.sessionCache = sessionCache;
+        this.rebinding = rebinding;
+        if (rebinding != null) {
+            addSessionListener(rebinding);
+        }
+    }
+
+    @Override
+    protected void start(InetSocketAddress bindAddress) throws IOException {
+        if (sessionCache != null && !loaded) {
+            loaded = true;
+            sessionCache.loadConnections(this);
+        }
+        super.start(bindAddress);
+        if (rebinding != null) {
+            rebinding.attach(this);
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (rebinding != null) {
+            rebinding.detach(this);
+        }
+        boolean running = isRunning();
+        super.stop();
+        if (running && sessionCache != null) {
+            sessionCache.saveConnections(this);
+        }
+    }
+
+    /**
+     * Closes the socket and binds a new one to <code>bindAddress</code>, keeping the connections, as seen by the
+     * server when a NAT assigns another public address or port to the client. Messages sent meanwhile are lost.
+     * <p>
+     * Scandium requires a resumption handshake of all connections when its local address changes; a client behind a
+     * NAT does not know that its public address changed, so this requirement is removed again.
+     *
+     * @return the new local address, <code>null</code> if the connector is stopped
+     */
+    public synchronized InetSocketAddress rebind(InetSocketAddress bindAddress) throws IOException {
+        if (!isRunning()) {
+            return null;
+        }
+        super.stop();
+        super.start(bindAddress);
+        Future<Void> cleared = startForEach(connection -> {
+            connection.setResumptionRequired(false);
+            return false;
+        });
+        try {
+            cleared.get(REBIND_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("Unable to keep DTLS connections after rebinding to {}: {}", bindAddress, e.toString());
+        }
+        return getAddress();
+    }
+
+    @Override
+    public void sendFlight(List<DatagramPacket> datagrams) throws IOException {
+        if (rebinding != null) {
+            int bytes = 0;
+            for (DatagramPacket datagram : datagrams) {
+                bytes += datagram.getLength();
+            }
+            rebinding.handshakeSent(bytes);
+        }
+        super.sendFlight(datagrams);
+    }
+
+    @Override
+    protected void sendNextDatagramOverNetwork(DatagramPacket datagram) throws IOException {
+        if (rebinding != null) {
+            rebinding.sent(datagram.getLength());
+        }
+        super.sendNextDatagramOverNetwork(datagram);
+    }
+
+    @Override
+    protected void processRecords(List<Record> records, InetSocketAddress peerAddress,
+            InetSocketAddress routerAddress) {
+        if (rebinding != null) {
+            rebinding.received(records);
+        }
+        super.processRecords(records, peerAddress, routerAddress);
+    }
+}
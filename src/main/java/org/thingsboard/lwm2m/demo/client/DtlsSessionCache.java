@@ -0,0 +1,100 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client;
+
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.californium.elements.util.EncryptedPersistentComponentUtil;
+import org.eclipse.californium.scandium.DTLSConnector;
+import org.eclipse.californium.scandium.config.DtlsConnectorConfig;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DTLS connections of one client kept in an encrypted file, so that after a restart of the process or a reboot
+ * (<code>RebootCommand</code>) the client resumes its sessions with an abbreviated handshake instead of a full one.
+ * <p>
+ * Connections are saved when the {@link ClientDtlsConnector} stops, and loaded before it starts for the first time.
+ * The file is encrypted by Californium with a key derived from a password; a file which cannot be read, e.g. written
+ * with another password, is ignored and the client falls back to a full handshake.
+ */
+@Slf4j
+public class DtlsSessionCache {
+
+    /**
+     * Serialization label of the client DTLS connector, see {@link DtlsConnectorConfig.Builder#setSerializationLabel}.
+     */
+    public static final String LABEL = "dtls";
+    /**
+     * Connections without traffic for longer are not saved, the server has most likely forgotten their session.
+     */
+    public static final long MAX_QUIET_PERIOD_IN_SEC = TimeUnit.DAYS.toSeconds(1);
+
+    private final Path file;
+    private final SecretKey key;
+
+    public DtlsSessionCache(Path file, String password) {
+        this.file = file;
+        // "PW": the key is a password, Californium derives the cipher key from it
+        this.key = new SecretKeySpec(password.getBytes(StandardCharsets.UTF_8), "PW");
+    }
+
+    /**
+     * Loads the saved connections into <code>connector</code>, which must not be started yet.
+     */
+    void loadConnections(DTLSConnector connector) {
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        EncryptedPersistentComponentUtil util = new EncryptedPersistentComponentUtil();
+        util.add(connector);
+        try (InputStream in = Files.newInputStream(file)) {
+            int count = util.loadComponents(in, key);
+            log.info("{} DTLS connections loaded from {}", count, file);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Unable to load DTLS connections from {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Saves the connections of <code>connector</code>, which must be stopped.
+     */
+    void saveConnections(DTLSConnector connector) {
+        EncryptedPersistentComponentUtil util = new EncryptedPersistentComponentUtil();
+        util.add(connector);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                util.saveComponents(out, key, MAX_QUIET_PERIOD_IN_SEC);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("DTLS connections saved to {}", file);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Unable to save DTLS connections to {}: {}", file, e.getMessage());
+        }
+    }
+}
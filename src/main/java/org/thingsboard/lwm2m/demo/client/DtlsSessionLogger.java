@@ -17,6 +17,7 @@ package org.thingsboard.lwm2m.demo.client;
 
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.californium.scandium.dtls.ClientHandshaker;
+import org.eclipse.californium.scandium.dtls.ConnectionId;
 import org.eclipse.californium.scandium.dtls.DTLSContext;
 import org.eclipse.californium.scandium.dtls.HandshakeException;
 import org.eclipse.californium.scandium.dtls.Handshaker;
@@ -25,14 +26,63 @@ import org.eclipse.californium.scandium.dtls.ResumingServerHandshaker;
 import org.eclipse.californium.scandium.dtls.ServerHandshaker;
 import org.eclipse.californium.scandium.dtls.SessionAdapter;
 import org.eclipse.californium.scandium.dtls.SessionId;
+import org.thingsboard.lwm2m.demo.client.metrics.ClientMetrics;
 
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Logs the DTLS handshakes of a connector and records them in {@link ClientMetrics}:
+ * <ul>
+ * <li><code>dtls.full</code>, <code>dtls.abbreviated</code>, <code>dtls.abbreviated.full</code> (resumption refused
+ * by the server, turned into a full handshake), <code>dtls.server.full</code>, <code>dtls.server.abbreviated</code>:
+ * duration histograms of succeeded handshakes, by type,</li>
+ * <li><code>dtls.&lt;type&gt;.failed</code> and <code>dtls.failure.&lt;cause&gt;</code>: failed handshakes by type
+ * and by cause, the alert for a {@link HandshakeException}, the exception otherwise (e.g. a timeout),</li>
+ * <li><code>dtls.retransmission</code>: flights retransmitted during handshakes,</li>
+ * <li><code>dtls.cid</code> / <code>dtls.nocid</code>: established contexts with or without a connection ID to
+ * send records to the peer.</li>
+ * </ul>
+ */
 @Slf4j
 public class DtlsSessionLogger extends SessionAdapter {
 
-    private SessionId sessionIdentifier = null;
+    public static final String RETRANSMISSION = "dtls.retransmission";
+    public static final String CID = "dtls.cid";
+    public static final String NO_CID = "dtls.nocid";
+
+    public enum HandshakeType {
+        FULL("dtls.full"),
+        ABBREVIATED("dtls.abbreviated"),
+        ABBREVIATED_TURNED_FULL("dtls.abbreviated.full"),
+        SERVER_FULL("dtls.server.full"),
+        SERVER_ABBREVIATED("dtls.server.abbreviated");
+
+        private final String metric;
+
+        HandshakeType(String metric) {
+            this.metric = metric;
+        }
+
+        public String getMetric() {
+            return metric;
+        }
+    }
+
+    private record Started(long nanos, SessionId sessionIdentifier) {
+    }
+
+    private final ClientMetrics metrics;
+    private final ConcurrentMap<Handshaker, Started> handshakes = new ConcurrentHashMap<>();
+
+    public DtlsSessionLogger(ClientMetrics metrics) {
+        this.metrics = metrics;
+    }
 
     @Override
     public void handshakeStarted(Handshaker handshaker) throws HandshakeException {
+        SessionId sessionIdentifier = null;
         if (handshaker instanceof ResumingServerHandshaker) {
             log.info("DTLS abbreviated Handshake initiated by server : STARTED ...");
         } else if (handshaker instanceof ServerHandshaker) {
@@ -43,27 +93,41 @@ public class DtlsSessionLogger extends SessionAdapter {
         } else if (handshaker instanceof ClientHandshaker) {
             log.info("DTLS Full Handshake initiated by client : STARTED ...");
         }
+        handshakes.put(handshaker, new Started(System.nanoTime(), sessionIdentifier));
     }
 
     @Override
     public void contextEstablished(Handshaker handshaker, DTLSContext establishedContext) throws HandshakeException {
+        Started started = handshakes.remove(handshaker);
+        HandshakeType type = null;
         if (handshaker instanceof ResumingServerHandshaker) {
+            type = HandshakeType.SERVER_ABBREVIATED;
             log.info("DTLS abbreviated Handshake initiated by server : SUCCEED");
         } else if (handshaker instanceof ServerHandshaker) {
+            type = HandshakeType.SERVER_FULL;
             log.info("DTLS Full Handshake initiated by server : SUCCEED");
         } else if (handshaker instanceof ResumingClientHandshaker) {
+            SessionId sessionIdentifier = started == null ? null : started.sessionIdentifier();
             if (sessionIdentifier != null && sessionIdentifier.equals(handshaker.getSession().getSessionIdentifier())) {
+                type = HandshakeType.ABBREVIATED;
                 log.info("DTLS abbreviated Handshake initiated by client : SUCCEED");
             } else {
+                type = HandshakeType.ABBREVIATED_TURNED_FULL;
                 log.info("DTLS abbreviated turns into Full Handshake initiated by client : SUCCEED");
             }
         } else if (handshaker instanceof ClientHandshaker) {
+            type = HandshakeType.FULL;
             log.info("DTLS Full Handshake initiated by client : SUCCEED");
         }
+        if (type != null && started != null) {
+            metrics.recordSince(type.getMetric(), started.nanos());
+        }
+        metrics.increment(ConnectionId.useConnectionId(establishedContext.getWriteConnectionId()) ? CID : NO_CID);
     }
 
     @Override
     public void handshakeFailed(Handshaker handshaker, Throwable error) {
+        handshakes.remove(handshaker);
         // get cause
         String cause;
         if (error != null) {
@@ -76,14 +140,38 @@ public class DtlsSessionLogger extends SessionAdapter {
             cause = "unknown cause";
         }
 
+        HandshakeType type = null;
         if (handshaker instanceof ResumingServerHandshaker) {
+            type = HandshakeType.SERVER_ABBREVIATED;
             log.info("DTLS abbreviated Handshake initiated by server : FAILED ({})", cause);
         } else if (handshaker instanceof ServerHandshaker) {
+            type = HandshakeType.SERVER_FULL;
             log.info("DTLS Full Handshake initiated by server : FAILED ({})", cause);
         } else if (handshaker instanceof ResumingClientHandshaker) {
+            type = HandshakeType.ABBREVIATED;
             log.info("DTLS abbreviated Handshake initiated by client : FAILED ({})", cause);
         } else if (handshaker instanceof ClientHandshaker) {
+            type = HandshakeType.FULL;
             log.info("DTLS Full Handshake initiated by client : FAILED ({})", cause);
         }
+        if (type != null) {
+            metrics.increment(type.getMetric() + ".failed");
+        }
+        metrics.increment("dtls.failure." + failureCause(error));
+    }
+
+    @Override
+    public void handshakeFlightRetransmitted(Handshaker handshaker, int flight) {
+        metrics.increment(RETRANSMISSION);
+    }
+
+    /**
+     * @return short name of the failure cause, usable in a metric name
+     */
+    private static String failureCause(Throwable error) {
+        if (error instanceof HandshakeException && ((HandshakeException) error).getAlert() != null) {
+            return ((HandshakeException) error).getAlert().getDescription().name().toLowerCase(Locale.ROOT);
+        }
+        return error == null ? "unknown" : error.getClass().getSimpleName();
     }
 }
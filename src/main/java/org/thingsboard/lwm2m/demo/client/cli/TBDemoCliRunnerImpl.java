@@ -15,6 +15,7 @@
  */
 package org.thingsboard.lwm2m.demo.client.cli;
 
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
@@ -22,15 +23,19 @@ import org.thingsboard.lwm2m.demo.client.cli.interactive.TBAppVersionProviderCli
 import org.thingsboard.lwm2m.demo.client.cli.interactive.TBSectionCliInteractiveCommands;
 import org.thingsboard.lwm2m.demo.client.cli.interactive.TBInteractiveCLI;
 import org.thingsboard.lwm2m.demo.client.core.LwM2MClient;
+import org.thingsboard.lwm2m.demo.client.core.LwM2MClientSharedResources;
 import org.thingsboard.lwm2m.demo.client.service.LwM2MClientService;
+import org.thingsboard.lwm2m.demo.client.service.RampUpController;
 import org.eclipse.leshan.client.LeshanClient;
 import org.eclipse.leshan.core.model.LwM2mModelRepository;
 import picocli.CommandLine;
 
 import java.io.PrintWriter;
+import java.util.List;
 
 import static org.thingsboard.lwm2m.demo.client.util.Utils.createModel;
 
+@Slf4j
 @Component
 public class TBDemoCliRunnerImpl implements CommandLineRunner {
 
@@ -55,17 +60,30 @@ public class TBDemoCliRunnerImpl implements CommandLineRunner {
         }
         try {
             LwM2mModelRepository repository = createModel(cli);
-            LeshanClient client = lwM2MClient.create(cli, repository);
+            LwM2MClientSharedResources shared = lwM2MClient.createSharedResources(cli, repository);
+            List<LeshanClient> clients;
+            try {
+                clients = lwM2MClient.createFleet(cli, shared);
+            } catch (Exception e) {
+                shared.destroy();
+                throw e;
+            }
+            RampUpController rampUpController = new RampUpController(cli.fleet.rampUpCurve, cli.fleet.rampUpRate,
+                    cli.fleet.rampUpStep);
             if (cli.main.interactiveConsole) {
-                // Print commands help
+                // Print commands help, commands apply to the first client of the fleet
+                LeshanClient client = clients.get(0);
+                if (clients.size() > 1) {
+                    log.info("Interactive console commands apply to the first client of the fleet of {} clients", clients.size());
+                }
                 TBInteractiveCLI tbInteractiveCLI = new TBInteractiveCLI(new TBSectionCliInteractiveCommands(client, repository, TBAppVersionProviderCli), cli);
-                // Start the client
-                lwM2MClientService.start(client);
+                // Start the clients
+                lwM2MClientService.start(clients, shared, rampUpController);
                 // Start interactive console
                 tbInteractiveCLI.run();
             } else {
-                // Start the client without Interactive console
-                lwM2MClientService.start(client);
+                // Start the clients without Interactive console
+                lwM2MClientService.start(clients, shared, rampUpController);
             }
         } catch (Exception e) {
             PrintWriter printer = command.getErr();
@@ -24,10 +24,16 @@ import org.eclipse.leshan.core.demo.cli.converters.ResourcePathConverter;
 import org.eclipse.leshan.core.demo.cli.converters.StrictlyPositiveIntegerConverter;
 import org.eclipse.leshan.core.endpoint.Protocol;
 import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.request.ContentFormat;
 import org.eclipse.leshan.core.util.StringUtils;
 import org.thingsboard.lwm2m.demo.client.VersionProvider;
+import org.thingsboard.lwm2m.demo.client.cli.interactive.TBContentFormatConverter;
 import org.thingsboard.lwm2m.demo.client.cli.interactive.TBSectionsCliStartHelp;
 import org.thingsboard.lwm2m.demo.client.engine.DefaultClientEndpointNameProvider.Mode;
+import org.thingsboard.lwm2m.demo.client.engine.EndpointNameTemplate;
+import org.thingsboard.lwm2m.demo.client.engine.QueueModeTimers;
+import org.thingsboard.lwm2m.demo.client.ota.OtaDwellTimes;
+import org.thingsboard.lwm2m.demo.client.service.RampUpController;
 import picocli.CommandLine.ArgGroup;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.ITypeConverter;
@@ -45,6 +51,8 @@ import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import static org.thingsboard.lwm2m.demo.client.util.Utils.JOURNAL_FOLDER_DEF;
+
 /**
  * This is the class defining the Command Line Interface of Thingsboard Lwm2m Client Demo.
  */
@@ -132,9 +140,29 @@ public class TBSectionsCliMain implements Runnable {
                 converter = StrictlyPositiveIntegerConverter.class)
         public Integer comPeriodInSec;
 
-        @Option(names = { "-q", "--queue-mode" }, description = { "Client use queue mode (not fully implemented)." })
+        @Option(names = { "-q", "--queue-mode" },
+                description = { //
+                        "Client use queue mode: it sleeps after an awake window following each message, and drops", //
+                        "requests of the server received while not reachable. See -qt for the sleep timers." })
         public boolean queueMode;
 
+        @Option(names = { "-qt", "--queue-timers" },
+                description = { //
+                        "Timers in milliseconds of queue mode (-q), as timer=ms separated by commas:", //
+                        "awake (awake window after the last message, default 93000), active (idle time before PSM,", //
+                        "T3324, default 0), edrx (eDRX cycle during active time, default 0 for none), ptw (paging", //
+                        "time window of each eDRX cycle). Syntax example:", //
+                        "-qt awake=10000,active=60000,edrx=20480,ptw=2560" },
+                converter = QueueModeTimersConverter.class)
+        public QueueModeTimers queueTimers;
+
+        private static class QueueModeTimersConverter implements ITypeConverter<QueueModeTimers> {
+            @Override
+            public QueueModeTimers convert(String value) {
+                return QueueModeTimers.parse(value);
+            }
+        }
+
         @Option(names = { "-lh", "--local-address" },
                 description = { //
                         "Set the local CoAP address of the Client.", //
@@ -160,6 +188,130 @@ public class TBSectionsCliMain implements Runnable {
                         "-o /absolute/path/to" })
         public String otaFolder;
 
+        @Option(names = { "-ohc", "--ota-http-concurrency" },
+                defaultValue = "4",
+                description = { //
+                        "Maximum number of OTA packages downloaded at the same time from http:// or https:// package URIs,", //
+                        "for all clients. Next downloads wait for a free slot.", //
+                        "Default : ${DEFAULT-VALUE}." },
+                converter = StrictlyPositiveIntegerConverter.class)
+        public Integer otaHttpConcurrency;
+
+        @Option(names = { "-obs", "--ota-block-size" },
+                defaultValue = "0",
+                description = { //
+                        "Block size in bytes of OTA packages downloaded from coap:// or coaps:// package URIs:", //
+                        "16, 32, 64, 128, 256, 512 or 1024.", //
+                        "0 starts with the largest block fitting the MTU and adapts it to retransmissions and RTT.", //
+                        "Default : ${DEFAULT-VALUE}." })
+        public Integer otaBlockSize;
+
+        @Option(names = { "-odt", "--ota-dwell-times" },
+                description = { //
+                        "Time in milliseconds spent in each step of simulated FW / SW updates (-tobj, -tota),", //
+                        "as step=ms separated by commas. Steps: start, downloading, downloaded, updating, result.", //
+                        "Steps which are not set last 100 ms. Syntax example:", //
+                        "-odt downloading=30000,updating=60000" },
+                converter = OtaDwellTimesConverter.class)
+        public OtaDwellTimes otaDwellTimes = OtaDwellTimes.DEFAULT;
+
+        @Option(names = { "-ol", "--ota-loop" },
+                description = { //
+                        "OTA loop for soak tests of the OTA service, with -tobj or -tota: once a firmware update cycle", //
+                        "is back to Idle, the client reports its initial package again after the think time,", //
+                        "so the server sends the next update. Cycles, failures, time in each state and", //
+                        "throughput are logged with the latency report." })
+        public boolean otaLoop;
+
+        @Option(names = { "-olt", "--ota-loop-think-time" },
+                defaultValue = "10",
+                description = { //
+                        "Time (in seconds) between the end of an OTA loop cycle and the report of the initial package.", //
+                        "Default : ${DEFAULT-VALUE}s." })
+        public Integer otaLoopThinkTimeInSec;
+
+        private static class OtaDwellTimesConverter implements ITypeConverter<OtaDwellTimes> {
+            @Override
+            public OtaDwellTimes convert(String value) {
+                return OtaDwellTimes.parse(value);
+            }
+        }
+
+        @Option(names = { "-sdp", "--send-paths" },
+                description = { //
+                        "Resources sampled and sent automatically with the Send operation, as paths separated by commas.", //
+                        "Values are buffered with their timestamp and sent in one SenML request per batch.", //
+                        "Syntax example:", //
+                        "-sdp /3303/0/5700,/3/0/9" },
+                split = ",",
+                converter = LwM2mPathConverter.class)
+        public List<LwM2mPath> sendPaths;
+
+        @Option(names = { "-sds", "--send-sample-period" },
+                defaultValue = "10",
+                description = { //
+                        "Time (in seconds) between two samples of the -sdp resources.", //
+                        "Default : ${DEFAULT-VALUE}s." },
+                converter = StrictlyPositiveIntegerConverter.class)
+        public Integer sendSamplePeriodInSec;
+
+        @Option(names = { "-sdb", "--send-batch-size" },
+                defaultValue = "10",
+                description = { //
+                        "Number of samples of a resource which triggers the Send of the batch.", //
+                        "Default : ${DEFAULT-VALUE}." },
+                converter = StrictlyPositiveIntegerConverter.class)
+        public Integer sendBatchSize;
+
+        @Option(names = { "-sda", "--send-max-age" },
+                defaultValue = "300",
+                description = { //
+                        "Age (in seconds) of the oldest sample which triggers the Send of the batch.", //
+                        "Default : ${DEFAULT-VALUE}s." },
+                converter = StrictlyPositiveIntegerConverter.class)
+        public Integer sendMaxAgeInSec;
+
+        @Option(names = { "-sdf", "--send-content-format" },
+                defaultValue = "SENML_CBOR",
+                description = { //
+                        "Content format of batched Send requests: SENML_CBOR or SENML_JSON.", //
+                        "Default : ${DEFAULT-VALUE}." },
+                converter = SendContentFormatConverter.class)
+        public ContentFormat sendContentFormat;
+
+        @Option(names = { "-oj", "--offline-journal" },
+                defaultValue = "0",
+                description = { //
+                        "Size (in KB) of the journal of temperature (3303) and location (6) values produced while the", //
+                        "client is not registered. It is a memory-mapped file kept across restarts, oldest values are", //
+                        "evicted first. Values are sent in batched Send requests after registration. 0 disables it.", //
+                        "Default : ${DEFAULT-VALUE}." })
+        public Integer offlineJournalKb;
+
+        @Option(names = { "-ojf", "--offline-journal-folder" },
+                defaultValue = JOURNAL_FOLDER_DEF,
+                description = { //
+                        "Folder of the offline journals, one file per endpoint.", //
+                        "Default : ${DEFAULT-VALUE}." })
+        public String offlineJournalFolder;
+
+        private static class LwM2mPathConverter implements ITypeConverter<LwM2mPath> {
+            @Override
+            public LwM2mPath convert(String value) {
+                LwM2mPath path = new LwM2mPath(value);
+                if (!path.isResource() && !path.isResourceInstance()) {
+                    throw new IllegalArgumentException("Path must target a resource or resource instance: " + value);
+                }
+                return path;
+            }
+        }
+
+        private static class SendContentFormatConverter extends TBContentFormatConverter {
+            public SendContentFormatConverter() {
+                super(ContentFormat.SENML_CBOR, ContentFormat.SENML_JSON);
+            }
+        }
+
         @Option(names = { "-aa", "--additional-attributes" },
                 description = { //
                         "Use additional attributes at registration time.", //
@@ -255,6 +407,14 @@ public class TBSectionsCliMain implements Runnable {
                         "-tcli", //
                 })
         public Integer cliTimeoutSeconds = 5;
+
+        @Option(names = { "-mi", "--metrics-interval" },
+                defaultValue = "60",
+                description = { //
+                        "Interval (in seconds) of the latency report (register, update, send, notify, read, write, execute, OTA).", //
+                        "0 disables the periodic report, a last report is always logged at shutdown.", //
+                        "Default : ${DEFAULT-VALUE}s." })
+        public Integer metricsIntervalInSec;
     }
 
     /* ********************************** Location Section ******************************** */
@@ -305,6 +465,105 @@ public class TBSectionsCliMain implements Runnable {
 
     }
 
+    /* ********************************** Fleet Section ******************************** */
+    @ArgGroup(validate = false,
+              heading = "%n@|bold,underline Fleet Options|@ %n%n"//
+                      + "@|italic " //
+                      + "Run several simulated clients in the same JVM. Clients share the object model, the encoders/decoders, the CoAP configuration and the schedulers, each one has its own object instances." //
+                      + "|@%n%n")
+    public FleetSection fleet = new FleetSection();
+
+    public static class FleetSection {
+
+        @Option(names = { "-fs", "--fleet-size" },
+                defaultValue = "1",
+                description = { //
+                        "Number of clients to simulate.", //
+                        "Default : ${DEFAULT-VALUE}." },
+                converter = StrictlyPositiveIntegerConverter.class)
+        public Integer size;
+
+        @Option(names = { "-ft", "--fleet-endpoint-template" },
+                description = { //
+                        "Template of the endpoint name of each client of the fleet.", //
+                        "'{index}' is replaced by the client index, a format can be added e.g. '{index:06d}'.", //
+                        "If PSK identity contains '{index}' it is formatted the same way.", //
+                        "Default: <endpoint-name>-{index:06d} when fleet size > 1.", //
+                        "Syntax example:", //
+                        "-ft sim-{index:06d}" })
+        public String endpointTemplate;
+
+        @Option(names = { "-fi", "--fleet-start-index" },
+                defaultValue = "0",
+                description = { //
+                        "Index of the first client of the fleet.", //
+                        "Default : ${DEFAULT-VALUE}." })
+        public Integer startIndex;
+
+        @Option(names = { "-fth", "--fleet-threads" },
+                description = { //
+                        "Number of threads of the executor shared by the registration engines of all clients.", //
+                        "Registration requests block a thread until the server answers, so large fleets need more than the default.", //
+                        "Default: min(fleet size, max(4, 2 * available processors))." },
+                converter = StrictlyPositiveIntegerConverter.class)
+        public Integer threads;
+
+        @Option(names = { "-sw", "--scheduler-workers" },
+                defaultValue = "2",
+                description = { //
+                        "Number of worker threads of the timing-wheel scheduler shared by all objects of all clients", //
+                        "(periodic notifications, delayed actions).", //
+                        "Default : ${DEFAULT-VALUE}." },
+                converter = StrictlyPositiveIntegerConverter.class)
+        public Integer schedulerWorkers;
+
+        @Option(names = { "-rur", "--ramp-up-rate" },
+                defaultValue = "0",
+                description = { //
+                        "Number of clients started per second.", //
+                        "0 means all clients are started at once.", //
+                        "Default : ${DEFAULT-VALUE}." })
+        public Double rampUpRate;
+
+        @Option(names = { "-ruc", "--ramp-up-curve" },
+                defaultValue = "LINEAR",
+                description = { //
+                        "Arrival curve of the ramp-up: ${COMPLETION-CANDIDATES}.", //
+                        "LINEAR: one client every 1/rate second.", //
+                        "STEP: bursts of --ramp-up-step clients every step/rate second.", //
+                        "POISSON: random arrivals with a mean of rate clients per second.", //
+                        "Default : ${DEFAULT-VALUE}." })
+        public RampUpController.Curve rampUpCurve;
+
+        @Option(names = { "-rus", "--ramp-up-step" },
+                defaultValue = "10",
+                description = { //
+                        "Number of clients started together with STEP curve.", //
+                        "Default : ${DEFAULT-VALUE}." },
+                converter = StrictlyPositiveIntegerConverter.class)
+        public Integer rampUpStep;
+
+        @Option(names = { "-spu", "--spread-updates" },
+                description = { //
+                        "Spread registration updates of the fleet evenly over the update period,", //
+                        "instead of keeping the phase of the registration (or of the ramp-up)." })
+        public boolean spreadUpdates;
+
+        public int getThreads() {
+            if (threads != null) {
+                return threads;
+            }
+            return Math.min(size, Math.max(4, 2 * Runtime.getRuntime().availableProcessors()));
+        }
+
+        public String getEndpointTemplate(String endpoint) {
+            if (endpointTemplate != null) {
+                return endpointTemplate;
+            }
+            return size > 1 ? endpoint + "-{index:06d}" : endpoint;
+        }
+    }
+
     /* ********************************** DTLS Section ******************************** */
     @ArgGroup(validate = false,
               heading = "%n@|bold,underline DTLS Options|@ %n%n"//
@@ -357,6 +616,38 @@ public class TBSectionsCliMain implements Runnable {
                 description = { //
                         "Activate support of old/deprecated cipher suites." })
         public boolean supportDeprecatedCiphers;
+
+        @Option(names = { "-dsc", "--dtls-session-cache" },
+                description = { //
+                        "Folder where DTLS connections are saved when the client stops, one encrypted file per", //
+                        "endpoint, and loaded when it starts again, so restarts and reboots resume the DTLS session", //
+                        "with an abbreviated handshake. Needs -dscp. Not set by default." })
+        public String sessionCacheFolder;
+
+        @Option(names = { "-dscp", "--dtls-session-cache-password" },
+                defaultValue = "${env:TB_DTLS_SESSION_CACHE_PASSWORD}",
+                description = { //
+                        "Password of the DTLS session cache files.", //
+                        "Default : value of the TB_DTLS_SESSION_CACHE_PASSWORD environment variable." })
+        public String sessionCachePassword;
+
+        @Option(names = { "-nr", "--nat-rebinding" },
+                defaultValue = "0",
+                description = { //
+                        "Period (in seconds) of simulated NAT rebinding: the DTLS socket of each client is bound", //
+                        "again to a new local port, as seen by the server when a NAT assigns another public port.", //
+                        "Recovery over connection ID (-cid) or with a new handshake, its latency and bytes are", //
+                        "logged with the latency report. 0 disables it.", //
+                        "Default : ${DEFAULT-VALUE}." })
+        public Integer natRebindingPeriodInSec;
+
+        @Option(names = { "-nra", "--nat-rebinding-addresses" },
+                description = { //
+                        "Local addresses used in turn by NAT rebinding (-nr), e.g. aliases of the local address (-lh),", //
+                        "separated by ','. Default: the current local address, only the port changes." },
+                split = ",",
+                converter = InetAddressConverter.class)
+        public List<InetAddress> natRebindingAddresses;
     }
 
     /* ********************************** Identity Section ******************************** */
@@ -396,6 +687,59 @@ public class TBSectionsCliMain implements Runnable {
             oscore.validateOscoreSetting(spec.commandLine());
         }
 
+        // check fleet
+        if (fleet.startIndex < 0) {
+            throw new MultiParameterException(spec.commandLine(), "Fleet start index must be positive or 0", "-fi");
+        }
+        if (main.metricsIntervalInSec < 0) {
+            throw new MultiParameterException(spec.commandLine(), "Metrics interval must be positive or 0", "-mi");
+        }
+        if (fleet.rampUpRate < 0) {
+            throw new MultiParameterException(spec.commandLine(), "Ramp-up rate must be positive or 0", "-rur");
+        }
+        if (main.otaLoop && !main.testObject && !main.testOta) {
+            throw new MultiParameterException(spec.commandLine(),
+                    "OTA loop needs simulated (-tobj) or real (-tota) OTA updates", "-ol", "-tobj", "-tota");
+        }
+        if (main.queueTimers != null && !main.queueMode) {
+            throw new MultiParameterException(spec.commandLine(), "Queue mode timers need queue mode", "-qt", "-q");
+        }
+        if (dtls.sessionCacheFolder != null
+                && (dtls.sessionCachePassword == null || dtls.sessionCachePassword.isEmpty())) {
+            throw new MultiParameterException(spec.commandLine(), "DTLS session cache needs a password", "-dsc",
+                    "-dscp");
+        }
+        if (dtls.natRebindingPeriodInSec < 0) {
+            throw new MultiParameterException(spec.commandLine(), "NAT rebinding period must be positive or 0", "-nr");
+        }
+        if (dtls.natRebindingAddresses != null && dtls.natRebindingPeriodInSec == 0) {
+            throw new MultiParameterException(spec.commandLine(), "NAT rebinding addresses need NAT rebinding", "-nra",
+                    "-nr");
+        }
+        if (main.offlineJournalKb < 0) {
+            throw new MultiParameterException(spec.commandLine(), "Offline journal size must be positive or 0", "-oj");
+        }
+        if (main.otaLoopThinkTimeInSec < 0) {
+            throw new MultiParameterException(spec.commandLine(), "OTA loop think time must be positive or 0", "-olt");
+        }
+        if (main.otaBlockSize != 0 && (main.otaBlockSize < 16 || main.otaBlockSize > 1024
+                || Integer.bitCount(main.otaBlockSize) != 1)) {
+            throw new MultiParameterException(spec.commandLine(),
+                    "OTA block size must be 0 or a power of 2 from 16 to 1024", "-obs");
+        }
+        if (fleet.endpointTemplate != null) {
+            try {
+                EndpointNameTemplate template = new EndpointNameTemplate(fleet.endpointTemplate);
+                if (fleet.size > 1 && !template.hasPlaceholder()) {
+                    throw new MultiParameterException(spec.commandLine(), String.format(
+                            "Endpoint name template %s must contain an '{index}' placeholder when fleet size is greater than 1",
+                            fleet.endpointTemplate), "-ft", "-fs");
+                }
+            } catch (IllegalArgumentException e) {
+                throw new MultiParameterException(spec.commandLine(), e.getMessage(), "-ft");
+            }
+        }
+
         normalizedServerUrl();
 
         // validate url.
@@ -17,60 +17,99 @@ package org.thingsboard.lwm2m.demo.client.core;
 
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.californium.core.config.CoapConfig;
+import org.eclipse.californium.core.network.CoapEndpoint;
+import org.eclipse.californium.elements.Connector;
+import org.eclipse.californium.elements.auth.RawPublicKeyIdentity;
 import org.eclipse.californium.elements.config.Configuration;
+import org.eclipse.californium.scandium.DTLSConnector;
 import org.eclipse.californium.scandium.config.DtlsConfig;
 import org.eclipse.californium.scandium.config.DtlsConnectorConfig;
+import org.eclipse.californium.scandium.dtls.CertificateType;
 import org.eclipse.californium.scandium.dtls.MaxFragmentLengthExtension;
+import org.eclipse.californium.scandium.dtls.pskstore.AdvancedSinglePskStore;
+import org.eclipse.californium.scandium.dtls.x509.SingleCertificateProvider;
+import org.eclipse.californium.scandium.dtls.x509.StaticNewAdvancedCertificateVerifier;
 import org.eclipse.leshan.client.LeshanClient;
 import org.eclipse.leshan.client.LeshanClientBuilder;
 import org.eclipse.leshan.client.californium.endpoint.CaliforniumClientEndpointFactory;
 import org.eclipse.leshan.client.californium.endpoint.CaliforniumClientEndpointsProvider;
 import org.eclipse.leshan.client.californium.endpoint.ClientProtocolProvider;
+import org.eclipse.leshan.client.californium.endpoint.coap.CoapOscoreClientEndpointFactory;
 import org.eclipse.leshan.client.californium.endpoint.coap.CoapOscoreProtocolProvider;
 import org.eclipse.leshan.client.californium.endpoint.coaps.CoapsClientEndpointFactory;
 import org.eclipse.leshan.client.californium.endpoint.coaps.CoapsClientProtocolProvider;
+import org.eclipse.leshan.client.endpoint.ClientEndpointToolbox;
 import org.eclipse.leshan.client.endpoint.LwM2mClientEndpointsProvider;
 import org.eclipse.leshan.client.engine.DefaultRegistrationEngineFactory;
 import org.eclipse.leshan.client.object.LwM2mTestObject;
+import org.eclipse.leshan.client.observer.LwM2mClientObserverAdapter;
 import org.eclipse.leshan.client.object.Oscore;
 import org.eclipse.leshan.client.object.Security;
 import org.eclipse.leshan.client.object.Server;
+import org.eclipse.leshan.client.resource.BaseInstanceEnablerFactory;
+import org.eclipse.leshan.client.resource.LwM2mInstanceEnabler;
 import org.eclipse.leshan.client.resource.LwM2mObjectEnabler;
 import org.eclipse.leshan.client.resource.ObjectsInitializer;
 import org.eclipse.leshan.client.resource.listener.ObjectsListenerAdapter;
+import org.eclipse.leshan.client.send.DataSender;
 import org.eclipse.leshan.client.send.ManualDataSender;
 import org.eclipse.leshan.client.servers.LwM2mServer;
+import org.eclipse.leshan.client.servers.ServerInfo;
 import org.eclipse.leshan.core.californium.PrincipalMdcConnectionListener;
 import org.eclipse.leshan.core.endpoint.Protocol;
 import org.eclipse.leshan.core.model.LwM2mModelRepository;
 import org.eclipse.leshan.core.node.LwM2mSingleResource;
-import org.eclipse.leshan.core.node.codec.DefaultLwM2mDecoder;
-import org.eclipse.leshan.core.node.codec.DefaultLwM2mEncoder;
 import org.eclipse.leshan.core.node.codec.text.LwM2mNodeTextDecoder;
 import org.eclipse.leshan.core.request.BindingMode;
 import org.eclipse.leshan.core.request.BootstrapWriteRequest;
 import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.request.DeregisterRequest;
+import org.eclipse.leshan.core.request.RegisterRequest;
 import org.eclipse.leshan.core.response.BootstrapWriteResponse;
 import org.eclipse.leshan.transport.javacoap.client.coaptcp.endpoint.JavaCoapTcpClientEndpointsProvider;
 import org.eclipse.leshan.transport.javacoap.client.coaptcp.endpoint.JavaCoapsTcpClientEndpointsProvider;
 import org.eclipse.leshan.transport.javacoap.client.endpoint.JavaCoapClientEndpointsProvider;
 import org.springframework.stereotype.Component;
+import org.thingsboard.lwm2m.demo.client.ClientDtlsConnector;
+import org.thingsboard.lwm2m.demo.client.DtlsSessionCache;
 import org.thingsboard.lwm2m.demo.client.DtlsSessionLogger;
+import org.thingsboard.lwm2m.demo.client.cli.TBSectionsCliDtlsIdentity;
 import org.thingsboard.lwm2m.demo.client.cli.TBSectionsCliMain;
 import org.thingsboard.lwm2m.demo.client.engine.DefaultClientEndpointNameProvider;
+import org.thingsboard.lwm2m.demo.client.engine.EndpointNameTemplate;
+import org.thingsboard.lwm2m.demo.client.engine.NatRebindingSimulator;
+import org.thingsboard.lwm2m.demo.client.engine.QueueModeController;
+import org.thingsboard.lwm2m.demo.client.engine.QueueModeTimers;
+import org.thingsboard.lwm2m.demo.client.engine.RegistrationUpdateSpreader;
+import org.thingsboard.lwm2m.demo.client.metrics.ClientMetrics;
+import org.thingsboard.lwm2m.demo.client.metrics.CoapMetricsInterceptor;
+import org.thingsboard.lwm2m.demo.client.metrics.RegistrationMetricsObserver;
 import org.thingsboard.lwm2m.demo.client.objects.FwLwM2MDevice;
 import org.thingsboard.lwm2m.demo.client.objects.LwM2mBinaryAppDataContainer;
 import org.thingsboard.lwm2m.demo.client.objects.MyDevice;
 import org.thingsboard.lwm2m.demo.client.objects.MyLocation;
 import org.thingsboard.lwm2m.demo.client.objects.RandomTemperatureSensor;
 import org.thingsboard.lwm2m.demo.client.objects.SwLwM2MDevice;
+import org.thingsboard.lwm2m.demo.client.ota.OtaContext;
+import org.thingsboard.lwm2m.demo.client.ota.OtaDownloadEndpoints;
+import org.thingsboard.lwm2m.demo.client.ota.OtaLoop;
+import org.thingsboard.lwm2m.demo.client.scheduler.HashedWheelScheduler;
+import org.thingsboard.lwm2m.demo.client.send.OfflineJournalSender;
+import org.thingsboard.lwm2m.demo.client.send.TelemetryJournal;
+import org.thingsboard.lwm2m.demo.client.send.TimeSeriesDataSender;
 import org.thingsboard.lwm2m.demo.client.util.Utils;
 
 import java.io.File;
+import java.net.InetAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.cert.Certificate;
 import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import static org.eclipse.californium.core.config.CoapConfig.BLOCKWISE_ENTITY_TOO_LARGE_AUTO_FAILOVER;
 import static org.eclipse.californium.core.config.CoapConfig.BLOCKWISE_STATUS_LIFETIME;
@@ -81,8 +120,11 @@ import static org.eclipse.californium.core.config.CoapConfig.MAX_RESOURCE_BODY_S
 import static org.eclipse.californium.core.config.CoapConfig.MAX_RETRANSMIT;
 import static org.eclipse.californium.core.config.CoapConfig.PREFERRED_BLOCK_SIZE;
 import static org.eclipse.californium.core.config.CoapConfig.RESPONSE_MATCHING;
+import static org.eclipse.californium.elements.config.UdpConfig.UDP_RECEIVER_THREAD_COUNT;
+import static org.eclipse.californium.elements.config.UdpConfig.UDP_SENDER_THREAD_COUNT;
 import static org.eclipse.californium.scandium.config.DtlsConfig.DTLS_MAX_FRAGMENT_LENGTH;
 import static org.eclipse.californium.scandium.config.DtlsConfig.DTLS_MAX_TRANSMISSION_UNIT;
+import static org.eclipse.californium.scandium.config.DtlsConfig.DTLS_RECEIVER_THREAD_COUNT;
 import static org.eclipse.leshan.client.object.Security.noSec;
 import static org.eclipse.leshan.client.object.Security.noSecBootstrap;
 import static org.eclipse.leshan.client.object.Security.oscoreOnly;
@@ -104,6 +146,7 @@ import static org.thingsboard.lwm2m.demo.client.util.Utils.BINARY_APP_DATA_CONTA
 import static org.thingsboard.lwm2m.demo.client.util.Utils.CF_CONFIGURATION_FILENAME;
 import static org.thingsboard.lwm2m.demo.client.util.Utils.CF_CONFIGURATION_HEADER;
 import static org.thingsboard.lwm2m.demo.client.util.Utils.OBJECT_ID_LWM2M_TEST_OBJECT;
+import static org.thingsboard.lwm2m.demo.client.util.Utils.OTA_BLOBS_FOLDER;
 import static org.thingsboard.lwm2m.demo.client.util.Utils.OBJECT_ID_TEMPERATURE_SENSOR;
 import static org.thingsboard.lwm2m.demo.client.util.Utils.fromLength;
 
@@ -111,8 +154,85 @@ import static org.thingsboard.lwm2m.demo.client.util.Utils.fromLength;
 @Component
 public class LwM2MClient {
 
-    public LeshanClient create(TBSectionsCliMain cli, LwM2mModelRepository repository) throws Exception {
+    public LwM2MClientSharedResources createSharedResources(TBSectionsCliMain cli, LwM2mModelRepository repository) {
+        // Create Californium Configuration once, it is shared by all clients of the fleet
+        CaliforniumClientEndpointsProvider.Builder endpointsBuilder = new CaliforniumClientEndpointsProvider.Builder(
+                createProtocolProviders(cli, null, null, null, null));
+        Configuration clientCoapConfig = endpointsBuilder.createDefaultConfiguration();
+        // Set some DTLS stuff
+        // These configuration values are always overwritten by CLI therefore set them to transient.
+
+        // Persist configuration
+        File configFile = new File(CF_CONFIGURATION_FILENAME);
+        if (configFile.isFile()) {
+            clientCoapConfig.load(configFile);
+        } else {
+            clientCoapConfig.store(configFile, CF_CONFIGURATION_HEADER);
+        }
+
+        // custom for ota
+        if (cli.main.testOta || cli.main.testObject) {
+            clientCoapConfig.setTransient(DtlsConfig.DTLS_RECOMMENDED_CIPHER_SUITES_ONLY);
+            clientCoapConfig.setTransient(DtlsConfig.DTLS_CONNECTION_ID_LENGTH);
+            clientCoapConfig.set(DtlsConfig.DTLS_RECOMMENDED_CIPHER_SUITES_ONLY, !cli.dtls.supportDeprecatedCiphers);
+            clientCoapConfig.set(DtlsConfig.DTLS_CONNECTION_ID_LENGTH, cli.dtls.cid);
+            clientCoapConfig.set(BLOCKWISE_STRICT_BLOCK2_OPTION, true);
+            clientCoapConfig.set(BLOCKWISE_ENTITY_TOO_LARGE_AUTO_FAILOVER, true);
+            clientCoapConfig.set(BLOCKWISE_STATUS_LIFETIME, DEFAULT_BLOCKWISE_STATUS_LIFETIME_IN_SECONDS, TimeUnit.SECONDS);
+            clientCoapConfig.set(MAX_RESOURCE_BODY_SIZE, 256 * 1024 * 1024);
+            clientCoapConfig.set(RESPONSE_MATCHING, CoapConfig.MatcherMode.RELAXED);
+            clientCoapConfig.set(PREFERRED_BLOCK_SIZE, 1024);
+            clientCoapConfig.set(MAX_MESSAGE_SIZE, 1024);
+            clientCoapConfig.set(MAX_RETRANSMIT, 4);
+        }
+
+        if (cli.dtls.ciphers != null) {
+            clientCoapConfig.set(DtlsConfig.DTLS_CIPHER_SUITES, cli.dtls.ciphers);
+        }
+
+        // Each client owns at least one socket, keep only one receiver/sender thread by socket for a fleet.
+        // Protocol stage and DTLS handshake threads are shared (see LwM2MClientSharedResources).
+        if (cli.fleet.size > 1) {
+            clientCoapConfig.set(UDP_RECEIVER_THREAD_COUNT, 1);
+            clientCoapConfig.set(UDP_SENDER_THREAD_COUNT, 1);
+            clientCoapConfig.set(DTLS_RECEIVER_THREAD_COUNT, 1);
+        }
+        // the OTA folder holds the packages shared by all clients
+        LwM2MClientSharedResources shared = new LwM2MClientSharedResources(repository, cli.main.supportOldFormat,
+                clientCoapConfig, cli.fleet.getThreads(), cli.fleet.schedulerWorkers, cli.main.otaHttpConcurrency,
+                Paths.get(Utils.getOtaFolder(cli.main.otaFolder), OTA_BLOBS_FOLDER));
+        if (cli.main.metricsIntervalInSec > 0) {
+            shared.getMetrics().startPeriodicReport(shared.getScheduler(), cli.main.metricsIntervalInSec, TimeUnit.SECONDS);
+        }
+        return shared;
+    }
+
+    public List<LeshanClient> createFleet(TBSectionsCliMain cli, LwM2MClientSharedResources shared) throws Exception {
+        EndpointNameTemplate template = new EndpointNameTemplate(cli.fleet.getEndpointTemplate(cli.main.endpoint));
+        List<LeshanClient> clients = new ArrayList<>(cli.fleet.size);
+        for (int i = 0; i < cli.fleet.size; i++) {
+            int index = cli.fleet.startIndex + i;
+            clients.add(create(cli, shared, template.format(index), index));
+        }
+        if (clients.size() > 1) {
+            log.info("Fleet of {} clients created, endpoints [{}] .. [{}]", clients.size(),
+                    template.format(cli.fleet.startIndex), template.format(cli.fleet.startIndex + clients.size() - 1));
+            if (cli.fleet.spreadUpdates) {
+                long updatePeriod = RegistrationUpdateSpreader.computeUpdatePeriodInMs(cli.main.lifetimeInSec,
+                        cli.main.comPeriodInSec, shared.getCoapConfig().get(CoapConfig.EXCHANGE_LIFETIME, TimeUnit.MILLISECONDS));
+                for (int i = 0; i < clients.size(); i++) {
+                    clients.get(i).addObserver(new RegistrationUpdateSpreader(clients.get(i), shared.getScheduler(), i,
+                            clients.size(), updatePeriod));
+                }
+                log.info("Registration updates spread over {} ms", updatePeriod);
+            }
+        }
+        return clients;
+    }
+
+    public LeshanClient create(TBSectionsCliMain cli, LwM2MClientSharedResources shared, String endpoint, int index) throws Exception {
         // create Thingsboard Lwm2m Demo Client from command line option
+        LwM2mModelRepository repository = shared.getRepository();
         // Initialize object list
         final ObjectsInitializer initializer = new ObjectsInitializer(repository.getLwM2mModel());
         // handle OSCORE
@@ -142,14 +262,14 @@ public class LwM2MClient {
         int shortServerId = 123;
         // Security
         if (cli.main.lwm2mBootstrap) {
-            Security securityBs = setSecurityBootstrap(cli, oscoreObjectInstanceId, cli.main.urlBs);
-            Security securityLwm2m = setSecurityLwm2m(cli, oscoreObjectInstanceId, shortServerId);
+            Security securityBs = setSecurityBootstrap(cli, oscoreObjectInstanceId, cli.main.urlBs, index);
+            Security securityLwm2m = setSecurityLwm2m(cli, oscoreObjectInstanceId, shortServerId, index);
             initializer.setInstancesForObject(SECURITY, securityBs, securityLwm2m);
         } else if (cli.main.bootstrap) {
-            Security securityBs = setSecurityBootstrap(cli, oscoreObjectInstanceId, cli.main.url);
+            Security securityBs = setSecurityBootstrap(cli, oscoreObjectInstanceId, cli.main.url, index);
             initializer.setInstancesForObject(SECURITY, securityBs);
         } else {
-            Security securityLwm2m = setSecurityLwm2m(cli, oscoreObjectInstanceId, shortServerId);
+            Security securityLwm2m = setSecurityLwm2m(cli, oscoreObjectInstanceId, shortServerId, index);
             initializer.setInstancesForObject(SECURITY, securityLwm2m);
         }
 
@@ -162,16 +282,34 @@ public class LwM2MClient {
         if (cli.main.testObject && cli.main.testOta){
             throw new IllegalStateException("Only one of these parameters (`-tobj` or `-tota`) can be used at a time.");
         }
-        Utils.setOtaFolder(cli.main.otaFolder);
-        initializer.setInstancesForObject(DEVICE, new MyDevice(cli.main.timeDataFrequency));
-        initializer.setInstancesForObject(FIRMWARE, new FwLwM2MDevice(cli.main.timeDataFrequency, cli.main.testObject, cli.main.testOta));
-
-        initializer.setInstancesForObject(SOFTWARE_MANAGEMENT, new SwLwM2MDevice(cli.main.timeDataFrequency, cli.main.testObject, cli.main.testOta));
+        HashedWheelScheduler scheduler = shared.getScheduler();
+        // OTA files and update information of each client of a fleet are kept apart, in a sub-folder named after it
+        Path otaFolder = Paths.get(Utils.getOtaFolder(cli.main.otaFolder));
+        OtaContext otaContext = cli.fleet.size > 1 ? OtaContext.forClient(otaFolder, endpoint, cli.main.otaDwellTimes)
+                : new OtaContext(otaFolder, cli.main.otaDwellTimes);
+        // Package URI downloads of FW and SW reuse the same endpoints, created on first use
+        OtaDownloadEndpoints downloadEndpoints = new OtaDownloadEndpoints(otaDtlsIdentity(cli, index),
+                shared.getCoapMainExecutor(), shared.getCoapSecondaryExecutor(), shared.getDtlsExecutor(),
+                shared.getHttpDownloader());
+        downloadEndpoints.setCoapBlockSize(cli.main.otaBlockSize);
+        initializer.setInstancesForObject(DEVICE, new MyDevice(cli.main.timeDataFrequency, scheduler, otaContext));
+        initializer.setInstancesForObject(FIRMWARE, new FwLwM2MDevice(cli.main.timeDataFrequency, cli.main.testObject, cli.main.testOta, scheduler, shared.getMetrics(), downloadEndpoints, shared.getOtaBlobStore(), otaContext,
+                cli.main.otaLoop ? new OtaLoop(shared.getOtaLoopStats(), shared.getMetrics(), scheduler,
+                        TimeUnit.SECONDS.toMillis(cli.main.otaLoopThinkTimeInSec)) : null));
+
+        initializer.setInstancesForObject(SOFTWARE_MANAGEMENT, new SwLwM2MDevice(cli.main.timeDataFrequency, cli.main.testObject, cli.main.testOta, scheduler, shared.getMetrics(), downloadEndpoints, shared.getOtaBlobStore(), otaContext));
         initializer.setInstancesForObject(LOCATION, new MyLocation(cli.main.timeDataFrequency, cli.location.position.latitude,
-                cli.location.position.longitude, cli.location.scaleFactor));
-        initializer.setInstancesForObject(BINARY_APP_DATA_CONTAINER, new LwM2mBinaryAppDataContainer(cli.main.timeDataFrequency, 0),
-                new LwM2mBinaryAppDataContainer(cli.main.timeDataFrequency, 1));
-        initializer.setInstancesForObject(OBJECT_ID_TEMPERATURE_SENSOR, new RandomTemperatureSensor(cli.main.timeDataFrequency));
+                cli.location.position.longitude, cli.location.scaleFactor, scheduler));
+        initializer.setInstancesForObject(BINARY_APP_DATA_CONTAINER, new LwM2mBinaryAppDataContainer(cli.main.timeDataFrequency, 0, scheduler, otaContext),
+                new LwM2mBinaryAppDataContainer(cli.main.timeDataFrequency, 1, scheduler, otaContext));
+        // instances created by the server (65533 / 65534 for OTA information) belong to this client too
+        initializer.setFactoryForObject(BINARY_APP_DATA_CONTAINER, new BaseInstanceEnablerFactory() {
+            @Override
+            public LwM2mInstanceEnabler create() {
+                return new LwM2mBinaryAppDataContainer(cli.main.timeDataFrequency, null, scheduler, otaContext);
+            }
+        });
+        initializer.setInstancesForObject(OBJECT_ID_TEMPERATURE_SENSOR, new RandomTemperatureSensor(cli.main.timeDataFrequency, scheduler));
         initializer.setInstancesForObject(OBJECT_ID_LWM2M_TEST_OBJECT, new LwM2mTestObject());
 
         List<LwM2mObjectEnabler> enablers = initializer.createAll();
@@ -186,83 +324,29 @@ public class LwM2MClient {
 
         // Create Californium Endpoints Provider:
         // --------------------------------------
-        // Define Custom CoAPS protocol provider
-        CoapsClientProtocolProvider customCoapsProtocolProvider = new CoapsClientProtocolProvider() {
-            @Override
-            public CaliforniumClientEndpointFactory createDefaultEndpointFactory() {
-                return new CoapsClientEndpointFactory() {
-
-                    @Override
-                    protected DtlsConnectorConfig.Builder createRootDtlsConnectorConfigBuilder(
-                            Configuration configuration) {
-                        DtlsConnectorConfig.Builder builder = super.createRootDtlsConnectorConfigBuilder(configuration);
-
-                        // Add DTLS Session lifecycle logger
-                        builder.setSessionListener(new DtlsSessionLogger());
-
-                        // Add MDC for connection logs
-                        if (cli.helpsOptions.getVerboseLevel() > 0) {
-                            builder.setConnectionListener(new PrincipalMdcConnectionListener());
-                        }
-                        MaxFragmentLengthExtension.Length length = fromLength(1024);
-                        builder.set(DTLS_MAX_FRAGMENT_LENGTH, length);
-                        builder.set(DTLS_MAX_TRANSMISSION_UNIT, 1024);
-                        return builder;
-                    };
-                };
-            }
-        };
-
-        // Create client protocol Provider
-        List<ClientProtocolProvider> protocolProvider = new ArrayList<>();
-        if (!cli.main.useJavaCoap) {
-            protocolProvider.add(new CoapOscoreProtocolProvider());
-        }
-        protocolProvider.add(customCoapsProtocolProvider);
+        // Use the Californium Configuration shared by the fleet
+        // Sleeping behavior of queue mode, Californium endpoints only
+        QueueModeController queueMode = cli.main.queueMode ? new QueueModeController(
+                cli.main.queueTimers != null ? cli.main.queueTimers : QueueModeTimers.DEFAULT, scheduler,
+                shared.getMetrics(), shared.getQueueModeStats()) : null;
+        // DTLS connections kept across restarts in an encrypted file of each client
+        DtlsSessionCache sessionCache = cli.dtls.sessionCacheFolder != null ? new DtlsSessionCache(
+                Paths.get(cli.dtls.sessionCacheFolder, Utils.toFileName(endpoint) + ".dtls"),
+                cli.dtls.sessionCachePassword) : null;
+        // NAT rebinding of the DTLS connector
+        NatRebindingSimulator rebinding = cli.dtls.natRebindingPeriodInSec > 0 ? new NatRebindingSimulator(
+                TimeUnit.SECONDS.toMillis(cli.dtls.natRebindingPeriodInSec),
+                cli.dtls.natRebindingAddresses != null ? cli.dtls.natRebindingAddresses : List.of(), scheduler,
+                shared.getMetrics(), shared.getNatRebindingStats()) : null;
         CaliforniumClientEndpointsProvider.Builder endpointsBuilder = new CaliforniumClientEndpointsProvider.Builder(
-                protocolProvider.toArray(new ClientProtocolProvider[protocolProvider.size()]));
-
-        // Create Californium Configuration
-        Configuration clientCoapConfig = endpointsBuilder.createDefaultConfiguration();
-        // Set some DTLS stuff
-        // These configuration values are always overwritten by CLI therefore set them to transient.
-
-        // Persist configuration
-        File configFile = new File(CF_CONFIGURATION_FILENAME);
-        if (configFile.isFile()) {
-            clientCoapConfig.load(configFile);
-        } else {
-            clientCoapConfig.store(configFile, CF_CONFIGURATION_HEADER);
-        }
-
-        // custom for ota
-        if (cli.main.testOta || cli.main.testObject) {
-            clientCoapConfig.setTransient(DtlsConfig.DTLS_RECOMMENDED_CIPHER_SUITES_ONLY);
-            clientCoapConfig.setTransient(DtlsConfig.DTLS_CONNECTION_ID_LENGTH);
-            clientCoapConfig.set(DtlsConfig.DTLS_RECOMMENDED_CIPHER_SUITES_ONLY, !cli.dtls.supportDeprecatedCiphers);
-            clientCoapConfig.set(DtlsConfig.DTLS_CONNECTION_ID_LENGTH, cli.dtls.cid);
-            clientCoapConfig.set(BLOCKWISE_STRICT_BLOCK2_OPTION, true);
-            clientCoapConfig.set(BLOCKWISE_ENTITY_TOO_LARGE_AUTO_FAILOVER, true);
-            clientCoapConfig.set(BLOCKWISE_STATUS_LIFETIME, DEFAULT_BLOCKWISE_STATUS_LIFETIME_IN_SECONDS, TimeUnit.SECONDS);
-            clientCoapConfig.set(MAX_RESOURCE_BODY_SIZE, 256 * 1024 * 1024);
-            clientCoapConfig.set(RESPONSE_MATCHING, CoapConfig.MatcherMode.RELAXED);
-            clientCoapConfig.set(PREFERRED_BLOCK_SIZE, 1024);
-            clientCoapConfig.set(MAX_MESSAGE_SIZE, 1024);
-            clientCoapConfig.set(MAX_RETRANSMIT, 4);
-        }
-
-        if (cli.dtls.ciphers != null) {
-            clientCoapConfig.set(DtlsConfig.DTLS_CIPHER_SUITES, cli.dtls.ciphers);
-        }
-
-        // Set Californium Configuration
-
-        endpointsBuilder.setConfiguration(clientCoapConfig);
+                createProtocolProviders(cli, shared, queueMode, sessionCache, rebinding));
+        endpointsBuilder.setConfiguration(shared.getCoapConfig());
         endpointsBuilder.setClientAddress(cli.main.localAddress);
+        CaliforniumClientEndpointsProvider californiumEndpointsProvider = endpointsBuilder.build();
 
         // creates EndpointsProvider
         List<LwM2mClientEndpointsProvider> endpointsProvider = new ArrayList<>();
-        endpointsProvider.add(endpointsBuilder.build());
+        endpointsProvider.add(californiumEndpointsProvider);
         if (cli.main.useJavaCoap) {
             endpointsProvider.add(new JavaCoapClientEndpointsProvider());
         }
@@ -271,21 +355,66 @@ public class LwM2MClient {
 
         // Create client
         LeshanClientBuilder builder = new LeshanClientBuilder(
-                new DefaultClientEndpointNameProvider(cli.main.endpoint, cli.main.endpointNameMode).getEndpointName());
+                new DefaultClientEndpointNameProvider(endpoint, cli.main.endpointNameMode).getEndpointName());
         builder.setObjects(enablers);
         builder.setEndpointsProviders(
                 endpointsProvider.toArray(new LwM2mClientEndpointsProvider[endpointsProvider.size()]));
-        builder.setDataSenders(new ManualDataSender());
+        List<DataSender> dataSenders = new ArrayList<>();
+        dataSenders.add(new ManualDataSender());
+        long sendTimeout = shared.getCoapConfig().get(CoapConfig.EXCHANGE_LIFETIME, TimeUnit.MILLISECONDS);
+        TimeSeriesDataSender timeSeriesSender = null;
+        if (cli.main.sendPaths != null && !cli.main.sendPaths.isEmpty()) {
+            timeSeriesSender = new TimeSeriesDataSender(cli.main.sendPaths,
+                    TimeUnit.SECONDS.toMillis(cli.main.sendSamplePeriodInSec), cli.main.sendBatchSize,
+                    TimeUnit.SECONDS.toMillis(cli.main.sendMaxAgeInSec), cli.main.sendContentFormat, sendTimeout,
+                    scheduler, shared.getMetrics());
+            dataSenders.add(timeSeriesSender);
+        }
+        // values produced while offline are kept in a journal file of each client
+        OfflineJournalSender journalSender = null;
+        if (cli.main.offlineJournalKb > 0) {
+            Path journalFile = Paths.get(cli.main.offlineJournalFolder, Utils.toFileName(endpoint) + ".journal");
+            journalSender = new OfflineJournalSender(TelemetryJournal.open(journalFile, cli.main.offlineJournalKb * 1024),
+                    Set.of(OBJECT_ID_TEMPERATURE_SENSOR, LOCATION), shared.getEncoder(), shared.getDecoder(),
+                    repository.getLwM2mModel(), cli.main.sendContentFormat, sendTimeout, shared.getMetrics());
+            dataSenders.add(journalSender);
+        }
+        builder.setDataSenders(dataSenders.toArray(new DataSender[0]));
         if (cli.identity.isx509())
             builder.setTrustStore(cli.identity.getX509().trustStore);
         builder.setRegistrationEngineFactory(engineFactory);
-        if (cli.main.supportOldFormat) {
-            builder.setDecoder(new DefaultLwM2mDecoder(true));
-            builder.setEncoder(new DefaultLwM2mEncoder(true));
-        }
+        builder.setDecoder(shared.getDecoder());
+        builder.setEncoder(shared.getEncoder());
+        builder.setSharedExecutor(shared.getExecutor());
         builder.setAdditionalAttributes(cli.main.additionalAttributes);
         builder.setBootstrapAdditionalAttributes(cli.main.bsAdditionalAttributes);
         final LeshanClient client = builder.build();
+        client.addObserver(new RegistrationMetricsObserver(shared.getMetrics()));
+        if (timeSeriesSender != null) {
+            timeSeriesSender.setServers(() -> client.getRegisteredServers().values());
+        }
+        if (queueMode != null) {
+            client.addObserver(new LwM2mClientObserverAdapter() {
+                @Override
+                public void onRegistrationSuccess(LwM2mServer server, RegisterRequest request,
+                        String registrationID) {
+                    // again after a reboot or a new registration
+                    queueMode.start();
+                }
+
+                @Override
+                public void onDeregistrationStarted(LwM2mServer server, DeregisterRequest request) {
+                    queueMode.stop();
+                }
+            });
+        }
+        if (journalSender != null) {
+            client.addObserver(journalSender);
+            client.getObjectTree().addListener(journalSender.getObjectsListener());
+        }
+        // CoAP server is created by the client, let it use the executors shared by the fleet
+        californiumEndpointsProvider.getCoapServer().setExecutors(shared.getCoapMainExecutor(),
+                shared.getCoapSecondaryExecutor(), true);
 
         // Handle Factory Bootstrap option
         if (cli.main.factoryBootstrap != null) {
@@ -331,11 +460,133 @@ public class LwM2MClient {
         return client;
     }
 
-    private Security setSecurityBootstrap(TBSectionsCliMain cli, Integer oscoreObjectInstanceId, String url)  throws Exception {
+    private ClientProtocolProvider[] createProtocolProviders(TBSectionsCliMain cli, LwM2MClientSharedResources shared,
+            QueueModeController queueMode, DtlsSessionCache sessionCache, NatRebindingSimulator rebinding) {
+        // Define Custom CoAPS protocol provider
+        CoapsClientProtocolProvider customCoapsProtocolProvider = new CoapsClientProtocolProvider() {
+            @Override
+            public CaliforniumClientEndpointFactory createDefaultEndpointFactory() {
+                return new CoapsClientEndpointFactory() {
+
+                    @Override
+                    protected DtlsConnectorConfig.Builder createRootDtlsConnectorConfigBuilder(
+                            Configuration configuration) {
+                        DtlsConnectorConfig.Builder builder = super.createRootDtlsConnectorConfigBuilder(configuration);
+
+                        // Add DTLS Session lifecycle logger, handshakes recorded in metrics
+                        builder.setSessionListener(new DtlsSessionLogger(
+                                shared != null ? shared.getMetrics() : ClientMetrics.getDefault()));
+
+                        // Add MDC for connection logs
+                        if (cli.helpsOptions.getVerboseLevel() > 0) {
+                            builder.setConnectionListener(new PrincipalMdcConnectionListener());
+                        }
+                        MaxFragmentLengthExtension.Length length = fromLength(1024);
+                        builder.set(DTLS_MAX_FRAGMENT_LENGTH, length);
+                        builder.set(DTLS_MAX_TRANSMISSION_UNIT, 1024);
+                        if (sessionCache != null) {
+                            builder.setSerializationLabel(DtlsSessionCache.LABEL);
+                        }
+                        return builder;
+                    };
+
+                    @Override
+                    public CoapEndpoint createCoapEndpoint(InetAddress clientAddress, Configuration coapConfig,
+                            ServerInfo serverInfo, boolean clientInitiatedOnly, List<Certificate> trustStore,
+                            ClientEndpointToolbox toolbox) {
+                        return addInterceptors(super.createCoapEndpoint(clientAddress, coapConfig, serverInfo,
+                                clientInitiatedOnly, trustStore, toolbox), shared, queueMode);
+                    }
+
+                    @Override
+                    protected Connector createSecuredConnector(DtlsConnectorConfig dtlsConfig) {
+                        Connector connector = sessionCache != null || rebinding != null
+                                ? new ClientDtlsConnector(dtlsConfig, sessionCache, rebinding)
+                                : super.createSecuredConnector(dtlsConfig);
+                        // Use DTLS worker threads shared by the fleet
+                        if (shared != null && connector instanceof DTLSConnector) {
+                            ((DTLSConnector) connector).setExecutor(shared.getDtlsExecutor());
+                        }
+                        return connector;
+                    }
+                };
+            }
+        };
+
+        // Create client protocol Provider
+        List<ClientProtocolProvider> protocolProvider = new ArrayList<>();
+        if (!cli.main.useJavaCoap) {
+            protocolProvider.add(new CoapOscoreProtocolProvider() {
+                @Override
+                public CaliforniumClientEndpointFactory createDefaultEndpointFactory() {
+                    return new CoapOscoreClientEndpointFactory() {
+                        @Override
+                        public CoapEndpoint createCoapEndpoint(InetAddress clientAddress, Configuration coapConfig,
+                                ServerInfo serverInfo, boolean clientInitiatedOnly, List<Certificate> trustStore,
+                                ClientEndpointToolbox toolbox) {
+                            return addInterceptors(super.createCoapEndpoint(clientAddress, coapConfig, serverInfo,
+                                    clientInitiatedOnly, trustStore, toolbox), shared, queueMode);
+                        }
+                    };
+                }
+            });
+        }
+        protocolProvider.add(customCoapsProtocolProvider);
+        return protocolProvider.toArray(new ClientProtocolProvider[protocolProvider.size()]);
+    }
+
+    private static CoapEndpoint addInterceptors(CoapEndpoint endpoint, LwM2MClientSharedResources shared,
+            QueueModeController queueMode) {
+        if (shared != null) {
+            endpoint.addInterceptor(new CoapMetricsInterceptor(shared.getMetrics()));
+        }
+        if (queueMode != null) {
+            endpoint.addInterceptor(queueMode);
+        }
+        return endpoint;
+    }
+
+    /**
+     * DTLS credentials of the client for <code>coaps://</code> package URIs, null without DTLS identity.
+     */
+    private Consumer<DtlsConnectorConfig.Builder> otaDtlsIdentity(TBSectionsCliMain cli, int index) {
+        if (cli.identity.isPSK()) {
+            String identity = new String(pskIdentity(cli, index));
+            byte[] key = cli.identity.getPsk().sharekey.getBytes();
+            return builder -> builder.setAdvancedPskStore(new AdvancedSinglePskStore(identity, key));
+        } else if (cli.identity.isRPK()) {
+            TBSectionsCliDtlsIdentity.RpkSection rpk = cli.identity.getRPK();
+            return builder -> builder
+                    .setCertificateIdentityProvider(new SingleCertificateProvider(rpk.cprik, rpk.cpubk))
+                    .setAdvancedCertificateVerifier(StaticNewAdvancedCertificateVerifier.builder()
+                            .setTrustedRPKs(new RawPublicKeyIdentity(rpk.spubk)).build());
+        } else if (cli.identity.isx509()) {
+            TBSectionsCliDtlsIdentity.X509Section x509 = cli.identity.getX509();
+            Certificate[] trusted = x509.trustStore.isEmpty() ? new Certificate[] { x509.scert }
+                    : x509.trustStore.toArray(new Certificate[0]);
+            return builder -> builder
+                    .setCertificateIdentityProvider(new SingleCertificateProvider(x509.cprik,
+                            new Certificate[] { x509.ccert }, CertificateType.X_509))
+                    .setAdvancedCertificateVerifier(StaticNewAdvancedCertificateVerifier.builder()
+                            .setTrustedCertificates(trusted).build());
+        }
+        return null;
+    }
+
+    private byte[] pskIdentity(TBSectionsCliMain cli, int index) {
+        // a fleet may use one PSK identity by client
+        String identity = cli.identity.getPsk().identity;
+        if (EndpointNameTemplate.hasPlaceholder(identity)) {
+            identity = new EndpointNameTemplate(identity).format(index);
+        }
+        return identity.getBytes();
+    }
+
+    private Security setSecurityBootstrap(TBSectionsCliMain cli, Integer oscoreObjectInstanceId, String url, int index)  throws Exception {
         Security securityBs;
         if (cli.identity.isPSK()) {
             securityBs = pskBootstrap(url,
-                    cli.identity.getPsk().identity.getBytes(), cli.identity.getPsk().sharekey.getBytes());
+                    pskIdentity(cli, index), cli.identity.getPsk().sharekey.getBytes());
         } else if (cli.identity.isRPK()) {
             securityBs = rpkBootstrap(url, cli.identity.getRPK().cpubk.getEncoded(),
                     cli.identity.getRPK().cprik.getEncoded(), cli.identity.getRPK().spubk.getEncoded());
@@ -353,11 +604,11 @@ public class LwM2MClient {
         return securityBs;
     }
 
-    private Security setSecurityLwm2m(TBSectionsCliMain cli, Integer oscoreObjectInstanceId, int shortServerId)  throws Exception {
+    private Security setSecurityLwm2m(TBSectionsCliMain cli, Integer oscoreObjectInstanceId, int shortServerId, int index)  throws Exception {
         Security securityLwm2m;
         if (cli.identity.isPSK()) {
             securityLwm2m = psk(cli.main.url, shortServerId,
-                    cli.identity.getPsk().identity.getBytes(), cli.identity.getPsk().sharekey.getBytes());
+                    pskIdentity(cli, index), cli.identity.getPsk().sharekey.getBytes());
         } else if (cli.identity.isRPK()) {
             securityLwm2m = rpk(cli.main.url, shortServerId, cli.identity.getRPK().cpubk.getEncoded(),
                     cli.identity.getRPK().cprik.getEncoded(), cli.identity.getRPK().spubk.getEncoded());
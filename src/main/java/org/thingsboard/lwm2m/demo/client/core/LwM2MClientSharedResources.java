@@ -0,0 +1,109 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client.core;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.californium.core.config.CoapConfig;
+import org.eclipse.californium.elements.config.Configuration;
+import org.eclipse.californium.elements.util.ExecutorsUtil;
+import org.eclipse.californium.elements.util.NamedThreadFactory;
+import org.eclipse.californium.scandium.config.DtlsConfig;
+import org.eclipse.leshan.core.model.LwM2mModelRepository;
+import org.eclipse.leshan.core.node.codec.DefaultLwM2mDecoder;
+import org.eclipse.leshan.core.node.codec.DefaultLwM2mEncoder;
+import org.eclipse.leshan.core.node.codec.LwM2mDecoder;
+import org.eclipse.leshan.core.node.codec.LwM2mEncoder;
+import org.thingsboard.lwm2m.demo.client.metrics.ClientMetrics;
+import org.thingsboard.lwm2m.demo.client.metrics.NatRebindingStats;
+import org.thingsboard.lwm2m.demo.client.metrics.OtaLoopStats;
+import org.thingsboard.lwm2m.demo.client.metrics.QueueModeStats;
+import org.thingsboard.lwm2m.demo.client.ota.HttpPackageDownloader;
+import org.thingsboard.lwm2m.demo.client.ota.OtaBlobStore;
+import org.thingsboard.lwm2m.demo.client.scheduler.HashedWheelScheduler;
+
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Everything which does not need to be duplicated for each simulated client of a fleet: object model, encoder/decoder,
+ * Californium configuration, executors, the scheduler of instance enablers, latency metrics, the HTTP downloader and
+ * the store of OTA packages.
+ * <p>
+ * The owner of these resources is responsible to call {@link #destroy()} once all clients are destroyed.
+ */
+@Slf4j
+@Getter
+public class LwM2MClientSharedResources {
+
+    private final LwM2mModelRepository repository;
+    private final LwM2mEncoder encoder;
+    private final LwM2mDecoder decoder;
+    private final Configuration coapConfig;
+
+    // used by Leshan registration engines
+    private final ScheduledExecutorService executor;
+    // used by Californium CoAP stacks
+    private final ScheduledExecutorService coapMainExecutor;
+    private final ScheduledExecutorService coapSecondaryExecutor;
+    // used by Scandium DTLS connectors
+    private final ExecutorService dtlsExecutor;
+    // used by instance enablers for periodic notifications and delayed actions
+    private final HashedWheelScheduler scheduler;
+    // latencies of all clients
+    private final ClientMetrics metrics = new ClientMetrics();
+    // update cycles of the OTA loop of all clients
+    private final OtaLoopStats otaLoopStats = new OtaLoopStats();
+    // power states of all clients in queue mode
+    private final QueueModeStats queueModeStats = new QueueModeStats();
+    // NAT rebindings of all clients
+    private final NatRebindingStats natRebindingStats = new NatRebindingStats();
+    // limits the number of HTTP package downloads running at the same time
+    private final HttpPackageDownloader httpDownloader;
+    // OTA packages stored once for all clients
+    private final OtaBlobStore otaBlobStore;
+
+    public LwM2MClientSharedResources(LwM2mModelRepository repository, boolean supportOldFormat,
+            Configuration coapConfig, int threads, int schedulerWorkers, int otaHttpConcurrency, Path otaBlobsFolder) {
+        this.repository = repository;
+        this.encoder = new DefaultLwM2mEncoder(supportOldFormat);
+        this.decoder = new DefaultLwM2mDecoder(supportOldFormat);
+        this.coapConfig = coapConfig;
+        this.executor = ExecutorsUtil.newScheduledThreadPool(threads, new NamedThreadFactory("LwM2M Client#"));
+        this.coapMainExecutor = ExecutorsUtil.newScheduledThreadPool(coapConfig.get(CoapConfig.PROTOCOL_STAGE_THREAD_COUNT),
+                new NamedThreadFactory("CoapServer(main)#"));
+        this.coapSecondaryExecutor = ExecutorsUtil.newDefaultSecondaryScheduler("CoapServer(secondary)#");
+        this.dtlsExecutor = ExecutorsUtil.newFixedThreadPool(coapConfig.get(DtlsConfig.DTLS_CONNECTOR_THREAD_COUNT),
+                new NamedThreadFactory("DTLS-Worker-", NamedThreadFactory.SCANDIUM_THREAD_GROUP));
+        this.scheduler = new HashedWheelScheduler("LwM2M-Objects", schedulerWorkers);
+        this.httpDownloader = new HttpPackageDownloader(otaHttpConcurrency);
+        this.otaBlobStore = new OtaBlobStore(otaBlobsFolder);
+        metrics.addReportSection(otaLoopStats::report);
+        metrics.addReportSection(queueModeStats::report);
+        metrics.addReportSection(natRebindingStats::report);
+    }
+
+    public void destroy() {
+        log.debug("Destroy resources shared by clients");
+        metrics.stopPeriodicReport();
+        metrics.report();
+        scheduler.destroy();
+        httpDownloader.destroy();
+        otaBlobStore.destroy();
+        ExecutorsUtil.shutdownExecutorGracefully(2000, executor, coapMainExecutor, coapSecondaryExecutor, dtlsExecutor);
+    }
+}
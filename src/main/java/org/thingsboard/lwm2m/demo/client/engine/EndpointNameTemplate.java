@@ -0,0 +1,78 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client.engine;
+
+import org.eclipse.leshan.core.util.Validate;
+
+import java.util.IllegalFormatException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Builds the endpoint name of each client of a fleet from a template.
+ * <p>
+ * The template may contain one or more <code>{index}</code> placeholders, optionally with a
+ * {@link String#format(String, Object...)} integer conversion, e.g. <code>sim-{index:06d}</code> gives
+ * <code>sim-000000</code>, <code>sim-000001</code>, ...
+ */
+public class EndpointNameTemplate {
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{index(?::([^}]+))?}");
+
+    private final String template;
+
+    public EndpointNameTemplate(String template) {
+        Validate.notEmpty(template);
+        this.template = template;
+        // fail fast on invalid conversion
+        format(0);
+    }
+
+    public static boolean hasPlaceholder(String value) {
+        return value != null && PLACEHOLDER.matcher(value).find();
+    }
+
+    public boolean hasPlaceholder() {
+        return hasPlaceholder(template);
+    }
+
+    public String format(int index) {
+        Matcher matcher = PLACEHOLDER.matcher(template);
+        StringBuilder result = new StringBuilder();
+        while (matcher.find()) {
+            String conversion = matcher.group(1);
+            String value;
+            if (conversion == null) {
+                value = Integer.toString(index);
+            } else {
+                try {
+                    value = String.format("%" + conversion, index);
+                } catch (IllegalFormatException e) {
+                    throw new IllegalArgumentException(
+                            String.format("Invalid index format '%s' in endpoint name template %s", conversion, template), e);
+                }
+            }
+            matcher.appendReplacement(result, Matcher.quoteReplacement(value));
+        }
+        matcher.appendTail(result);
+        return result.toString();
+    }
+
+    @Override
+    public String toString() {
+        return template;
+    }
+}
@@ -0,0 +1,228 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client.engine;
+
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.californium.scandium.dtls.ContentType;
+import org.eclipse.californium.scandium.dtls.DTLSContext;
+import org.eclipse.californium.scandium.dtls.Handshaker;
+import org.eclipse.californium.scandium.dtls.Record;
+import org.eclipse.californium.scandium.dtls.SessionAdapter;
+import org.thingsboard.lwm2m.demo.client.ClientDtlsConnector;
+import org.thingsboard.lwm2m.demo.client.metrics.ClientMetrics;
+import org.thingsboard.lwm2m.demo.client.metrics.NatRebindingStats;
+import org.thingsboard.lwm2m.demo.client.scheduler.HashedWheelScheduler;
+import org.thingsboard.lwm2m.demo.client.scheduler.ScheduledTask;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodic NAT rebinding of one client, as a carrier-grade NAT forgetting the mapping of an idle client and assigning
+ * it another public port or address: the socket of its {@link ClientDtlsConnector} is bound again to a new ephemeral
+ * port, of the next local address of the list if set (e.g. aliases of <code>--local-address</code>).
+ * <p>
+ * A rebinding is recovered when application data is received from the server again, which happens only once the
+ * client sent something from its new address. Without connection ID the server drops these records, so the client
+ * recovers only after its request times out and a new handshake is done; with connection ID the server accepts them
+ * and answers to the new address.
+ * <p>
+ * Recorded in {@link ClientMetrics}:
+ * <ul>
+ * <li><code>nat.recovery.cid</code> / <code>nat.recovery.handshake</code>: from the first datagram sent after the
+ * rebinding to the recovery, without or with a handshake in between,</li>
+ * <li><code>nat.rebind</code>: count of rebindings,</li>
+ * <li><code>nat.unrecovered</code>: count of rebindings not recovered before the next one.</li>
+ * </ul>
+ * Bytes exchanged until recovery are summed in {@link NatRebindingStats}.
+ */
+@Slf4j
+public class NatRebindingSimulator extends SessionAdapter {
+
+    public static final String REBIND = "nat.rebind";
+    public static final String RECOVERY_CID = "nat.recovery.cid";
+    public static final String RECOVERY_HANDSHAKE = "nat.recovery.handshake";
+    public static final String UNRECOVERED = "nat.unrecovered";
+
+    private final long periodMs;
+    private final List<InetAddress> addresses;
+    private final HashedWheelScheduler scheduler;
+    private final ClientMetrics metrics;
+    private final NatRebindingStats stats;
+    // guarded by this
+    private ClientDtlsConnector connector;
+    private ScheduledTask task;
+    private int nextAddress;
+    private boolean handshaking;
+    private boolean pending;
+    private boolean handshake;
+    private long firstSentNanos;
+    private long bytes;
+    private long handshakeBytes;
+
+    /**
+     * @param addresses local addresses used in turn, empty to keep the current one and change only the port
+     */
+    public NatRebindingSimulator(long periodMs, List<InetAddress> addresses, HashedWheelScheduler scheduler,
+            ClientMetrics metrics, NatRebindingStats stats) {
+        this.periodMs = periodMs;
+        this.addresses = List.copyOf(addresses);
+        this.scheduler = scheduler;
+        this.metrics = metrics;
+        this.stats = stats;
+    }
+
+    /**
+     * Starts rebinding <code>connector</code>, once started.
+     */
+    public synchronized void attach(ClientDtlsConnector connector) {
+        this.connector = connector;
+        if (task == null) {
+            // clients of a fleet are not rebound all at once
+            long delay = ThreadLocalRandom.current().nextLong(periodMs) + 1;
+            task = scheduler.schedulePeriodic(this::rebind, delay, periodMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops rebinding <code>connector</code>, before it stops.
+     */
+    public synchronized void detach(ClientDtlsConnector connector) {
+        if (this.connector != connector) {
+            return;
+        }
+        this.connector = null;
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        pending = false;
+        handshaking = false;
+    }
+
+    @Override
+    public synchronized void handshakeStarted(Handshaker handshaker) {
+        handshaking = true;
+        if (pending) {
+            handshake = true;
+        }
+    }
+
+    @Override
+    public synchronized void contextEstablished(Handshaker handshaker, DTLSContext establishedContext) {
+        handshaking = false;
+    }
+
+    @Override
+    public synchronized void handshakeFailed(Handshaker handshaker, Throwable error) {
+        handshaking = false;
+    }
+
+    /**
+     * A datagram was sent by the connector.
+     */
+    public synchronized void sent(int length) {
+        if (pending) {
+            if (firstSentNanos == 0) {
+                firstSentNanos = System.nanoTime();
+            }
+            bytes += length;
+        }
+    }
+
+    /**
+     * A flight of handshake datagrams is sent by the connector, each of them is also passed to {@link #sent(int)}.
+     */
+    public synchronized void handshakeSent(int length) {
+        if (pending) {
+            handshakeBytes += length;
+        }
+    }
+
+    /**
+     * Records were received by the connector.
+     */
+    public synchronized void received(List<Record> records) {
+        if (!pending) {
+            return;
+        }
+        for (Record record : records) {
+            int size = record.size();
+            bytes += size;
+            ContentType type = record.getType();
+            if (handshaking || type == ContentType.HANDSHAKE || type == ContentType.CHANGE_CIPHER_SPEC) {
+                handshakeBytes += size;
+            } else if ((type == ContentType.APPLICATION_DATA || type == ContentType.TLS12_CID)
+                    && firstSentNanos != 0) {
+                recovered();
+                return;
+            }
+        }
+    }
+
+    private void recovered() {
+        long latency = System.nanoTime() - firstSentNanos;
+        metrics.histogram(handshake ? RECOVERY_HANDSHAKE : RECOVERY_CID).record(latency, TimeUnit.NANOSECONDS);
+        stats.recovered(handshake, bytes, handshakeBytes);
+        log.debug("NAT rebinding recovered {} in {} ms, {} bytes", handshake ? "with a new handshake" : "over CID",
+                TimeUnit.NANOSECONDS.toMillis(latency), bytes);
+        pending = false;
+    }
+
+    private void rebind() {
+        ClientDtlsConnector current;
+        InetSocketAddress bindAddress;
+        synchronized (this) {
+            current = connector;
+            if (current == null) {
+                return;
+            }
+            if (pending) {
+                metrics.increment(UNRECOVERED);
+                stats.unrecovered();
+            }
+            InetAddress address = addresses.isEmpty() ? current.getAddress().getAddress()
+                    : addresses.get(nextAddress++ % addresses.size());
+            bindAddress = new InetSocketAddress(address, 0);
+            pending = true;
+            handshake = handshaking;
+            firstSentNanos = 0;
+            bytes = 0;
+            handshakeBytes = 0;
+        }
+        // not holding the lock, the connector waits for its receiver threads which report received records
+        try {
+            InetSocketAddress previous = current.getAddress();
+            InetSocketAddress rebound = current.rebind(bindAddress);
+            if (rebound == null) {
+                // stopped meanwhile
+                return;
+            }
+            metrics.increment(REBIND);
+            stats.rebound();
+            log.info("NAT rebinding {} -> {}", previous, rebound);
+        } catch (IOException e) {
+            log.warn("NAT rebinding to {} failed: {}", bindAddress, e.getMessage());
+            synchronized (this) {
+                pending = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,232 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client.engine;
+
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.coap.Response;
+import org.eclipse.californium.core.network.interceptors.MessageInterceptorAdapter;
+import org.thingsboard.lwm2m.demo.client.metrics.ClientMetrics;
+import org.thingsboard.lwm2m.demo.client.metrics.QueueModeStats;
+import org.thingsboard.lwm2m.demo.client.metrics.QueueModeStats.PowerState;
+import org.thingsboard.lwm2m.demo.client.scheduler.HashedWheelScheduler;
+import org.thingsboard.lwm2m.demo.client.scheduler.ScheduledTask;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sleeping behavior of one client in queue mode, added as interceptor of its CoAP endpoints.
+ * <p>
+ * Any message sent or received keeps the client awake for the awake window of {@link QueueModeTimers}. Then it is
+ * idle during the active time, reachable only in the paging time windows of eDRX if set, and finally in power saving
+ * mode (PSM) until its next uplink: registration update, Send or notification. Requests of the server received while
+ * the client is not reachable are dropped, as a sleeping device would not get them, so a server which does not queue
+ * them sees them time out.
+ * <p>
+ * Recorded in {@link ClientMetrics}:
+ * <ul>
+ * <li><code>queue.delivery</code>: from the uplink waking the client up to each request of the server received in
+ * the following awake window, i.e. the delivery latency of requests queued by the server,</li>
+ * <li><code>queue.wait</code>: from the first request dropped while not reachable to the next request received,</li>
+ * <li><code>queue.sleep</code>: from the end of the awake window to the next uplink,</li>
+ * <li><code>queue.unreachable</code>: count of dropped requests.</li>
+ * </ul>
+ * Time spent in each power state is summed in {@link QueueModeStats}.
+ */
+@Slf4j
+public class QueueModeController extends MessageInterceptorAdapter {
+
+    public static final String DELIVERY = "queue.delivery";
+    public static final String WAIT = "queue.wait";
+    public static final String SLEEP = "queue.sleep";
+    public static final String UNREACHABLE = "queue.unreachable";
+
+    private enum State {
+        AWAKE, IDLE, PSM
+    }
+
+    private final QueueModeTimers timers;
+    private final HashedWheelScheduler scheduler;
+    private final ClientMetrics metrics;
+    private final QueueModeStats stats;
+    // guarded by this
+    private State state = State.AWAKE;
+    private long stateSinceNanos = System.nanoTime();
+    private long sleepStartNanos;
+    private long wokeNanos;
+    private long firstUnreachableNanos;
+    private ScheduledTask timer;
+    private long sequence;
+    private boolean stopped;
+
+    public QueueModeController(QueueModeTimers timers, HashedWheelScheduler scheduler, ClientMetrics metrics,
+            QueueModeStats stats) {
+        this.timers = timers;
+        this.scheduler = scheduler;
+        this.metrics = metrics;
+        this.stats = stats;
+    }
+
+    @Override
+    public void sendRequest(Request request) {
+        uplink();
+    }
+
+    @Override
+    public void sendResponse(Response response) {
+        uplink();
+    }
+
+    @Override
+    public synchronized void receiveRequest(Request request) {
+        if (stopped) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (!isReachable(now)) {
+            request.setCanceled(true);
+            metrics.increment(UNREACHABLE);
+            if (firstUnreachableNanos == 0) {
+                firstUnreachableNanos = now;
+            }
+            log.debug("{} {} dropped, client in {}", request.getCode(), request.getOptions().getUriPathString(),
+                    state);
+            return;
+        }
+        if (wokeNanos != 0) {
+            metrics.histogram(DELIVERY).record(now - wokeNanos, TimeUnit.NANOSECONDS);
+        }
+        if (firstUnreachableNanos != 0) {
+            metrics.histogram(WAIT).record(now - firstUnreachableNanos, TimeUnit.NANOSECONDS);
+            firstUnreachableNanos = 0;
+        }
+        enter(State.AWAKE, now);
+    }
+
+    /**
+     * Starts again the timers after {@link #stop()}, e.g. on registration after a reboot: the client is awake.
+     */
+    public synchronized void start() {
+        if (!stopped) {
+            return;
+        }
+        stopped = false;
+        long now = System.nanoTime();
+        state = State.AWAKE;
+        stateSinceNanos = now;
+        wokeNanos = 0;
+        firstUnreachableNanos = 0;
+        enter(State.AWAKE, now);
+    }
+
+    /**
+     * Stops the timers, e.g. on deregistration. The client is then always reachable until {@link #start()}.
+     */
+    public synchronized void stop() {
+        if (stopped) {
+            return;
+        }
+        account(System.nanoTime());
+        cancelTimer();
+        stopped = true;
+    }
+
+    private synchronized void uplink() {
+        if (stopped) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (state != State.AWAKE) {
+            metrics.histogram(SLEEP).record(now - sleepStartNanos, TimeUnit.NANOSECONDS);
+            wokeNanos = now;
+        }
+        enter(State.AWAKE, now);
+    }
+
+    private boolean isReachable(long now) {
+        return switch (state) {
+            case AWAKE -> true;
+            case IDLE -> timers.edrx() == 0
+                    || TimeUnit.NANOSECONDS.toMillis(now - stateSinceNanos) % timers.edrx() < timers.ptw();
+            case PSM -> false;
+        };
+    }
+
+    private void enter(State newState, long now) {
+        account(now);
+        state = newState;
+        stateSinceNanos = now;
+        cancelTimer();
+        long current = sequence;
+        switch (newState) {
+            case AWAKE -> timer = scheduler.schedule(() -> timerExpired(current), timers.awake(),
+                    TimeUnit.MILLISECONDS);
+            case IDLE -> timer = scheduler.schedule(() -> timerExpired(current), timers.active(),
+                    TimeUnit.MILLISECONDS);
+            case PSM -> {
+                // until the next uplink
+            }
+        }
+    }
+
+    private synchronized void timerExpired(long current) {
+        if (current != sequence || stopped) {
+            // replaced by a message received or sent after this task was handed to a worker
+            return;
+        }
+        timer = null;
+        long now = System.nanoTime();
+        if (state == State.AWAKE) {
+            sleepStartNanos = now;
+            wokeNanos = 0;
+            enter(timers.active() > 0 ? State.IDLE : State.PSM, now);
+        } else if (state == State.IDLE) {
+            enter(State.PSM, now);
+        }
+    }
+
+    private void cancelTimer() {
+        sequence++;
+        if (timer != null) {
+            timer.cancel();
+            timer = null;
+        }
+    }
+
+    /**
+     * Adds the time spent in the current state to {@link QueueModeStats}, idle time split between paging time windows
+     * and eDRX sleep.
+     */
+    private void account(long now) {
+        long elapsed = now - stateSinceNanos;
+        stateSinceNanos = now;
+        switch (state) {
+            case AWAKE -> stats.add(PowerState.CONNECTED, elapsed);
+            case IDLE -> {
+                if (timers.edrx() == 0) {
+                    stats.add(PowerState.PAGING, elapsed);
+                } else {
+                    long cycle = TimeUnit.MILLISECONDS.toNanos(timers.edrx());
+                    long ptw = TimeUnit.MILLISECONDS.toNanos(timers.ptw());
+                    long paging = elapsed / cycle * ptw + Math.min(elapsed % cycle, ptw);
+                    stats.add(PowerState.PAGING, paging);
+                    stats.add(PowerState.EDRX_SLEEP, elapsed - paging);
+                }
+            }
+            case PSM -> stats.add(PowerState.PSM, elapsed);
+        }
+    }
+}
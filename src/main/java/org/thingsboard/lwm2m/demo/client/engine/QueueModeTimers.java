@@ -0,0 +1,76 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client.engine;
+
+/**
+ * Timers in milliseconds of a client in queue mode, modeled on LTE-M / NB-IoT power saving.
+ *
+ * @param awake  awake window after the last message sent or received (RRC inactivity), the client is reachable
+ * @param active idle time before power saving mode (T3324 active timer), the client is reachable during paging
+ *               windows only if <code>edrx</code> is set, always otherwise. <code>0</code> goes to PSM at the end of
+ *               the awake window
+ * @param edrx   eDRX cycle during the active time, <code>0</code> for none
+ * @param ptw    paging time window at the start of each eDRX cycle
+ */
+public record QueueModeTimers(long awake, long active, long edrx, long ptw) {
+
+    /**
+     * Awake window of 93 s (CoAP MAX_TRANSMIT_WAIT, the LwM2M default) then PSM until the next uplink.
+     */
+    public static final QueueModeTimers DEFAULT = new QueueModeTimers(93_000, 0, 0, 0);
+
+    public QueueModeTimers {
+        if (awake < 0 || active < 0 || edrx < 0 || ptw < 0) {
+            throw new IllegalArgumentException("Queue mode timers must be positive or 0");
+        }
+        if (edrx > 0 && (ptw == 0 || ptw > edrx)) {
+            throw new IllegalArgumentException("Paging time window must be set and not longer than the eDRX cycle");
+        }
+    }
+
+    /**
+     * @param value comma separated <code>timer=milliseconds</code>, e.g. <code>awake=10000,active=60000,edrx=20480,
+     *              ptw=2560</code>; timers which are not set keep their {@link #DEFAULT} value
+     */
+    public static QueueModeTimers parse(String value) {
+        long awake = DEFAULT.awake;
+        long active = DEFAULT.active;
+        long edrx = DEFAULT.edrx;
+        long ptw = DEFAULT.ptw;
+        for (String entry : value.split(",")) {
+            int equal = entry.indexOf('=');
+            if (equal <= 0) {
+                throw new IllegalArgumentException("Queue mode timer must be set as timer=milliseconds: " + entry);
+            }
+            String timer = entry.substring(0, equal).trim();
+            long ms;
+            try {
+                ms = Long.parseLong(entry.substring(equal + 1).trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid value of " + timer + ": " + entry.substring(equal + 1));
+            }
+            switch (timer) {
+                case "awake" -> awake = ms;
+                case "active" -> active = ms;
+                case "edrx" -> edrx = ms;
+                case "ptw" -> ptw = ms;
+                default -> throw new IllegalArgumentException("Unknown queue mode timer " + timer
+                        + ", expected awake, active, edrx or ptw");
+            }
+        }
+        return new QueueModeTimers(awake, active, edrx, ptw);
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client.engine;
+
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.leshan.client.LeshanClient;
+import org.eclipse.leshan.client.observer.LwM2mClientObserverAdapter;
+import org.eclipse.leshan.client.servers.LwM2mServer;
+import org.eclipse.leshan.core.request.RegisterRequest;
+import org.thingsboard.lwm2m.demo.client.scheduler.HashedWheelScheduler;
+import org.thingsboard.lwm2m.demo.client.scheduler.ScheduledTask;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shifts the phase of the registration updates of one client of a fleet.
+ * <p>
+ * The registration engine sends an update every communication period after the registration, so clients registered
+ * together keep updating together. After each registration, this observer triggers one update after
+ * <code>index / fleetSize * period</code>: the engine then reschedules next updates from this point and the updates of
+ * the fleet are evenly spread over the period. Registrations after a reboot or a lost registration are shifted the
+ * same way, clients rebooted together would update together again otherwise.
+ */
+@Slf4j
+public class RegistrationUpdateSpreader extends LwM2mClientObserverAdapter {
+
+    private final LeshanClient client;
+    private final HashedWheelScheduler scheduler;
+    private final long offsetInMs;
+    // registration whose update is shifted, and the pending shift; guarded by this
+    private String registrationID;
+    private ScheduledTask shiftTask;
+
+    public RegistrationUpdateSpreader(LeshanClient client, HashedWheelScheduler scheduler, int position, int fleetSize,
+            long periodInMs) {
+        this.client = client;
+        this.scheduler = scheduler;
+        this.offsetInMs = fleetSize <= 1 ? 0 : periodInMs * position / fleetSize;
+    }
+
+    /**
+     * Same computation as Leshan registration engine with Californium endpoint: the update is sent before the end of
+     * the lifetime minus the CoAP exchange lifetime, or at the communication period if smaller.
+     */
+    public static long computeUpdatePeriodInMs(long lifetimeInSec, Integer comPeriodInSec, long exchangeLifetimeInMs) {
+        long lifetimeInMs = lifetimeInSec * 1000;
+        long maxPeriod = lifetimeInMs - exchangeLifetimeInMs >= 30000 ? lifetimeInMs - exchangeLifetimeInMs
+                : lifetimeInMs - 29000;
+        return comPeriodInSec != null ? Math.min(comPeriodInSec * 1000L, maxPeriod) : maxPeriod;
+    }
+
+    @Override
+    public synchronized void onRegistrationSuccess(LwM2mServer server, RegisterRequest request,
+            String registrationID) {
+        if (offsetInMs == 0 || registrationID.equals(this.registrationID)) {
+            return;
+        }
+        // a shift still pending belongs to the previous registration
+        if (shiftTask != null) {
+            shiftTask.cancel();
+        }
+        this.registrationID = registrationID;
+        log.debug("Registration update of [{}] shifted by {} ms", request.getEndpointName(), offsetInMs);
+        shiftTask = scheduler.schedule(() -> shift(server, registrationID), offsetInMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void shift(LwM2mServer server, String registrationID) {
+        synchronized (this) {
+            if (!registrationID.equals(this.registrationID)) {
+                return;
+            }
+            shiftTask = null;
+        }
+        client.triggerRegistrationUpdate(server);
+    }
+}
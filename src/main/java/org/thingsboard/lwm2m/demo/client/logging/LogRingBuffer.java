@@ -0,0 +1,203 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Bounded lock-free buffer of log messages waiting for the interactive console or the asynchronous writer.
+ * <p>
+ * Any logging thread can add messages, the console or the writer drains them. Each slot has a sequence number telling
+ * whether it is free for the producer of a given position or filled for the consumer, so producers only contend on one
+ * CAS and never copy the buffer. When the buffer is full, the {@link OverflowPolicy} decides which message is lost or
+ * whether the producer waits; losses and waits are counted. Once {@link #close() closed}, messages are refused and
+ * waiting producers return.
+ */
+public class LogRingBuffer<E> {
+
+    private static final long BLOCK_PARK_NANOS = 50_000;
+
+    public enum OverflowPolicy {
+        /** Keep what is already buffered, the new message is dropped. */
+        DROP_NEWEST,
+        /** Make room for the new message by dropping the oldest buffered one. */
+        DROP_OLDEST,
+        /** Nothing is lost, the producer waits until the consumer makes room. */
+        BLOCK
+    }
+
+    private final int mask;
+    private final AtomicReferenceArray<E> messages;
+    private final AtomicLongArray sequences;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final OverflowPolicy overflowPolicy;
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder blocked = new LongAdder();
+    private volatile boolean closed;
+
+    public LogRingBuffer(int capacity, OverflowPolicy overflowPolicy) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("Capacity must be at least 2: " + capacity);
+        }
+        // power of two, positions are mapped to slots with a mask
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = size - 1;
+        this.messages = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * @return false if the message was dropped, or refused because the buffer is closed
+     */
+    public boolean offer(E message) {
+        if (closed) {
+            return false;
+        }
+        appended.increment();
+        boolean waited = false;
+        while (!tryOffer(message)) {
+            switch (overflowPolicy) {
+                case DROP_NEWEST -> {
+                    dropped.increment();
+                    return false;
+                }
+                case DROP_OLDEST -> {
+                    if (poll() != null) {
+                        dropped.increment();
+                    }
+                }
+                case BLOCK -> {
+                    if (closed) {
+                        // the consumer is gone, nobody will make room
+                        return false;
+                    }
+                    if (!waited) {
+                        blocked.increment();
+                        waited = true;
+                    }
+                    LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                }
+            }
+        }
+        return true;
+    }
+
+    public E poll() {
+        long position = head.get();
+        while (true) {
+            int index = (int) position & mask;
+            long diff = sequences.get(index) - (position + 1);
+            if (diff == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    E message = messages.getAndSet(index, null);
+                    // slot is free for the producer one lap later
+                    sequences.set(index, position + mask + 1);
+                    return message;
+                }
+                position = head.get();
+            } else if (diff < 0) {
+                return null;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+
+    /**
+     * Drains at most one buffer length of messages, so producers faster than the console can not hold it forever.
+     *
+     * @return number of drained messages
+     */
+    public int drain(Consumer<? super E> consumer) {
+        return drain(consumer, capacity());
+    }
+
+    public int drain(Consumer<? super E> consumer, int limit) {
+        int count = 0;
+        E message;
+        while (count < limit && (message = poll()) != null) {
+            consumer.accept(message);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Refuses new messages and releases producers waiting for room. Buffered messages can still be drained.
+     */
+    public void close() {
+        closed = true;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public boolean isEmpty() {
+        return head.get() >= tail.get();
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    public long getAppended() {
+        return appended.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return number of messages which had to wait for room with {@link OverflowPolicy#BLOCK}
+     */
+    public long getBlocked() {
+        return blocked.sum();
+    }
+
+    private boolean tryOffer(E message) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    messages.set(index, message);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (diff < 0) {
+                // slot still holds the message of the previous lap: full
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+}
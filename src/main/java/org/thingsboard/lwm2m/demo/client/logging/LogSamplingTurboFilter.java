@@ -0,0 +1,86 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps one event out of <code>rate</code> for the configured loggers (and their children), e.g. the read and notify
+ * logs written for every server request during load tests. Each logger is sampled on its own. WARN and ERROR events
+ * are never sampled.
+ * <p>
+ * Being a turbo filter, rejected events are dropped before being created or formatted.
+ *
+ * <pre>
+ * &lt;turboFilter class="org.thingsboard.lwm2m.demo.client.logging.LogSamplingTurboFilter"&gt;
+ *     &lt;logger&gt;org.thingsboard.lwm2m.demo.client.util.Utils&lt;/logger&gt;
+ *     &lt;rate&gt;100&lt;/rate&gt;
+ * &lt;/turboFilter&gt;
+ * </pre>
+ */
+public class LogSamplingTurboFilter extends TurboFilter {
+
+    private final List<String> loggers = new CopyOnWriteArrayList<>();
+    private final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+    private int rate = 1;
+
+    public void addLogger(String logger) {
+        loggers.add(logger.trim());
+    }
+
+    public void setRate(int rate) {
+        this.rate = rate;
+    }
+
+    @Override
+    public void start() {
+        if (rate < 1) {
+            addError("Sampling rate must be at least 1: " + rate);
+            return;
+        }
+        super.start();
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        // format is null for isXxxEnabled() checks, only count real events
+        if (rate == 1 || format == null || level.isGreaterOrEqual(Level.WARN) || !isSampled(logger.getName())) {
+            return FilterReply.NEUTRAL;
+        }
+        long count = counters.computeIfAbsent(logger.getName(), name -> new AtomicLong()).getAndIncrement();
+        return count % rate == 0 ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    private boolean isSampled(String name) {
+        for (String prefix : loggers) {
+            if (name.startsWith(prefix)
+                    && (name.length() == prefix.length() || name.charAt(prefix.length()) == '.')) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
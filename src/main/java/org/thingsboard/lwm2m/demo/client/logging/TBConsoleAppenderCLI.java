@@ -22,19 +22,35 @@ import org.eclipse.leshan.core.util.StringUtils;
 import org.jline.reader.LineReader;
 import picocli.CommandLine;
 
-import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 import java.util.regex.Pattern;
 
 public class TBConsoleAppenderCLI extends ConsoleAppender<ILoggingEvent> implements IConsoleAppenderCLI {
 
     private volatile LineReader reader;
     private volatile CommandLine commandLine;
-    private final List<String> bufferedLogs = new CopyOnWriteArrayList<>();
+    // bounded: while the console waits for input, verbose loggers must not grow memory without limit
+    private volatile LogRingBuffer<String> bufferedLogs;
+    private int bufferSize = 8192;
+    private LogRingBuffer.OverflowPolicy overflowPolicy = LogRingBuffer.OverflowPolicy.DROP_OLDEST;
+    private long reportedDropped;
 
+    // headless: logging threads only enqueue events, a single writer encodes and prints them by batch
+    private boolean async = true;
+    private int asyncBufferSize = 8192;
+    private LogRingBuffer.OverflowPolicy backPressure = LogRingBuffer.OverflowPolicy.BLOCK;
+    private int batchSize = 512;
+    private volatile LogRingBuffer<ILoggingEvent> asyncLogs;
+    private volatile Thread asyncWriter;
+    private volatile boolean asyncRunning;
+    // set by the writer before it parks, cleared by the producer which unparks it
+    private volatile boolean writerParked;
+    // guards reportedAsyncDropped and writes of batches, by the writer and by producers after stop
+    private final Object writeLock = new Object();
+    private long reportedAsyncDropped;
 
     private volatile long timeoutMillis = 5000;
     private volatile long lastLogTimestamp = System.currentTimeMillis();
@@ -55,9 +71,110 @@ public class TBConsoleAppenderCLI extends ConsoleAppender<ILoggingEvent> impleme
         this.timeoutMillis = timeoutSeconds * 1000L;
     }
 
+    /**
+     * Max number of messages buffered while the interactive console is active (<code>bufferSize</code> in
+     * logback.xml), rounded up to a power of two.
+     */
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * What is lost when the buffer is full (<code>overflowPolicy</code> in logback.xml): DROP_OLDEST or DROP_NEWEST.
+     * The console only drains on input or timeout, so logging threads are never blocked on it.
+     */
+    public void setOverflowPolicy(String overflowPolicy) {
+        LogRingBuffer.OverflowPolicy policy = LogRingBuffer.OverflowPolicy.valueOf(overflowPolicy.trim().toUpperCase());
+        if (policy == LogRingBuffer.OverflowPolicy.BLOCK) {
+            addWarn("BLOCK is not supported for the interactive console buffer, " + this.overflowPolicy + " is used");
+        } else {
+            this.overflowPolicy = policy;
+        }
+    }
+
+    /**
+     * Outside the interactive console, write logs from a dedicated thread (<code>async</code> in logback.xml,
+     * true by default) instead of the logging thread.
+     */
+    public void setAsync(boolean async) {
+        this.async = async;
+    }
+
+    public void setAsyncBufferSize(int asyncBufferSize) {
+        this.asyncBufferSize = asyncBufferSize;
+    }
+
+    /**
+     * What happens when the asynchronous writer is behind (<code>backPressure</code> in logback.xml): BLOCK (default)
+     * makes logging threads wait, DROP_NEWEST or DROP_OLDEST lose messages and never wait.
+     */
+    public void setBackPressure(String backPressure) {
+        this.backPressure = LogRingBuffer.OverflowPolicy.valueOf(backPressure.trim().toUpperCase());
+    }
+
+    /**
+     * Max number of messages printed by one write of the asynchronous writer.
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getBufferedLogsCount() {
+        LogRingBuffer<String> buffer = bufferedLogs;
+        return buffer == null ? 0 : buffer.getAppended();
+    }
+
+    public long getDroppedLogsCount() {
+        LogRingBuffer<String> buffer = bufferedLogs;
+        LogRingBuffer<ILoggingEvent> asyncBuffer = asyncLogs;
+        return (buffer == null ? 0 : buffer.getDropped()) + (asyncBuffer == null ? 0 : asyncBuffer.getDropped());
+    }
+
+    public long getBlockedLogsCount() {
+        LogRingBuffer<ILoggingEvent> asyncBuffer = asyncLogs;
+        return asyncBuffer == null ? 0 : asyncBuffer.getBlocked();
+    }
+
     @Override
-    public void startScheduled() {
+    public synchronized void start() {
+        if (bufferedLogs == null) {
+            bufferedLogs = new LogRingBuffer<>(bufferSize, overflowPolicy);
+        }
+        if (async && asyncWriter == null) {
+            asyncLogs = new LogRingBuffer<>(asyncBufferSize, backPressure);
+            asyncRunning = true;
+            asyncWriter = new Thread(this::writeLoop, "TBConsoleAppenderCLI-writer");
+            asyncWriter.setDaemon(true);
+            asyncWriter.start();
+        }
         super.start();
+    }
+
+    @Override
+    public void stop() {
+        Thread writer;
+        synchronized (this) {
+            writer = asyncWriter;
+            asyncWriter = null;
+            asyncRunning = false;
+            if (asyncLogs != null) {
+                asyncLogs.close();
+            }
+        }
+        if (writer != null) {
+            LockSupport.unpark(writer);
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        super.stop();
+    }
+
+    @Override
+    public void startScheduled() {
+        start();
         scheduler = Executors.newSingleThreadScheduledExecutor();
         scheduler.scheduleAtFixedRate(() -> {
             try {
@@ -74,19 +191,87 @@ public class TBConsoleAppenderCLI extends ConsoleAppender<ILoggingEvent> impleme
             scheduler.shutdownNow();
             scheduler = null;
         }
-        super.stop();
+        stop();
     }
 
     @Override
     protected void append(ILoggingEvent event) {
-        String message = new String(encoder.encode(event)).trim();
         if (reader != null) {
-            bufferedLogs.add(message);
+            bufferedLogs.offer(format(event));
+        } else if (asyncRunning) {
+            // the writer formats later, on another thread: capture thread name, MDC and arguments now
+            event.prepareForDeferredProcessing();
+            LogRingBuffer<ILoggingEvent> buffer = asyncLogs;
+            if (!buffer.offer(event) && buffer.isClosed()) {
+                // stopped meanwhile
+                System.out.println(format(event));
+            } else if (!asyncRunning) {
+                // stopped after the offer, the writer may have done its last drain already
+                writeRemaining();
+            } else if (writerParked) {
+                writerParked = false;
+                Thread writer = asyncWriter;
+                if (writer != null) {
+                    LockSupport.unpark(writer);
+                }
+            }
         } else {
-            System.out.println(message);
+            System.out.println(format(event));
+        }
+    }
+
+    private String format(ILoggingEvent event) {
+        return new String(encoder.encode(event)).trim();
+    }
+
+    private void writeLoop() {
+        StringBuilder batch = new StringBuilder(batchSize * 128);
+        LogRingBuffer<ILoggingEvent> buffer = asyncLogs;
+        while (asyncRunning) {
+            if (writeBatch(batch) == 0) {
+                writerParked = true;
+                // an event offered before the flag was set is seen here, a later one unparks the writer
+                if (buffer.isEmpty() && asyncRunning) {
+                    LockSupport.park(this);
+                }
+                writerParked = false;
+            }
+        }
+        // what was appended before stop
+        while (writeBatch(batch) > 0) {
+        }
+    }
+
+    private void writeRemaining() {
+        StringBuilder batch = new StringBuilder();
+        while (writeBatch(batch) > 0) {
+        }
+    }
+
+    private int writeBatch(StringBuilder batch) {
+        synchronized (writeLock) {
+            return writeBatchLocked(batch);
         }
     }
 
+    private int writeBatchLocked(StringBuilder batch) {
+        LogRingBuffer<ILoggingEvent> buffer = asyncLogs;
+        batch.setLength(0);
+        int count = buffer.drain(event -> batch.append(format(event)).append(System.lineSeparator()), batchSize);
+        long dropped = buffer.getDropped();
+        if (dropped != reportedAsyncDropped) {
+            batch.append(String.format("%d log messages dropped, log writer is behind (%s)", dropped - reportedAsyncDropped,
+                    backPressure)).append(System.lineSeparator());
+            reportedAsyncDropped = dropped;
+        }
+        if (batch.length() > 0) {
+            // one write and one flush for the whole batch
+            System.out.print(batch);
+            System.out.flush();
+        }
+        return count;
+    }
+
     @Override
     public synchronized void flushBufferedLogs(String line) {
         flushBufferedLogs();
@@ -105,7 +290,8 @@ public class TBConsoleAppenderCLI extends ConsoleAppender<ILoggingEvent> impleme
     }
 
     private synchronized void flushBufferedLogs() {
-        if (bufferedLogs.isEmpty()) {
+        LogRingBuffer<String> buffer = bufferedLogs;
+        if (buffer == null || buffer.isEmpty()) {
             return;
         }
 
@@ -113,12 +299,16 @@ public class TBConsoleAppenderCLI extends ConsoleAppender<ILoggingEvent> impleme
             // Завжди відступаємо перед логами, щоб не затирати введення
             System.out.println(); // або reader.getTerminal().writer().println();
 
-            for (String msg : bufferedLogs) {
+            buffer.drain(msg -> {
                 try {
                     reader.printAbove(msg);
                 } catch (Exception e) {
                     System.err.println(msg);
                 }
+            });
+            String droppedMessage = droppedMessage(buffer);
+            if (droppedMessage != null) {
+                reader.printAbove(droppedMessage);
             }
 
             try {
@@ -126,17 +316,29 @@ public class TBConsoleAppenderCLI extends ConsoleAppender<ILoggingEvent> impleme
                 reader.callWidget(LineReader.REDISPLAY);
             } catch (Exception ignored) {}
         } else {
-            for (String msg : bufferedLogs) {
-                System.out.println(msg);
+            buffer.drain(System.out::println);
+            String droppedMessage = droppedMessage(buffer);
+            if (droppedMessage != null) {
+                System.out.println(droppedMessage);
             }
         }
 
-        bufferedLogs.clear();
         lastLogTimestamp = System.currentTimeMillis();
     }
 
 
 
+    private String droppedMessage(LogRingBuffer<String> buffer) {
+        long dropped = buffer.getDropped();
+        if (dropped == reportedDropped) {
+            return null;
+        }
+        String message = String.format("%d log messages dropped, console buffer of %d is full (%s)",
+                dropped - reportedDropped, buffer.capacity(), overflowPolicy);
+        reportedDropped = dropped;
+        return message;
+    }
+
     private synchronized void tickTimeout() {
         long now = System.currentTimeMillis();
         if ((now - lastLogTimestamp) >= timeoutMillis) {
@@ -0,0 +1,148 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.lwm2m.demo.client.scheduler.HashedWheelScheduler;
+import org.thingsboard.lwm2m.demo.client.scheduler.ScheduledTask;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms and error counters of all clients of a fleet.
+ * <p>
+ * Histograms are created on first use and aggregated for the whole fleet, so the memory footprint does not depend on
+ * the number of clients. Reports are cumulative since start.
+ * <p>
+ * Other fleet statistics add their own section to the report with {@link #addReportSection}, so that one periodic task
+ * logs them all.
+ */
+@Slf4j
+public class ClientMetrics {
+
+    // uplink requests (client to server)
+    public static final String BOOTSTRAP = "bootstrap";
+    public static final String REGISTER = "register";
+    public static final String UPDATE = "update";
+    public static final String DEREGISTER = "deregister";
+    public static final String SEND = "send";
+    public static final String NOTIFY = "notify";
+    // downlink requests (server to client)
+    public static final String READ = "read";
+    public static final String WRITE = "write";
+    public static final String EXECUTE = "execute";
+    public static final String OBSERVE = "observe";
+    public static final String DISCOVER = "discover";
+    public static final String DELETE = "delete";
+    // OTA
+    public static final String FW_DOWNLOAD = "fw.download";
+    public static final String FW_UPDATE = "fw.update";
+    public static final String FW_FAILURE = "fw.failure";
+    public static final String SW_DOWNLOAD = "sw.download";
+    public static final String SW_INSTALL = "sw.install";
+    public static final String SW_FAILURE = "sw.failure";
+
+    private static volatile ClientMetrics defaultMetrics;
+
+    private final ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final List<Runnable> reportSections = new CopyOnWriteArrayList<>();
+    private volatile ScheduledTask reportTask;
+
+    /**
+     * @return the metrics used by objects created without explicit metrics.
+     */
+    public static ClientMetrics getDefault() {
+        ClientMetrics metrics = defaultMetrics;
+        if (metrics == null) {
+            synchronized (ClientMetrics.class) {
+                metrics = defaultMetrics;
+                if (metrics == null) {
+                    metrics = new ClientMetrics();
+                    defaultMetrics = metrics;
+                }
+            }
+        }
+        return metrics;
+    }
+
+    public LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, LatencyHistogram::new);
+    }
+
+    public void recordSince(String name, long startNanos) {
+        histogram(name).recordSince(startNanos);
+    }
+
+    public void increment(String name) {
+        counters.computeIfAbsent(name, n -> new LongAdder()).increment();
+    }
+
+    public long getCounter(String name) {
+        LongAdder counter = counters.get(name);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    /**
+     * @param section logs one section of the report, nothing if there is nothing to report yet
+     */
+    public void addReportSection(Runnable section) {
+        reportSections.add(section);
+    }
+
+    public void startPeriodicReport(HashedWheelScheduler scheduler, long period, TimeUnit unit) {
+        stopPeriodicReport();
+        reportTask = scheduler.schedulePeriodic(this::report, period, period, unit);
+    }
+
+    public void stopPeriodicReport() {
+        ScheduledTask task = reportTask;
+        if (task != null) {
+            task.cancel();
+            reportTask = null;
+        }
+    }
+
+    public void report() {
+        reportLatencies();
+        reportSections.forEach(Runnable::run);
+    }
+
+    private void reportLatencies() {
+        if (histograms.isEmpty() && counters.isEmpty()) {
+            return;
+        }
+        StringBuilder report = new StringBuilder("Latency report:");
+        new TreeMap<>(histograms).values().forEach(histogram -> {
+            if (histogram.getCount() > 0) {
+                report.append(System.lineSeparator()).append("  ").append(histogram.snapshot());
+            }
+        });
+        Map<String, LongAdder> sortedCounters = new TreeMap<>(counters);
+        if (!sortedCounters.isEmpty()) {
+            report.append(System.lineSeparator()).append("  errors:");
+            sortedCounters.forEach((name, counter) -> report.append(' ').append(name).append('=').append(counter.sum()));
+        }
+        log.info(report.toString());
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client.metrics;
+
+import org.eclipse.californium.core.coap.CoAP.Code;
+import org.eclipse.californium.core.coap.CoAP.Type;
+import org.eclipse.californium.core.coap.EmptyMessage;
+import org.eclipse.californium.core.coap.MediaTypeRegistry;
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.coap.Response;
+import org.eclipse.californium.core.coap.Token;
+import org.eclipse.californium.core.network.interceptors.MessageInterceptorAdapter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records latencies seen by the CoAP endpoint of one client:
+ * <ul>
+ * <li>server-initiated requests (read, write, execute, observe, ...): from request reception to response sending, so
+ * the time spent in object enablers,</li>
+ * <li>confirmable notifications: from sending to acknowledgement; NON notifications have no acknowledgement and are
+ * never measured,</li>
+ * <li>Send (<code>/dp</code>) requests: from first sending to response.</li>
+ * </ul>
+ * Registration requests are measured by {@link RegistrationMetricsObserver} which also covers DTLS handshakes.
+ */
+public class CoapMetricsInterceptor extends MessageInterceptorAdapter {
+
+    private static final int MAX_PENDING = 1024;
+    private static final long STALE_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    private final ClientMetrics metrics;
+    private final Map<Token, Pending> downlinks = new ConcurrentHashMap<>();
+    private final Map<Token, Pending> sends = new ConcurrentHashMap<>();
+    private final Map<Integer, Pending> notifications = new ConcurrentHashMap<>();
+
+    public CoapMetricsInterceptor(ClientMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void receiveRequest(Request request) {
+        String type = downlinkType(request);
+        if (type != null) {
+            // interceptors run before deduplication: retransmissions of a CON request keep the first reception time
+            downlinks.putIfAbsent(request.getToken(), new Pending(type, System.nanoTime()));
+            purgeIfNeeded(downlinks);
+        }
+    }
+
+    @Override
+    public void sendResponse(Response response) {
+        Pending pending = downlinks.remove(response.getToken());
+        if (pending != null) {
+            metrics.recordSince(pending.type, pending.startNanos);
+        } else if (response.getOptions().hasObserve() && response.isConfirmable()) {
+            // retransmissions keep the first sending time
+            notifications.putIfAbsent(response.getMID(), new Pending(ClientMetrics.NOTIFY, System.nanoTime()));
+            purgeIfNeeded(notifications);
+        }
+    }
+
+    @Override
+    public void receiveEmptyMessage(EmptyMessage message) {
+        Pending pending = notifications.remove(message.getMID());
+        if (pending != null) {
+            if (message.getType() == Type.ACK) {
+                metrics.recordSince(pending.type, pending.startNanos);
+            } else {
+                metrics.increment(ClientMetrics.NOTIFY + ".rejected");
+            }
+        }
+    }
+
+    @Override
+    public void sendRequest(Request request) {
+        if (request.getCode() == Code.POST && "dp".equals(request.getOptions().getUriPathString())) {
+            // retransmissions and blocks keep the first sending time
+            sends.putIfAbsent(request.getToken(), new Pending(ClientMetrics.SEND, System.nanoTime()));
+            purgeIfNeeded(sends);
+        }
+    }
+
+    @Override
+    public void receiveResponse(Response response) {
+        if (sends.isEmpty()) {
+            return;
+        }
+        Pending pending = sends.remove(response.getToken());
+        if (pending != null) {
+            if (response.isSuccess()) {
+                metrics.recordSince(pending.type, pending.startNanos);
+            } else {
+                metrics.increment(ClientMetrics.SEND + ".failure");
+            }
+        }
+    }
+
+    private static String downlinkType(Request request) {
+        switch (request.getCode()) {
+        case GET:
+            if (request.getOptions().hasObserve()) {
+                return ClientMetrics.OBSERVE;
+            }
+            return request.getOptions().isAccept(MediaTypeRegistry.APPLICATION_LINK_FORMAT) ? ClientMetrics.DISCOVER
+                    : ClientMetrics.READ;
+        case FETCH:
+            return request.getOptions().hasObserve() ? ClientMetrics.OBSERVE : ClientMetrics.READ;
+        case PUT:
+        case IPATCH:
+            return ClientMetrics.WRITE;
+        case POST:
+            // POST on a resource is an execute, on an instance or an object a write (partial update or create)
+            return request.getOptions().getURIPathCount() == 3 ? ClientMetrics.EXECUTE : ClientMetrics.WRITE;
+        case DELETE:
+            return ClientMetrics.DELETE;
+        default:
+            return null;
+        }
+    }
+
+    /**
+     * Requests without answer (timeout, dropped exchange) must not leak.
+     */
+    private static <K> void purgeIfNeeded(Map<K, Pending> pendings) {
+        if (pendings.size() > MAX_PENDING) {
+            long now = System.nanoTime();
+            pendings.values().removeIf(p -> now - p.startNanos > STALE_NANOS);
+        }
+    }
+
+    private record Pending(String type, long startNanos) {
+    }
+}
@@ -0,0 +1,152 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A latency histogram in the spirit of HdrHistogram: values are recorded in microseconds into log-linear buckets
+ * (each power of two is split in {@value #SUB_BUCKET_COUNT} linear sub-buckets), so the relative error of any
+ * percentile is below 1% from 1µs to about 19 hours.
+ * <p>
+ * Recording is lock-free and allocation-free (one array increment and two counters), it can be called from any
+ * protocol thread. Snapshots are not atomic with concurrent recordings, which is fine for reporting.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 36;
+    private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray((MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT);
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalValue = new LongAdder();
+    private final LongAccumulator maxValue = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void record(long duration, TimeUnit unit) {
+        recordMicros(unit.toMicros(duration));
+    }
+
+    /**
+     * Record the time elapsed since <code>startNanos</code>, a value returned by {@link System#nanoTime()}.
+     */
+    public void recordSince(long startNanos) {
+        recordMicros((System.nanoTime() - startNanos) / 1000);
+    }
+
+    public void recordMicros(long value) {
+        long v = Math.min(Math.max(value, 0), MAX_VALUE);
+        counts.incrementAndGet(indexOf(v));
+        totalCount.increment();
+        totalValue.add(v);
+        maxValue.accumulate(v);
+    }
+
+    public long getCount() {
+        return totalCount.sum();
+    }
+
+    public Snapshot snapshot() {
+        long[] values = new long[counts.length()];
+        long count = 0;
+        for (int i = 0; i < values.length; i++) {
+            values[i] = counts.get(i);
+            count += values[i];
+        }
+        long max = maxValue.get();
+        return new Snapshot(name, count, count == 0 ? 0 : totalValue.sum() / count,
+                percentile(values, count, 0.50, max), percentile(values, count, 0.99, max),
+                percentile(values, count, 0.999, max), max);
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        totalCount.reset();
+        totalValue.reset();
+        maxValue.reset();
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift);
+        return (shift + 1) * SUB_BUCKET_COUNT + (subBucket - SUB_BUCKET_COUNT);
+    }
+
+    /**
+     * @return the highest value which is recorded in the same bucket than <code>index</code>.
+     */
+    static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long subBucket = (index % SUB_BUCKET_COUNT) + SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    private static long percentile(long[] values, long count, double percentile, long max) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile * count));
+        long seen = 0;
+        for (int i = 0; i < values.length; i++) {
+            seen += values[i];
+            if (seen >= rank) {
+                return Math.min(highestEquivalentValue(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Latencies in microseconds.
+     */
+    public record Snapshot(String name, long count, long mean, long p50, long p99, long p999, long max) {
+
+        @Override
+        public String toString() {
+            return String.format("%-16s count=%-8d mean=%-10s p50=%-10s p99=%-10s p999=%-10s max=%s", name, count,
+                    format(mean), format(p50), format(p99), format(p999), format(max));
+        }
+
+        private static String format(long micros) {
+            if (micros < 1000) {
+                return micros + "µs";
+            }
+            return String.format("%.1fms", micros / 1000d);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outcome of the NAT rebindings of all clients of a fleet (<code>-nr</code>): recovered over the DTLS connection ID
+ * of the existing connection, recovered with a new handshake, or not recovered before the next rebinding, with the
+ * average bytes exchanged until recovery.
+ * <p>
+ * Recovery latencies are recorded in the {@link ClientMetrics} histograms <code>nat.recovery.*</code>.
+ */
+@Slf4j
+public class NatRebindingStats {
+
+    private final LongAdder rebinds = new LongAdder();
+    private final LongAdder recoveredOverCid = new LongAdder();
+    private final LongAdder recoveredWithHandshake = new LongAdder();
+    private final LongAdder unrecovered = new LongAdder();
+    private final LongAdder cidBytes = new LongAdder();
+    private final LongAdder handshakeRecoveryBytes = new LongAdder();
+    private final LongAdder handshakeBytes = new LongAdder();
+
+    public void rebound() {
+        rebinds.increment();
+    }
+
+    /**
+     * @param bytes          bytes sent and received from the rebinding to the recovery
+     * @param handshakeBytes part of <code>bytes</code> sent and received in handshake records
+     */
+    public void recovered(boolean handshake, long bytes, long handshakeBytes) {
+        if (handshake) {
+            recoveredWithHandshake.increment();
+            handshakeRecoveryBytes.add(bytes);
+            this.handshakeBytes.add(handshakeBytes);
+        } else {
+            recoveredOverCid.increment();
+            cidBytes.add(bytes);
+        }
+    }
+
+    public void unrecovered() {
+        unrecovered.increment();
+    }
+
+    public void report() {
+        long total = rebinds.sum();
+        if (total == 0) {
+            return;
+        }
+        long cid = recoveredOverCid.sum();
+        long handshake = recoveredWithHandshake.sum();
+        log.info("NAT rebinding: {} rebinds, {} recovered over CID (avg {} bytes), {} with a new handshake "
+                        + "(avg {} bytes, {} of handshake), {} not recovered before the next rebinding", total, cid,
+                average(cidBytes, cid), handshake, average(handshakeRecoveryBytes, handshake),
+                average(handshakeBytes, handshake), unrecovered.sum());
+    }
+
+    private static long average(LongAdder sum, long count) {
+        return count == 0 ? 0 : sum.sum() / count;
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throughput of the OTA loop (<code>-ol</code>) for all clients of a fleet: completed and failed update cycles,
+ * downloaded bytes, and the resulting sustained rates since the first cycle started.
+ * <p>
+ * Time spent in each firmware state is recorded in the {@link ClientMetrics} histograms <code>fw.loop.*</code>.
+ */
+@Slf4j
+public class OtaLoopStats {
+
+    private final LongAdder cycles = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder downloadNanos = new LongAdder();
+    private volatile long startNanos;
+
+    /**
+     * Called when a client leaves Idle for the first time.
+     */
+    public void onFirstCycle() {
+        if (startNanos == 0) {
+            synchronized (this) {
+                if (startNanos == 0) {
+                    startNanos = System.nanoTime();
+                }
+            }
+        }
+    }
+
+    /**
+     * @param bytes         size of the package downloaded in this cycle, <code>0</code> if none
+     * @param downloadNanos time spent in Downloading
+     */
+    public void onCycle(boolean success, long bytes, long downloadNanos) {
+        cycles.increment();
+        if (!success) {
+            failures.increment();
+        }
+        this.bytes.add(bytes);
+        this.downloadNanos.add(downloadNanos);
+    }
+
+    public long getCycles() {
+        return cycles.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public void report() {
+        long start = startNanos;
+        if (start == 0) {
+            return;
+        }
+        double elapsedSec = (System.nanoTime() - start) / 1e9;
+        long cycleCount = cycles.sum();
+        long byteCount = bytes.sum();
+        long downloadTime = downloadNanos.sum();
+        log.info(String.format("OTA loop: %d cycles (%d failed) in %.0f s, %.1f cycles/h, %.1f MB downloaded, "
+                        + "sustained %.1f KB/s, download %.1f KB/s",
+                cycleCount, failures.sum(), elapsedSec, cycleCount * 3600 / elapsedSec, byteCount / 1e6,
+                byteCount / 1024.0 / elapsedSec, downloadTime > 0 ? byteCount / 1024.0 / (downloadTime / 1e9) : 0.0));
+    }
+}
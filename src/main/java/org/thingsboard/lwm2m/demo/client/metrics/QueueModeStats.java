@@ -0,0 +1,87 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Time spent by all clients of a fleet in each power state of queue mode (<code>-q</code>), and the resulting
+ * estimated average current compared to clients which never sleep.
+ * <p>
+ * Currents are rough figures of an LTE-M module, good enough to compare queue mode timers, not to predict battery
+ * life. Latencies of queued requests are recorded in the {@link ClientMetrics} histograms <code>queue.*</code>.
+ */
+@Slf4j
+public class QueueModeStats {
+
+    public enum PowerState {
+        // RRC connected, awake window
+        CONNECTED(60.0),
+        // idle and listening: paging time window of eDRX, or whole active time without eDRX
+        PAGING(6.0),
+        // idle between two paging time windows of eDRX
+        EDRX_SLEEP(0.02),
+        // power saving mode, unreachable until the next uplink
+        PSM(0.003);
+
+        private final double currentMilliAmps;
+
+        PowerState(double currentMilliAmps) {
+            this.currentMilliAmps = currentMilliAmps;
+        }
+    }
+
+    private final LongAdder[] nanos = new LongAdder[PowerState.values().length];
+
+    public QueueModeStats() {
+        for (int i = 0; i < nanos.length; i++) {
+            nanos[i] = new LongAdder();
+        }
+    }
+
+    public void add(PowerState state, long durationNanos) {
+        nanos[state.ordinal()].add(durationNanos);
+    }
+
+    public long getNanos(PowerState state) {
+        return nanos[state.ordinal()].sum();
+    }
+
+    public void report() {
+        long total = 0;
+        double charge = 0;
+        for (PowerState state : PowerState.values()) {
+            long time = getNanos(state);
+            total += time;
+            charge += time * state.currentMilliAmps;
+        }
+        if (total == 0) {
+            return;
+        }
+        double average = charge / total;
+        log.info(String.format("Queue mode: %.1f%% connected, %.1f%% paging, %.1f%% eDRX sleep, %.1f%% PSM, "
+                        + "estimated %.3f mA average vs %.1f mA always connected (%.1f%% saved)",
+                percent(PowerState.CONNECTED, total), percent(PowerState.PAGING, total),
+                percent(PowerState.EDRX_SLEEP, total), percent(PowerState.PSM, total), average,
+                PowerState.CONNECTED.currentMilliAmps, 100 - average * 100 / PowerState.CONNECTED.currentMilliAmps));
+    }
+
+    private double percent(PowerState state, long total) {
+        return getNanos(state) * 100.0 / total;
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client.metrics;
+
+import org.eclipse.leshan.client.observer.LwM2mClientObserverAdapter;
+import org.eclipse.leshan.client.servers.LwM2mServer;
+import org.eclipse.leshan.core.ResponseCode;
+import org.eclipse.leshan.core.request.BootstrapRequest;
+import org.eclipse.leshan.core.request.DeregisterRequest;
+import org.eclipse.leshan.core.request.RegisterRequest;
+import org.eclipse.leshan.core.request.UpdateRequest;
+
+/**
+ * Records end-to-end latency of bootstrap, register, update and deregister of one client, DTLS handshake and
+ * retransmissions included.
+ * <p>
+ * The registration engine runs one of these requests at a time for a given client, so one start time by request type
+ * is enough. Only successful requests are recorded in histograms, failures and timeouts are counted.
+ */
+public class RegistrationMetricsObserver extends LwM2mClientObserverAdapter {
+
+    private final ClientMetrics metrics;
+    private volatile long bootstrapStart;
+    private volatile long registerStart;
+    private volatile long updateStart;
+    private volatile long deregisterStart;
+
+    public RegistrationMetricsObserver(ClientMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void onBootstrapStarted(LwM2mServer bsserver, BootstrapRequest request) {
+        bootstrapStart = System.nanoTime();
+    }
+
+    @Override
+    public void onBootstrapSuccess(LwM2mServer bsserver, BootstrapRequest request) {
+        metrics.recordSince(ClientMetrics.BOOTSTRAP, bootstrapStart);
+    }
+
+    @Override
+    public void onBootstrapFailure(LwM2mServer bsserver, BootstrapRequest request, ResponseCode responseCode,
+            String errorMessage, Exception cause) {
+        metrics.increment(ClientMetrics.BOOTSTRAP + ".failure");
+    }
+
+    @Override
+    public void onBootstrapTimeout(LwM2mServer bsserver, BootstrapRequest request) {
+        metrics.increment(ClientMetrics.BOOTSTRAP + ".timeout");
+    }
+
+    @Override
+    public void onRegistrationStarted(LwM2mServer server, RegisterRequest request) {
+        registerStart = System.nanoTime();
+    }
+
+    @Override
+    public void onRegistrationSuccess(LwM2mServer server, RegisterRequest request, String registrationID) {
+        metrics.recordSince(ClientMetrics.REGISTER, registerStart);
+    }
+
+    @Override
+    public void onRegistrationFailure(LwM2mServer server, RegisterRequest request, ResponseCode responseCode,
+            String errorMessage, Exception cause) {
+        metrics.increment(ClientMetrics.REGISTER + ".failure");
+    }
+
+    @Override
+    public void onRegistrationTimeout(LwM2mServer server, RegisterRequest request) {
+        metrics.increment(ClientMetrics.REGISTER + ".timeout");
+    }
+
+    @Override
+    public void onUpdateStarted(LwM2mServer server, UpdateRequest request) {
+        updateStart = System.nanoTime();
+    }
+
+    @Override
+    public void onUpdateSuccess(LwM2mServer server, UpdateRequest request) {
+        metrics.recordSince(ClientMetrics.UPDATE, updateStart);
+    }
+
+    @Override
+    public void onUpdateFailure(LwM2mServer server, UpdateRequest request, ResponseCode responseCode,
+            String errorMessage, Exception cause) {
+        metrics.increment(ClientMetrics.UPDATE + ".failure");
+    }
+
+    @Override
+    public void onUpdateTimeout(LwM2mServer server, UpdateRequest request) {
+        metrics.increment(ClientMetrics.UPDATE + ".timeout");
+    }
+
+    @Override
+    public void onDeregistrationStarted(LwM2mServer server, DeregisterRequest request) {
+        deregisterStart = System.nanoTime();
+    }
+
+    @Override
+    public void onDeregistrationSuccess(LwM2mServer server, DeregisterRequest request) {
+        metrics.recordSince(ClientMetrics.DEREGISTER, deregisterStart);
+    }
+
+    @Override
+    public void onDeregistrationFailure(LwM2mServer server, DeregisterRequest request, ResponseCode responseCode,
+            String errorMessage, Exception cause) {
+        metrics.increment(ClientMetrics.DEREGISTER + ".failure");
+    }
+
+    @Override
+    public void onDeregistrationTimeout(LwM2mServer server, DeregisterRequest request) {
+        metrics.increment(ClientMetrics.DEREGISTER + ".timeout");
+    }
+}
@@ -17,17 +17,9 @@ package org.thingsboard.lwm2m.demo.client.objects;
 
 import com.google.common.hash.Hashing;
 import lombok.extern.slf4j.Slf4j;
-import org.eclipse.californium.core.CoapClient;
-import org.eclipse.californium.core.CoapHandler;
-import org.eclipse.californium.core.CoapResponse;
-import org.eclipse.californium.core.coap.CoAP;
-import org.eclipse.californium.core.coap.Request;
-import org.eclipse.californium.core.config.CoapConfig;
-import org.eclipse.californium.core.network.CoapEndpoint;
-import org.eclipse.californium.elements.config.Configuration;
-import org.eclipse.californium.elements.util.DaemonThreadFactory;
 import org.eclipse.leshan.client.resource.BaseInstanceEnabler;
 import org.eclipse.leshan.client.servers.LwM2mServer;
+import org.eclipse.leshan.core.Destroyable;
 import org.eclipse.leshan.core.model.ObjectModel;
 import org.eclipse.leshan.core.node.LwM2mResource;
 import org.eclipse.leshan.core.request.argument.Arguments;
@@ -37,26 +29,32 @@ import org.eclipse.leshan.core.response.WriteResponse;
 import org.eclipse.leshan.core.util.StringUtils;
 import org.thingsboard.lwm2m.demo.client.entities.LwM2MClientOtaInfo;
 import org.thingsboard.lwm2m.demo.client.entities.OtaPackageType;
+import org.thingsboard.lwm2m.demo.client.metrics.ClientMetrics;
+import org.thingsboard.lwm2m.demo.client.ota.OtaBlobStore;
+import org.thingsboard.lwm2m.demo.client.ota.OtaContext;
+import org.thingsboard.lwm2m.demo.client.ota.OtaDownloadEndpoints;
+import org.thingsboard.lwm2m.demo.client.ota.OtaDownloadFile;
+import org.thingsboard.lwm2m.demo.client.ota.OtaDwellTimes;
+import org.thingsboard.lwm2m.demo.client.ota.OtaLoop;
+import org.thingsboard.lwm2m.demo.client.ota.OtaStateMachine;
+import org.thingsboard.lwm2m.demo.client.ota.ResumableOtaDownload;
+import org.thingsboard.lwm2m.demo.client.scheduler.HashedWheelScheduler;
+import org.thingsboard.lwm2m.demo.client.scheduler.ScheduledTask;
 import org.thingsboard.lwm2m.demo.client.util.FirmwareUpdateResult;
 import org.thingsboard.lwm2m.demo.client.util.FirmwareUpdateState;
 import org.thingsboard.lwm2m.demo.client.util.Utils;
 
-import javax.security.auth.Destroyable;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import static org.eclipse.californium.core.config.CoapConfig.DEFAULT_BLOCKWISE_STATUS_LIFETIME_IN_SECONDS;
+import static org.thingsboard.lwm2m.demo.client.ota.OtaStateMachine.after;
 import static org.thingsboard.lwm2m.demo.client.util.Utils.*;
 
 @Slf4j
@@ -66,12 +64,32 @@ public class FwLwM2MDevice extends BaseInstanceEnabler implements Destroyable {
     private static final String PACKAGE_NANE_DEF = "firmware";
     private static final String PACKAGE_VERSION_DEF = "1.0.0";
 
-    private final ScheduledExecutorService scheduler = new ScheduledThreadPoolExecutor(1,
-            new DaemonThreadFactory(getClass().getSimpleName() + "-test-scope-delete-ota"));
     private final AtomicInteger state = new AtomicInteger(0);
 
     private final AtomicInteger updateResult = new AtomicInteger(0);
-    private final Timer timer;
+    private final ScheduledTask notifyTask;
+    private final NotificationCoalescer notifications = new NotificationCoalescer(this);
+    private final ReadResponseCache packageUriResponse = new ReadResponseCache(1);
+    private final ReadResponseCache stateResponse = new ReadResponseCache(3);
+    private final ReadResponseCache updateResultResponse = new ReadResponseCache(5);
+    private final ReadResponseCache pkgNameResponse = new ReadResponseCache(6);
+    private final ReadResponseCache pkgVersionResponse = new ReadResponseCache(7);
+    private final ReadResponseCache deliveryMethodResponse = new ReadResponseCache(9);
+    private final ClientMetrics metrics;
+    private final OtaDownloadEndpoints downloadEndpoints;
+    private final OtaBlobStore blobStore;
+    private final OtaContext otaContext;
+    private final OtaStateMachine transitions;
+    private final HashedWheelScheduler scheduler;
+    // continuous update cycles (-ol), null if disabled
+    private final OtaLoop loop;
+    // Package URI download in progress or last one, null if none
+    private volatile ResumableOtaDownload download;
+    // SHA-256 of the stored package linked to the package file, null if none
+    private volatile String packageBlob;
+    // System.nanoTime() at the beginning of the current download / update, 0 if none
+    private volatile long downloadStartNanos;
+    private volatile long updateStartNanos;
     private boolean testObject;
     private boolean testOta;
     private String packageURI;
@@ -84,37 +102,50 @@ public class FwLwM2MDevice extends BaseInstanceEnabler implements Destroyable {
     }
 
     public FwLwM2MDevice(Integer timeDataFrequency) {
-        // notify new date each 5 second
-        this.initOtaFw();
-        this.timer = new Timer("Id = [5] Firmware Update -> schedule Time period = [" + timeDataFrequency + "] sec");
-        timer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                fireResourceChange(1);
-                fireResourceChange(3);
-                fireResourceChange(5);
-            }
-        }, timeDataFrequency*1000, timeDataFrequency*1000);
+        this(timeDataFrequency, false, false);
     }
 
     public FwLwM2MDevice(Integer timeDataFrequency, boolean testObject, boolean testOta) {
+        this(timeDataFrequency, testObject, testOta, HashedWheelScheduler.getDefault());
+    }
+
+    public FwLwM2MDevice(Integer timeDataFrequency, boolean testObject, boolean testOta, HashedWheelScheduler scheduler) {
+        this(timeDataFrequency, testObject, testOta, scheduler, ClientMetrics.getDefault(), new OtaDownloadEndpoints(),
+                new OtaBlobStore(Paths.get(OTA_FOLDER_DEF, OTA_BLOBS_FOLDER)), new OtaContext(Paths.get(OTA_FOLDER_DEF)),
+                null);
+    }
+
+    /**
+     * @param downloadEndpoints endpoints used to download packages by URI, destroyed with this object
+     * @param blobStore         packages stored once for all clients
+     * @param otaContext        folder and pending update information of this client
+     * @param loop              reports the initial package again after each update cycle, <code>null</code> if disabled
+     */
+    public FwLwM2MDevice(Integer timeDataFrequency, boolean testObject, boolean testOta, HashedWheelScheduler scheduler,
+            ClientMetrics metrics, OtaDownloadEndpoints downloadEndpoints, OtaBlobStore blobStore,
+            OtaContext otaContext, OtaLoop loop) {
+        this.metrics = metrics;
+        this.downloadEndpoints = downloadEndpoints;
+        this.blobStore = blobStore;
+        this.otaContext = otaContext;
+        this.transitions = new OtaStateMachine(scheduler, "FW");
+        this.scheduler = scheduler;
+        this.loop = loop;
         this.testObject = testObject;
         this.testOta = testOta;
         this.initOtaFw();
+        if (loop != null) {
+            String basePackageName = this.packageName;
+            String basePackageVersion = this.packageVersion;
+            loop.setNextPackage(() -> this.reportPackage(basePackageName, basePackageVersion));
+        }
         // notify new date each 5 second
-        this.timer = new Timer("Id = [5] Firmware Update -> schedule Time period = [" + timeDataFrequency + "] sec");
-        timer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                fireResourceChange(1);
-                fireResourceChange(3);
-                fireResourceChange(5);
-            }
-        }, timeDataFrequency*1000, timeDataFrequency*1000);
+        this.notifyTask = scheduler.schedulePeriodic(() -> notifications.fireResourcesChange(1, 3, 5),
+                timeDataFrequency, timeDataFrequency, TimeUnit.SECONDS);
     }
 
     private void initOtaFw(){
-        LwM2MClientOtaInfo infoFw = readOtaInfoFromFile(getPathInfoOtaFw());
+        LwM2MClientOtaInfo infoFw = readOtaInfoFromFile(otaContext.getFwInfoPath());
         if (infoFw != null) {
             this.setPkgName(infoFw.getTitle());
             this.setPackageVersion(infoFw.getVersion());
@@ -124,32 +155,37 @@ public class FwLwM2MDevice extends BaseInstanceEnabler implements Destroyable {
 
     @Override
     public ReadResponse read(LwM2mServer server, int resourceId) {
-        Object value;
         switch (resourceId) {
-            case 1:
-                value = getPackageURI();
+            case 1: {
+                String value = getPackageURI();
                 printReadLog(server, getModel().name, getModel().id, getId(), resourceId, value);
-                return ReadResponse.success(resourceId, (String) value);
-            case 3:
-                value = getState();
+                return packageUriResponse.string(value);
+            }
+            case 3: {
+                int value = getState();
                 printReadLog(server, getModel().name, getModel().id, getId(), resourceId, value);
-                return ReadResponse.success(resourceId, (int) value);
-            case 5:
-                value = getUpdateResult();
+                return stateResponse.integer(value);
+            }
+            case 5: {
+                int value = getUpdateResult();
                 printReadLog(server, getModel().name, getModel().id, getId(), resourceId, value);
-                return ReadResponse.success(resourceId, (int) value);
-            case 6:
-                value = getPkgName();
+                return updateResultResponse.integer(value);
+            }
+            case 6: {
+                String value = getPkgName();
                 printReadLog(server, getModel().name, getModel().id, getId(), resourceId, value);
-                return ReadResponse.success(resourceId, (String) value);
-            case 7:
-                value = getPkgVersion();
+                return pkgNameResponse.string(value);
+            }
+            case 7: {
+                String value = getPkgVersion();
                 printReadLog(server, getModel().name, getModel().id, getId(), resourceId, value);
-                return ReadResponse.success(resourceId, (String) value);
-            case 9:
-                value = getFirmwareUpdateDeliveryMethod();
+                return pkgVersionResponse.string(value);
+            }
+            case 9: {
+                int value = getFirmwareUpdateDeliveryMethod();
                 printReadLog(server, getModel().name, getModel().id, getId(), resourceId, value);
-                return ReadResponse.success(resourceId, (int) value);
+                return deliveryMethodResponse.integer(value);
+            }
             default:
                 return super.read(server, resourceId);
         }
@@ -166,6 +202,7 @@ public class FwLwM2MDevice extends BaseInstanceEnabler implements Destroyable {
         switch (resourceId) {
             case 2:
                 if (this.getState() == FirmwareUpdateState.DOWNLOADED.getCode() && this.getUpdateResult() == FirmwareUpdateResult.INITIAL.getCode()) {
+                    this.updateStartNanos = System.nanoTime();
                     if (this.testObject || this.testOta) {
                         startUpdatingFw();
                     }
@@ -187,7 +224,11 @@ public class FwLwM2MDevice extends BaseInstanceEnabler implements Destroyable {
 
         switch (resourceId) {
             case 0:
+                this.downloadStartNanos = System.nanoTime();
                 if (this.testObject) {
+                    if (loop != null && value.getValue() != null) {
+                        loop.onDownloaded(((byte[]) value.getValue()).length);
+                    }
                     this.downloadingToDownloadedSuccessTest(resourceId);
                     this.saveOtaInfoUpdateFwWithObject19((byte[]) value.getValue());
                 } else if (this.testOta) {
@@ -198,6 +239,7 @@ public class FwLwM2MDevice extends BaseInstanceEnabler implements Destroyable {
                 }
                 return WriteResponse.success();
             case 1:
+                this.downloadStartNanos = System.nanoTime();
                 this.setPackageURI((String) value.getValue());
                 if (this.testObject) {
                     this.downloadingToDownloadedSuccessTest(resourceId);
@@ -216,11 +258,12 @@ public class FwLwM2MDevice extends BaseInstanceEnabler implements Destroyable {
     }
 
     private void setPackageURI(String packageURI) {
-        if (!packageURI.equals(this.packageURI)) {
+        boolean changed = !packageURI.equals(this.packageURI);
+        this.packageURI = packageURI;
+        if (changed) {
             log.info("Write on Device packageURI: [{}]", packageURI);
-            fireResourceChange(1);
+            notifications.fireResourcesChange(1);
         }
-        this.packageURI = packageURI;
     }
 
     private int getState() {
@@ -231,7 +274,14 @@ public class FwLwM2MDevice extends BaseInstanceEnabler implements Destroyable {
         if (state != this.state.get()){
             this.state.set(state);
             log.info("Update state FW on Device resource /{}/{}/{} [{}] [{}]", getModel().id, getId(), 3, this.state.get(), FirmwareUpdateState.fromCode(this.state.get()).getType());
-            fireResourceChange(3);
+            if (state == FirmwareUpdateState.DOWNLOADED.getCode() && downloadStartNanos != 0) {
+                metrics.recordSince(ClientMetrics.FW_DOWNLOAD, downloadStartNanos);
+                downloadStartNanos = 0;
+            }
+            notifications.fireResourcesChange(3);
+            if (loop != null) {
+                loop.onState(FirmwareUpdateState.fromCode(state));
+            }
         }
 
     }
@@ -243,7 +293,18 @@ public class FwLwM2MDevice extends BaseInstanceEnabler implements Destroyable {
         if (updateResult != this.updateResult.get()) {
             this.updateResult.set(updateResult);
             log.info("Update result FW on Device resource /{}/{}/{} [{}] [{}]", getModel().id, getId(), 3, this.state.get(), FirmwareUpdateResult.fromCode(this.updateResult.get()).getType());
-            fireResourceChange(5);
+            if (updateResult == FirmwareUpdateResult.SUCCESS.getCode() && updateStartNanos != 0) {
+                metrics.recordSince(ClientMetrics.FW_UPDATE, updateStartNanos);
+                updateStartNanos = 0;
+            } else if (updateResult > FirmwareUpdateResult.SUCCESS.getCode()) {
+                metrics.increment(ClientMetrics.FW_FAILURE);
+                downloadStartNanos = 0;
+                updateStartNanos = 0;
+            }
+            notifications.fireResourcesChange(5);
+            if (loop != null) {
+                loop.onResult(FirmwareUpdateResult.fromCode(updateResult));
+            }
         }
     }
 
@@ -263,6 +324,18 @@ public class FwLwM2MDevice extends BaseInstanceEnabler implements Destroyable {
         this.packageVersion = packageVersion == null ? PACKAGE_VERSION_DEF : packageVersion;
     }
 
+    /**
+     * Reports <code>packageName</code> / <code>packageVersion</code> as installed, so the server starts a new update
+     * if its target is another package.
+     */
+    private void reportPackage(String packageName, String packageVersion) {
+        log.info("OTA loop: report package [{}] version [{}] on Device resource /{}/{}", packageName, packageVersion,
+                getModel().id, getId());
+        this.setPkgName(packageName);
+        this.setPackageVersion(packageVersion);
+        notifications.fireResourcesChange(6, 7);
+    }
+
     private int getFirmwareUpdateDeliveryMethod() {
         return 2;
     }
@@ -274,106 +347,124 @@ public class FwLwM2MDevice extends BaseInstanceEnabler implements Destroyable {
 
     @Override
     public void destroy() {
-        timer.cancel();
+        notifyTask.cancel();
+        transitions.cancel();
+        ResumableOtaDownload current = download;
+        if (current != null) {
+            current.cancel();
+        }
+        if (loop != null) {
+            loop.destroy();
+        }
+        downloadEndpoints.destroy();
     }
 
     private void downloadingToDownloadedSuccessTest(int resourceId) {
-        scheduler.schedule(() -> {
-            try {
-                this.setState(FirmwareUpdateState.DOWNLOADING.getCode());
-                Thread.sleep(100);
-                this.setState(FirmwareUpdateState.DOWNLOADED.getCode());
-            } catch (Exception e) {
-            }
-        }, 100, TimeUnit.MILLISECONDS);
+        OtaDwellTimes dwell = otaContext.getDwellTimes();
+        transitions.start(
+                after(dwell.start(), () -> this.setState(FirmwareUpdateState.DOWNLOADING.getCode())),
+                after(dwell.downloading(), () -> this.setState(FirmwareUpdateState.DOWNLOADED.getCode())));
         String msgResource = resourceId == 0 ? "Via resource 0." : "Via Resource 1 (PackageURI = " + this.getPackageURI() + ").";
         log.info("Finish Write data FW. {}", msgResource);
     }
 
     private void updatingSuccessTest() {
-        scheduler.schedule(() -> {
-            try {
-                this.setState(FirmwareUpdateState.UPDATING.getCode());
-                Thread.sleep(100);
-                this.setUpdateResult(FirmwareUpdateResult.SUCCESS.getCode());
-                Thread.sleep(100);
-                this.setState(FirmwareUpdateState.IDLE.getCode());
-                this.setUpdateResult(FirmwareUpdateResult.INITIAL.getCode());
-            } catch (Exception e) {
-            }
-        }, 100, TimeUnit.MILLISECONDS);
+        OtaDwellTimes dwell = otaContext.getDwellTimes();
+        transitions.start(
+                after(dwell.start(), () -> this.setState(FirmwareUpdateState.UPDATING.getCode())),
+                after(dwell.updating(), () -> this.setUpdateResult(FirmwareUpdateResult.SUCCESS.getCode())),
+                after(dwell.result(), this::resetToIdle));
     }
 
     private void updateResFailed(int res) {
-        scheduler.schedule(() -> {
-            try {
-                this.setUpdateResult(res);
-                Thread.sleep(100);
-                this.setState(FirmwareUpdateState.IDLE.getCode());
-                this.setUpdateResult(FirmwareUpdateResult.INITIAL.getCode());
-            } catch (Exception e) {
-            }
-        }, 100, TimeUnit.MILLISECONDS);
+        OtaDwellTimes dwell = otaContext.getDwellTimes();
+        transitions.start(
+                after(dwell.start(), () -> this.setUpdateResult(res)),
+                after(dwell.result(), this::resetToIdle));
+    }
+
+    private void resetToIdle() {
+        this.setState(FirmwareUpdateState.IDLE.getCode());
+        this.setUpdateResult(FirmwareUpdateResult.INITIAL.getCode());
     }
 
     private void startDownloadingFwUri() {
-        CoapClient client = new CoapClient(getPackageURI());
-        Configuration networkConfig = new Configuration();
-        networkConfig.set(CoapConfig.BLOCKWISE_STRICT_BLOCK2_OPTION, true);
-        networkConfig.set(CoapConfig.BLOCKWISE_ENTITY_TOO_LARGE_AUTO_FAILOVER, true);
-        networkConfig.set(CoapConfig.BLOCKWISE_STATUS_LIFETIME, DEFAULT_BLOCKWISE_STATUS_LIFETIME_IN_SECONDS, TimeUnit.SECONDS);
-        networkConfig.set(CoapConfig.MAX_RESOURCE_BODY_SIZE, 256 * 1024 * 1024);
-        networkConfig.set(CoapConfig.RESPONSE_MATCHING, CoapConfig.MatcherMode.RELAXED);
-        networkConfig.set(CoapConfig.PREFERRED_BLOCK_SIZE, 1024);
-        networkConfig.set(CoapConfig.MAX_MESSAGE_SIZE, 1024);
-        networkConfig.set(CoapConfig.MAX_RETRANSMIT, 4);
-
-
-        CoapEndpoint endpoint = new CoapEndpoint.Builder().setConfiguration(networkConfig)
-                .build();
-        client.setEndpoint(endpoint);
-        client.useCONs(); // Used Confirmable request
-        client.setTimeout(10000L); // Time out
-
-        Request request = new Request(CoAP.Code.GET);
-        request.setConfirmable(true); // Used Confirmable (CON)
-
-        log.info("Send CoAP-request to [{}]", getPackageURI());
-
-        client.advanced(new CoapHandler() {
-            @Override
-            public void onLoad(CoapResponse response) {
-                byte[] payload = response.getPayload();
-                String resultSavePayload = startDownloadingFw(payload);
+        this.setState(FirmwareUpdateState.DOWNLOADING.getCode());
+        LwM2MClientOtaInfo infoFw = otaContext.getFwUpdateInfo();
+        String checksum = infoFw != null ? infoFw.getChecksum() : null;
+        // a package stored before a restart is hashed again, by the blob store and not by the thread of the request
+        blobStore.contains(checksum).whenComplete((stored, error) -> {
+            // the reference keeps the stored package until it is linked; it may have been deleted since the check
+            if (error == null && stored && blobStore.acquire(checksum)) {
+                this.linkStoredFw(infoFw);
+            } else {
+                this.downloadFwUri(checksum);
+            }
+        });
+    }
+
+    private void downloadFwUri(String checksum) {
+        log.info("Download package from [{}]", getPackageURI());
+        ResumableOtaDownload download = new ResumableOtaDownload(otaContext.getFolder(), "fw", getPackageURI(), checksum,
+                downloadEndpoints, scheduler);
+        this.download = download;
+        download.start().whenComplete((file, error) -> {
+            if (error instanceof CancellationException) {
+                // this object is destroyed
+                return;
+            }
+            if (error != null) {
+                // the partial file is kept, the next download of this package resumes it
+                log.error("An error occurred while retrieving the response: {}", error.getMessage());
+                this.updateResFailed(FirmwareUpdateResult.CONNECTION_LOST.getCode());
+                return;
+            }
+            try (file) {
+                String resultSavePayload = finishDownloadingFw(file);
                 if (!resultSavePayload.isEmpty()) {
                     log.error(resultSavePayload);
                 }
+            } catch (IOException e) {
+                log.error("File writing error: ", e);
+            } finally {
+                download.discard();
             }
-
-            @Override
-            public void onError() {
-                log.error("An error occurred while retrieving the response.");
-            }
-        }, request);
+        });
     }
 
     private void startUpdatingFw() {
-        LwM2MClientOtaInfo infoFw = getOtaInfoUpdateFw();
+        LwM2MClientOtaInfo infoFw = otaContext.getFwUpdateInfo();
         if (infoFw != null ) {
-            writeOtaInfoToFile(getPathInfoOtaFw(), infoFw);
+            writeOtaInfoToFile(otaContext.getFwInfoPath(), infoFw);
             this.setPkgName(infoFw.getTitle());
             this.setPackageVersion(infoFw.getVersion());
-            setOtaInfoUpdateFw(null);
+            otaContext.setFwUpdateInfo(null);
         }
     }
 
     private String startDownloadingFw(byte[] data) {
         this.setState(FirmwareUpdateState.DOWNLOADING.getCode());
+        try (OtaDownloadFile file = OtaDownloadFile.create(otaContext.getFolder())) {
+            if (data != null) {
+                file.append(data);
+            }
+            return finishDownloadingFw(file);
+        } catch (IOException e) {
+            log.error("File writing error: ", e);
+            this.updateResFailed(FirmwareUpdateResult.NOT_ENOUGH_FLASH.getCode());
+            return "File writing error: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Verifies the received package against the expected checksum and size, then moves it in place.
+     */
+    private String finishDownloadingFw(OtaDownloadFile file) {
         String result = "";
-        if (data != null && data.length > 0) {
-            LwM2MClientOtaInfo infoFw = getOtaInfoUpdateFw();
+        if (file.size() > 0) {
+            LwM2MClientOtaInfo infoFw = otaContext.getFwUpdateInfo();
             if (infoFw != null ) {
-                String fileChecksumSHA256 = Hashing.sha256().hashBytes(data).toString();
+                String fileChecksumSHA256 = file.checksum();
                 if (!fileChecksumSHA256.equals(infoFw.getChecksum())) {
                     result = "File writing error: failed ChecksumSHA256. Payload: " + fileChecksumSHA256 + " Original: " + infoFw.getChecksum();
                     log.error(result);
@@ -381,29 +472,30 @@ public class FwLwM2MDevice extends BaseInstanceEnabler implements Destroyable {
                     this.updateResFailed(FirmwareUpdateResult.INTEGRITY_CHECK_FAILURE.getCode());
                     return result;
                 }
-                if (data.length != infoFw.getDataSize()) {
-                    result = "File writing error: failed FileSize.. Payload: " + data.length + " Original: " + infoFw.getDataSize();
+                if (file.size() != infoFw.getDataSize()) {
+                    result = "File writing error: failed FileSize.. Payload: " + file.size() + " Original: " + infoFw.getDataSize();
                     log.error(result);
                     // 5: Integrity check failure for new downloaded package.
                     this.updateResFailed(FirmwareUpdateResult.INTEGRITY_CHECK_FAILURE.getCode());
                     return result;
                 }
             } else {
-                this.saveOtaInfoUpdateFwWithObject19(data);
+                this.createOtaInfoUpdateFw(file.checksum(), file.size());
             }
             String filePath = getPathDataOtaFW(infoFw);
             Path dirPath = Paths.get(filePath).getParent();
             try {
                 Files.createDirectories(dirPath);
                 renameOtaFilesToTmp(dirPath, PREF_FW, PREF_TMP);
-                try (FileOutputStream fos = new FileOutputStream(filePath)) {
-                    fos.write(data);
-                    log.info("Data successfully saved to: \"{}\", size: [{}]", filePath, data.length);
-                    this.setState(FirmwareUpdateState.DOWNLOADED.getCode());
-                    deleteOtaFiles(dirPath, PREF_TMP);
-                    return result;
+                blobStore.store(file, Paths.get(filePath));
+                this.setPackageBlob(file.checksum());
+                if (loop != null) {
+                    loop.onDownloaded(file.size());
                 }
-
+                log.info("Data successfully saved to: \"{}\", size: [{}]", filePath, file.size());
+                this.setState(FirmwareUpdateState.DOWNLOADED.getCode());
+                deleteOtaFiles(dirPath, PREF_TMP);
+                return result;
             } catch (IOException e) {
                 result = "File writing error: " + e.getMessage();
                 log.error("File writing error: ", e);
@@ -418,30 +510,63 @@ public class FwLwM2MDevice extends BaseInstanceEnabler implements Destroyable {
         }
     }
 
+    /**
+     * Links the package already stored by a previous download, of this client or another one, instead of downloading
+     * it again.
+     */
+    private void linkStoredFw(LwM2MClientOtaInfo infoFw) {
+        String filePath = getPathDataOtaFW(infoFw);
+        Path dirPath = Paths.get(filePath).getParent();
+        try {
+            Files.createDirectories(dirPath);
+            renameOtaFilesToTmp(dirPath, PREF_FW, PREF_TMP);
+            blobStore.link(infoFw.getChecksum(), Paths.get(filePath));
+            this.setPackageBlob(infoFw.getChecksum());
+            log.info("Package [{}] already stored, linked to: \"{}\"", infoFw.getChecksum(), filePath);
+            this.setState(FirmwareUpdateState.DOWNLOADED.getCode());
+            deleteOtaFiles(dirPath, PREF_TMP);
+        } catch (IOException e) {
+            blobStore.release(infoFw.getChecksum());
+            log.error("File writing error: ", e);
+            this.updateResFailed(FirmwareUpdateResult.NOT_ENOUGH_FLASH.getCode());
+        }
+    }
+
+    private void setPackageBlob(String checksum) {
+        String previous = packageBlob;
+        packageBlob = checksum;
+        if (previous != null) {
+            blobStore.release(previous);
+        }
+    }
+
     private String getPathDataOtaFW(LwM2MClientOtaInfo infoFW) {
         String fileName = infoFW == null || StringUtils.isEmpty(infoFW.getFileName()) ? FW_DATA_FILE_NANE_DEF : infoFW.getFileName();
-        return getOtaFolder() + "/" + fileName;
+        return otaContext.resolve(fileName).toString();
     }
 
     private void saveOtaInfoUpdateFwWithObject19(byte[] data) {
         if (data != null && data.length > 0) {
-            LwM2MClientOtaInfo infoFw = getOtaInfoUpdateFw();
-            if (infoFw == null ) {
-                String fileChecksumSHA256 = Hashing.sha256().hashBytes(data).toString();
-                infoFw = new LwM2MClientOtaInfo();
-                infoFw.setType(OtaPackageType.FIRMWARE);
-                infoFw.setFileName(FW_DATA_FILE_NANE_DEF);
-                infoFw.setChecksum(fileChecksumSHA256);
-                infoFw.setDataSize(data.length);
-                setOtaInfoUpdateFw(infoFw);
-                log.info("Create new FW info with default params.");
+            if (otaContext.getFwUpdateInfo() == null) {
+                this.createOtaInfoUpdateFw(Hashing.sha256().hashBytes(data).toString(), data.length);
             }
         } else {
-            setOtaInfoUpdateFw(null);
+            otaContext.setFwUpdateInfo(null);
             log.info("New FW info is not Created with default params (PackageURI + testObject). data = null");
-            String path = getOtaFolder();
-            deleteOtaFiles(Paths.get(path), PREF_FW);
+            Path path = otaContext.getFolder();
+            deleteOtaFiles(path, PREF_FW);
+            this.setPackageBlob(null);
             log.info("Delete all FW files from path: [{}/{}...]", path, PREF_FW);
         }
     }
+
+    private void createOtaInfoUpdateFw(String checksum, long size) {
+        LwM2MClientOtaInfo infoFw = new LwM2MClientOtaInfo();
+        infoFw.setType(OtaPackageType.FIRMWARE);
+        infoFw.setFileName(FW_DATA_FILE_NANE_DEF);
+        infoFw.setChecksum(checksum);
+        infoFw.setDataSize((int) size);
+        otaContext.setFwUpdateInfo(infoFw);
+        log.info("Create new FW info with default params.");
+    }
 }
@@ -19,6 +19,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.leshan.client.resource.BaseInstanceEnabler;
 import org.eclipse.leshan.client.servers.LwM2mServer;
+import org.eclipse.leshan.core.Destroyable;
 import org.eclipse.leshan.core.model.ObjectModel;
 import org.eclipse.leshan.core.model.ResourceModel;
 import org.eclipse.leshan.core.node.LwM2mMultipleResource;
@@ -27,14 +28,17 @@ import org.eclipse.leshan.core.response.ReadResponse;
 import org.eclipse.leshan.core.response.WriteResponse;
 import org.thingsboard.lwm2m.demo.client.entities.LwM2MClientOtaInfo;
 import org.thingsboard.lwm2m.demo.client.entities.OtaPackageType;
+import org.thingsboard.lwm2m.demo.client.ota.OtaContext;
+import org.thingsboard.lwm2m.demo.client.scheduler.HashedWheelScheduler;
+import org.thingsboard.lwm2m.demo.client.scheduler.ScheduledTask;
 import org.thingsboard.lwm2m.demo.client.util.Utils;
 
-import javax.security.auth.Destroyable;
 import java.sql.Time;
 import java.time.Instant;
 import java.time.LocalTime;
 import java.time.ZoneId;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 import static org.thingsboard.lwm2m.demo.client.util.Utils.*;
 
@@ -69,15 +73,24 @@ public class LwM2mBinaryAppDataContainer extends BaseInstanceEnabler implements
      * },
      */
 
-    Map<Integer, byte[]> data;
     private Integer priority = 0;
-    private Time timestamp;
+    private volatile Timestamp timestamp;
     private String description;
     private String dataFormat;
     private Integer appID = -1;
     private static final List<Integer> supportedResources = Arrays.asList(0, 1, 2, 3, 4, 5);
-    private final Timer timer;
+    private final ScheduledTask notifyTask;
+    private final NotificationCoalescer notifications = new NotificationCoalescer(this);
     private final Random rng = new Random();
+    // resource 0 and its response, replaced together by writes so that a read never returns older data
+    private volatile DataState dataState;
+    private final ReadResponseCache priorityResponse = new ReadResponseCache(1);
+    private final ReadResponseCache timestampResponse = new ReadResponseCache(2);
+    private final ReadResponseCache descriptionResponse = new ReadResponseCache(3);
+    private final ReadResponseCache dataFormatResponse = new ReadResponseCache(4);
+    private final ReadResponseCache appIdResponse = new ReadResponseCache(5);
+    // receives the OTA information written to instances 65533 / 65534, null if not used for OTA
+    private final OtaContext otaContext;
 
     public LwM2mBinaryAppDataContainer() {
         // notify new date each 5 second
@@ -85,59 +98,63 @@ public class LwM2mBinaryAppDataContainer extends BaseInstanceEnabler implements
     }
 
     public LwM2mBinaryAppDataContainer(Integer timeDataFrequency) {
-        // notify new date each 5 second
-        this.timer = new Timer("Id = [19] BinaryAppDataContainer -> schedule Time period = [" + timeDataFrequency + "] sec");
-        timer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                fireResourceChange(0);
-                fireResourceChange(2);
-            }
-        }, timeDataFrequency*1000, timeDataFrequency*1000);
+        this(timeDataFrequency, null);
     }
 
     public LwM2mBinaryAppDataContainer(Integer timeDataFrequency, Integer id) {
+        this(timeDataFrequency, id, HashedWheelScheduler.getDefault());
+    }
+
+    public LwM2mBinaryAppDataContainer(Integer timeDataFrequency, Integer id, HashedWheelScheduler scheduler) {
+        this(timeDataFrequency, id, scheduler, null);
+    }
+
+    public LwM2mBinaryAppDataContainer(Integer timeDataFrequency, Integer id, HashedWheelScheduler scheduler,
+                                       OtaContext otaContext) {
         if (id != null) this.setId(id);
+        this.otaContext = otaContext;
         // notify new date each 5 second
-        this.timer = new Timer("Id = [19] BinaryAppDataContainer -> schedule Time period = [" + timeDataFrequency + "] sec");
-        timer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                fireResourceChange(0);
-                fireResourceChange(2);
-            }
-        }, timeDataFrequency*1000, timeDataFrequency*1000);
+        this.notifyTask = scheduler.schedulePeriodic(() -> notifications.fireResourcesChange(0, 2),
+                timeDataFrequency, timeDataFrequency, TimeUnit.SECONDS);
     }
 
     @Override
     public ReadResponse read(LwM2mServer server, int resourceId) {
         try {
-            Object value;
             switch (resourceId) {
-                case 0:
-                    value = getData();
-                    printReadLog(server, getModel().name, getModel().id, getId(), resourceId, printMap ((Map<Integer, ?>) value) );
-                    return  ReadResponse.success(resourceId, (Map<Integer, ?>) value, ResourceModel.Type.OPAQUE);
-                case 1:
-                    value = getPriority();
+                case 0: {
+                    DataState state = getDataState();
+                    if (isReadLogEnabled(server)) {
+                        printReadLog(server, getModel().name, getModel().id, getId(), resourceId,
+                                printMap(state.data()));
+                    }
+                    return state.response();
+                }
+                case 1: {
+                    int value = getPriority();
                     printReadLog(server, getModel().name, getModel().id, getId(), resourceId, value);
-                    return ReadResponse.success(resourceId, (int) value);
-                case 2:
-                    value = getTimestamp();
+                    return priorityResponse.integer(value);
+                }
+                case 2: {
+                    Time value = getTimestamp();
                     printReadLog(server, getModel().name, getModel().id, getId(), resourceId, value);
-                    return ReadResponse.success(resourceId, (Time) value);
-                case 3:
-                    value = getDescription();
+                    return timestampResponse.time(value.getTime());
+                }
+                case 3: {
+                    String value = getDescription();
                     printReadLog(server, getModel().name, getModel().id, getId(), resourceId, value);
-                    return ReadResponse.success(resourceId, (String) value);
-                case 4:
-                    value = getDataFormat();
+                    return descriptionResponse.string(value);
+                }
+                case 4: {
+                    String value = getDataFormat();
                     printReadLog(server, getModel().name, getModel().id, getId(), resourceId, value);
-                    return ReadResponse.success(resourceId, (String) value);
-                case 5:
-                    value = getAppID();
+                    return dataFormatResponse.string(value);
+                }
+                case 5: {
+                    int value = getAppID();
                     printReadLog(server, getModel().name, getModel().id, getId(), resourceId, value);
-                    return ReadResponse.success(resourceId, (Integer) value);
+                    return appIdResponse.integer(value);
+                }
                 default:
                     return super.read(server, resourceId);
             }
@@ -152,30 +169,30 @@ public class LwM2mBinaryAppDataContainer extends BaseInstanceEnabler implements
         switch (resourceId) {
             case 0:
                 if (setData(value, replace)) {
-                    fireResourceChange(resourceId);
+                    notifications.fireResourcesChange(resourceId);
                     return WriteResponse.success();
                 } else {
                     return WriteResponse.badRequest("Invalidate value ...");
                 }
             case 1:
                 setPriority((Integer) (value.getValue() instanceof Long ? ((Long) value.getValue()).intValue() : value.getValue()));
-                fireResourceChange(resourceId);
+                notifications.fireResourcesChange(resourceId);
                 return WriteResponse.success();
             case 2:
                 setTimestamp();
-                fireResourceChange(resourceId);
+                notifications.fireResourcesChange(resourceId);
                 return WriteResponse.success();
             case 3:
                 setDescription((String) value.getValue());
-                fireResourceChange(resourceId);
+                notifications.fireResourcesChange(resourceId);
                 return WriteResponse.success();
             case 4:
                 setDataFormat((String) value.getValue());
-                fireResourceChange(resourceId);
+                notifications.fireResourcesChange(resourceId);
                 return WriteResponse.success();
             case 5:
                 setAppID((Integer) value.getValue());
-                fireResourceChange(resourceId);
+                notifications.fireResourcesChange(resourceId);
                 return WriteResponse.success();
             default:
                 return super.write(identity, replace, resourceId, value);
@@ -208,23 +225,31 @@ public class LwM2mBinaryAppDataContainer extends BaseInstanceEnabler implements
 
     private void setTimestamp() {
         long currentTimeMillis = System.currentTimeMillis();
-        this.timestamp = new Time(currentTimeMillis);
+        this.timestamp = new Timestamp(Long.MIN_VALUE, new Time(currentTimeMillis));
     }
 
+    /**
+     * Local time of day, rebuilt only when the second changes.
+     */
     private Time getTimestamp() {
-        LocalTime localTime = LocalTime.ofInstant(Instant.now(), ZoneId.systemDefault());
-        this.timestamp = Time.valueOf(localTime);
-        return this.timestamp;
+        long second = Math.floorDiv(System.currentTimeMillis(), 1000);
+        Timestamp current = this.timestamp;
+        if (current == null || current.second != second) {
+            LocalTime localTime = LocalTime.ofInstant(Instant.ofEpochSecond(second), ZoneId.systemDefault());
+            current = new Timestamp(second, Time.valueOf(localTime));
+            this.timestamp = current;
+        }
+        return current.time;
     }
 
-    private boolean setData(LwM2mResource value, boolean replace) {
+    private synchronized boolean setData(LwM2mResource value, boolean replace) {
         try {
             if (value instanceof LwM2mMultipleResource) {
-                if (replace || this.data == null) {
-                    this.data = new HashMap<>();
-                }
+                DataState current = dataState;
+                Map<Integer, byte[]> data = replace || current == null ? new HashMap<>()
+                        : new HashMap<>(current.data());
                 value.getInstances().values().forEach(v -> {
-                    this.data.put(v.getId(), (byte[]) v.getValue());
+                    data.put(v.getId(), (byte[]) v.getValue());
                     if (FW_INFO_19_INSTANCE_ID.equals(this.id) || SW_INFO_19_INSTANCE_ID.equals(this.id)) {
                         String infoNodeStr = new String((byte[]) v.getValue());
                         JsonNode infoNode = Utils.toJsonNode(infoNodeStr);
@@ -237,11 +262,16 @@ public class LwM2mBinaryAppDataContainer extends BaseInstanceEnabler implements
                         }
                         otaInfo.setType(otaPackageType);
                         otaInfo.setFileName(fileName);
-                        setOtaInfoUpdate(otaInfo);
+                        if (otaContext != null) {
+                            otaContext.setUpdateInfo(otaInfo);
+                        } else {
+                            log.warn("No OTA context for /19/{}, otainfo ignored: [{}]", this.id, otaInfo);
+                        }
                         log.info("otainfo: [{}], value: {}", otaInfo, v.getValue());
 
                     }
                 });
+                dataState = new DataState(data);
                 return true;
             } else {
                 return false;
@@ -251,13 +281,20 @@ public class LwM2mBinaryAppDataContainer extends BaseInstanceEnabler implements
         }
     }
 
-    private Map<Integer, byte[]> getData() {
-        if (data == null) {
-            this.data = new HashMap<>();
-            int newData = rng.nextInt(20);
-            this.data.put(0, new byte[]{(byte) newData});
+    private DataState getDataState() {
+        DataState state = dataState;
+        if (state == null) {
+            synchronized (this) {
+                state = dataState;
+                if (state == null) {
+                    Map<Integer, byte[]> data = new HashMap<>();
+                    data.put(0, new byte[]{(byte) rng.nextInt(20)});
+                    state = new DataState(data);
+                    dataState = state;
+                }
+            }
         }
-        return data;
+        return state;
     }
 
     @Override
@@ -267,6 +304,7 @@ public class LwM2mBinaryAppDataContainer extends BaseInstanceEnabler implements
 
     @Override
     public void destroy() {
+        notifyTask.cancel();
     }
 
     private int getPriority() {
@@ -276,4 +314,17 @@ public class LwM2mBinaryAppDataContainer extends BaseInstanceEnabler implements
     private void setPriority(int value) {
         this.priority = value;
     }
+
+    private record Timestamp(long second, Time time) {
+    }
+
+    /**
+     * Value of resource 0, never modified once published, and its read response built from it.
+     */
+    private record DataState(Map<Integer, byte[]> data, ReadResponse response) {
+
+        DataState(Map<Integer, byte[]> data) {
+            this(data, ReadResponse.success(0, data, ResourceModel.Type.OPAQUE));
+        }
+    }
 }
@@ -29,22 +29,23 @@ import org.eclipse.leshan.core.response.ReadResponse;
 import org.eclipse.leshan.core.response.WriteResponse;
 import org.eclipse.leshan.core.util.StringUtils;
 import org.thingsboard.lwm2m.demo.client.entities.LwM2MClientOtaInfo;
+import org.thingsboard.lwm2m.demo.client.ota.OtaContext;
+import org.thingsboard.lwm2m.demo.client.scheduler.HashedWheelScheduler;
+import org.thingsboard.lwm2m.demo.client.scheduler.ScheduledTask;
 import org.thingsboard.lwm2m.demo.client.util.Utils;
 
+import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Calendar;
-import java.util.Date;
+import java.util.Collections;
 import java.util.EnumSet;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Random;
 import java.util.TimeZone;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
 
-import static org.thingsboard.lwm2m.demo.client.util.Utils.getPathInfoOtaFw;
+import static org.thingsboard.lwm2m.demo.client.util.Utils.OTA_FOLDER_DEF;
 import static org.thingsboard.lwm2m.demo.client.util.Utils.printReadLog;
 import static org.thingsboard.lwm2m.demo.client.util.Utils.readOtaInfoFromFile;
 
@@ -54,29 +55,69 @@ public class MyDevice extends BaseInstanceEnabler implements Destroyable {
     private static final Random RANDOM = new Random();
     private static final List<Integer> supportedResources = Arrays.asList(0, 1, 2, 3, 9, 10, 11, 13, 14, 15, 16, 17, 18,
             19, 20, 21);
+    private static final String SUPPORTED_BINDING = BindingMode.toString(EnumSet.of(BindingMode.U, BindingMode.T));
 
-    private final Timer timer;
+    // read responses are immutable: values from a small domain are built once, others are rebuilt on change only
+    private static final ReadResponse[] BATTERY_LEVELS = new ReadResponse[101];
+    private static final ReadResponse[] BATTERY_STATUSES = new ReadResponse[7];
+    private static final ReadResponse ERROR_CODES = ReadResponse.success(11, Collections.singletonMap(0, 0L),
+            Type.INTEGER);
+
+    static {
+        for (int i = 0; i < BATTERY_LEVELS.length; i++) {
+            BATTERY_LEVELS[i] = ReadResponse.success(9, i);
+        }
+        for (int i = 0; i < BATTERY_STATUSES.length; i++) {
+            BATTERY_STATUSES[i] = ReadResponse.success(20, i);
+        }
+    }
+
+    private final HashedWheelScheduler scheduler;
+    private final ScheduledTask notifyTask;
+    private final NotificationCoalescer notifications = new NotificationCoalescer(this);
+    private final ReadResponseCache manufacturer = new ReadResponseCache(0);
+    private final ReadResponseCache modelNumber = new ReadResponseCache(1);
+    private final ReadResponseCache serialNumber = new ReadResponseCache(2);
+    private final ReadResponseCache firmwareVersionResponse = new ReadResponseCache(3);
+    private final ReadResponseCache memoryFree = new ReadResponseCache(10);
+    private final ReadResponseCache currentTime = new ReadResponseCache(13);
+    private final ReadResponseCache utcOffsetResponse = new ReadResponseCache(14);
+    private final ReadResponseCache timezoneResponse = new ReadResponseCache(15);
+    private final ReadResponseCache supportedBinding = new ReadResponseCache(16);
+    private final ReadResponseCache deviceType = new ReadResponseCache(17);
+    private final ReadResponseCache hardwareVersion = new ReadResponseCache(18);
+    private final ReadResponseCache softwareVersion = new ReadResponseCache(19);
+    private final ReadResponseCache memoryTotal = new ReadResponseCache(21);
     private String firmwareVersion;
+    // sampled by the periodic task, so that a notification reads the value compared with the last notified one
+    private volatile int batteryLevel = RANDOM.nextInt(BATTERY_LEVELS.length);
+    private volatile int batteryStatus = RANDOM.nextInt(BATTERY_STATUSES.length);
 
     public MyDevice() {
         this(5);
     }
 
     public MyDevice(Integer timeDataFrequency) {
-        this.initOtaFw();
+        this(timeDataFrequency, HashedWheelScheduler.getDefault());
+    }
+
+    public MyDevice(Integer timeDataFrequency, HashedWheelScheduler scheduler) {
+        this(timeDataFrequency, scheduler, new OtaContext(Paths.get(OTA_FOLDER_DEF)));
+    }
+
+    /**
+     * @param otaContext folder of the firmware information of this client, giving the initial firmware version
+     */
+    public MyDevice(Integer timeDataFrequency, HashedWheelScheduler scheduler, OtaContext otaContext) {
+        this.initOtaFw(otaContext);
+        this.scheduler = scheduler;
         // notify new date each 5 second Default
-        this.timer = new Timer("Id = [3] Device -> schedule Time period = [" + timeDataFrequency + "] sec");
-        timer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                fireResourceChange(13);
-                fireResourceChange(9);
-            }
-        }, timeDataFrequency*1000, timeDataFrequency*1000);
+        this.notifyTask = scheduler.schedulePeriodic(this::sampleResources, timeDataFrequency, timeDataFrequency,
+                TimeUnit.SECONDS);
     }
 
-    private void initOtaFw() {
-        LwM2MClientOtaInfo infoFw = readOtaInfoFromFile(getPathInfoOtaFw());
+    private void initOtaFw(OtaContext otaContext) {
+        LwM2MClientOtaInfo infoFw = readOtaInfoFromFile(otaContext.getFwInfoPath());
         if (infoFw != null) {
             this.setFirmwareVersion(infoFw.getVersion());
         }
@@ -84,73 +125,65 @@ public class MyDevice extends BaseInstanceEnabler implements Destroyable {
 
     @Override
     public ReadResponse read(LwM2mServer server, int resourceId) {
-        Object value;
         switch (resourceId) {
             case 0:
-                value = getManufacturer();
-                printReadLog(server, getModel().name, getModel().id, getId(), resourceId, value);
-                return ReadResponse.success(resourceId, (String) value);
+                printReadLog(server, getModel().name, getModel().id, getId(), resourceId, getManufacturer());
+                return manufacturer.string(getManufacturer());
             case 1:
-                value = getModelNumber();
-                printReadLog(server, getModel().name, getModel().id, getId(), resourceId, value);
-                return ReadResponse.success(resourceId, (String) value);
+                printReadLog(server, getModel().name, getModel().id, getId(), resourceId, getModelNumber());
+                return modelNumber.string(getModelNumber());
             case 2:
-                value = getSerialNumber();
-                printReadLog(server, getModel().name, getModel().id, getId(), resourceId, value);
-                return ReadResponse.success(resourceId, (String) value);
+                printReadLog(server, getModel().name, getModel().id, getId(), resourceId, getSerialNumber());
+                return serialNumber.string(getSerialNumber());
             case 3:
-                value = getFirmwareVersion();
-                printReadLog(server, getModel().name, getModel().id, getId(), resourceId, value);
-                return ReadResponse.success(resourceId, (String) value);
-            case 9:
-                value = getBatteryLevel();
+                printReadLog(server, getModel().name, getModel().id, getId(), resourceId, getFirmwareVersion());
+                return firmwareVersionResponse.string(getFirmwareVersion());
+            case 9: {
+                int value = getBatteryLevel();
                 printReadLog(server, getModel().name, getModel().id, getId(), resourceId, value);
-                return ReadResponse.success(resourceId, (int) value);
-            case 10:
-                value = getMemoryFree();
+                return BATTERY_LEVELS[value];
+            }
+            case 10: {
+                long value = getMemoryFree();
                 printReadLog(server, getModel().name, getModel().id, getId(), resourceId, value);
-                return ReadResponse.success(resourceId, (long) value);
+                return memoryFree.integer(value);
+            }
             case 11:
-                Map<Integer, Long> errorCodes = new HashMap<>();
-                errorCodes.put(0, getErrorCode());
-                printReadLog(server, getModel().name, getModel().id, getId(), resourceId, errorCodes);
-                return ReadResponse.success(resourceId, errorCodes, Type.INTEGER);
-            case 13:
-                value = getCurrentTime();
+                printReadLog(server, getModel().name, getModel().id, getId(), resourceId, ERROR_CODES.getContent());
+                return ERROR_CODES;
+            case 13: {
+                long value = getCurrentTime();
                 printReadLog(server, getModel().name, getModel().id, getId(), resourceId, value);
-                return ReadResponse.success(resourceId, (Date) value);
+                return currentTime.time(value);
+            }
             case 14:
-                value = getUtcOffset();
-                printReadLog(server, getModel().name, getModel().id, getId(), resourceId, value);
-                return ReadResponse.success(resourceId, (String) value);
+                printReadLog(server, getModel().name, getModel().id, getId(), resourceId, getUtcOffset());
+                return utcOffsetResponse.string(getUtcOffset());
             case 15:
-                value = getTimezone();
-                printReadLog(server, getModel().name, getModel().id, getId(), resourceId, value);
-                return ReadResponse.success(resourceId, (String) value);
+                printReadLog(server, getModel().name, getModel().id, getId(), resourceId, getTimezone());
+                return timezoneResponse.string(getTimezone());
             case 16:
-                value = getSupportedBinding();
-                printReadLog(server, getModel().name, getModel().id, getId(), resourceId, value);
-                return ReadResponse.success(resourceId, (String) value);
+                printReadLog(server, getModel().name, getModel().id, getId(), resourceId, getSupportedBinding());
+                return supportedBinding.string(getSupportedBinding());
             case 17:
-                value = getDeviceType();
-                printReadLog(server, getModel().name, getModel().id, getId(), resourceId, value);
-                return ReadResponse.success(resourceId, (String) value);
+                printReadLog(server, getModel().name, getModel().id, getId(), resourceId, getDeviceType());
+                return deviceType.string(getDeviceType());
             case 18:
-                value = getHardwareVersion();
-                printReadLog(server, getModel().name, getModel().id, getId(), resourceId, value);
-                return ReadResponse.success(resourceId, (String) value);
+                printReadLog(server, getModel().name, getModel().id, getId(), resourceId, getHardwareVersion());
+                return hardwareVersion.string(getHardwareVersion());
             case 19:
-                value = getSoftwareVersion();
-                printReadLog(server, getModel().name, getModel().id, getId(), resourceId, value);
-                return ReadResponse.success(resourceId, (String) value);
-            case 20:
-                value = getBatteryStatus();
+                printReadLog(server, getModel().name, getModel().id, getId(), resourceId, getSoftwareVersion());
+                return softwareVersion.string(getSoftwareVersion());
+            case 20: {
+                int value = getBatteryStatus();
                 printReadLog(server, getModel().name, getModel().id, getId(), resourceId, value);
-                return ReadResponse.success(resourceId, (int) value);
-            case 21:
-                value = getMemoryTotal();
+                return BATTERY_STATUSES[value];
+            }
+            case 21: {
+                long value = getMemoryTotal();
                 printReadLog(server, getModel().name, getModel().id, getId(), resourceId, value);
-                return ReadResponse.success(resourceId, (long) value);
+                return memoryTotal.integer(value);
+            }
             default:
                 return super.read(server, resourceId);
         }
@@ -178,11 +211,11 @@ public class MyDevice extends BaseInstanceEnabler implements Destroyable {
                 return WriteResponse.notFound();
             case 14:
                 setUtcOffset((String) value.getValue());
-                fireResourceChange(resourceid);
+                notifications.fireResourcesChange(resourceid);
                 return WriteResponse.success();
             case 15:
                 setTimezone((String) value.getValue());
-                fireResourceChange(resourceid);
+                notifications.fireResourcesChange(resourceid);
                 return WriteResponse.success();
             default:
                 return super.write(server, replace, resourceid, value);
@@ -209,20 +242,22 @@ public class MyDevice extends BaseInstanceEnabler implements Destroyable {
         this.firmwareVersion = firmwareVersion;
     }
 
-    private long getErrorCode() {
-        return 0;
+    private void sampleResources() {
+        batteryLevel = RANDOM.nextInt(BATTERY_LEVELS.length);
+        batteryStatus = RANDOM.nextInt(BATTERY_STATUSES.length);
+        notifications.fireResourcesChange(13, 9, 20);
     }
 
     private int getBatteryLevel() {
-        return RANDOM.nextInt(101);
+        return batteryLevel;
     }
 
     private long getMemoryFree() {
         return Runtime.getRuntime().freeMemory() / 1024;
     }
 
-    private Date getCurrentTime() {
-        return new Date();
+    private long getCurrentTime() {
+        return System.currentTimeMillis();
     }
 
     private String utcOffset = new SimpleDateFormat("X").format(Calendar.getInstance().getTime());
@@ -246,7 +281,7 @@ public class MyDevice extends BaseInstanceEnabler implements Destroyable {
     }
 
     private String getSupportedBinding() {
-        return BindingMode.toString(EnumSet.of(BindingMode.U, BindingMode.T));
+        return SUPPORTED_BINDING;
     }
 
     private String getDeviceType() {
@@ -262,7 +297,7 @@ public class MyDevice extends BaseInstanceEnabler implements Destroyable {
     }
 
     private int getBatteryStatus() {
-        return RANDOM.nextInt(7);
+        return batteryStatus;
     }
 
     private long getMemoryTotal() {
@@ -275,21 +310,14 @@ public class MyDevice extends BaseInstanceEnabler implements Destroyable {
     }
 
     public void triggerRebootClient() {
-        new Timer("Reboot LwM2MClient").schedule(new TimerTask() {
-            @Override
-            public void run() {
-                getLwM2mClient().stop(true);
-                try {
-                    Thread.sleep(500);
-                } catch (InterruptedException e) {
-                }
-                getLwM2mClient().start();
-            }
-        }, 500);
+        scheduler.schedule(() -> {
+            getLwM2mClient().stop(true);
+            scheduler.schedule(() -> getLwM2mClient().start(), 500, TimeUnit.MILLISECONDS);
+        }, 500, TimeUnit.MILLISECONDS);
     }
 
     @Override
     public void destroy() {
-        timer.cancel();
+        notifyTask.cancel();
     }
 }
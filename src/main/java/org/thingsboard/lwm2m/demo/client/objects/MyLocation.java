@@ -19,20 +19,22 @@ import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.leshan.client.resource.BaseInstanceEnabler;
 import org.eclipse.leshan.client.servers.LwM2mServer;
+import org.eclipse.leshan.core.Destroyable;
 import org.eclipse.leshan.core.model.ObjectModel;
 import org.eclipse.leshan.core.response.ReadResponse;
+import org.thingsboard.lwm2m.demo.client.scheduler.HashedWheelScheduler;
+import org.thingsboard.lwm2m.demo.client.scheduler.ScheduledTask;
 
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.Random;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
 
 import static org.thingsboard.lwm2m.demo.client.util.Utils.printReadLog;
 
 @Slf4j
-public class MyLocation extends BaseInstanceEnabler {
+public class MyLocation extends BaseInstanceEnabler implements Destroyable {
 
     private static final List<Integer> supportedResources = Arrays.asList(0, 1, 5);
     private static final Random RANDOM = new Random();
@@ -42,13 +44,22 @@ public class MyLocation extends BaseInstanceEnabler {
     private final float scaleFactor;
     @Getter
     private Date timestamp;
-    private final Timer timer;
+    private final ReadResponseCache latitudeResponse = new ReadResponseCache(0);
+    private final ReadResponseCache longitudeResponse = new ReadResponseCache(1);
+    private final ReadResponseCache timestampResponse = new ReadResponseCache(5);
+    private final ScheduledTask notifyTask;
+    private final NotificationCoalescer notifications = new NotificationCoalescer(this);
 
     public MyLocation() {
         this(5, null, null, 1.0f);
     }
 
     public MyLocation(Integer timeDataFrequency, Float latitude, Float longitude, float scaleFactor) {
+        this(timeDataFrequency, latitude, longitude, scaleFactor, HashedWheelScheduler.getDefault());
+    }
+
+    public MyLocation(Integer timeDataFrequency, Float latitude, Float longitude, float scaleFactor,
+            HashedWheelScheduler scheduler) {
         if (latitude != null) {
             this.latitude = latitude + 90f;
         } else {
@@ -61,33 +72,28 @@ public class MyLocation extends BaseInstanceEnabler {
         }
         this.scaleFactor = scaleFactor;
         this.timestamp = new Date();
-        this.timer = new Timer("Id = [3] Device -> schedule Time period = [" + timeDataFrequency + "] sec");
-        timer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                fireResourceChange(0);
-                fireResourceChange(1);
-                fireResourceChange(5);
-            }
-        }, timeDataFrequency*1000, timeDataFrequency*1000);
+        this.notifyTask = scheduler.schedulePeriodic(() -> notifications.fireResourcesChange(0, 1, 5),
+                timeDataFrequency, timeDataFrequency, TimeUnit.SECONDS);
     }
 
     @Override
     public ReadResponse read(LwM2mServer server, int resourceId) {
-        Object value;
         switch (resourceId) {
-        case 0:
-            value = getLatitude();
+        case 0: {
+            float value = getLatitude();
             printReadLog(server, getModel().name, getModel().id, getId(), resourceId, value);
-            return ReadResponse.success(resourceId, (float) value);
-        case 1:
-            value = getLongitude();
+            return latitudeResponse.floating(value);
+        }
+        case 1: {
+            float value = getLongitude();
             printReadLog(server, getModel().name, getModel().id, getId(), resourceId, value);
-            return ReadResponse.success(resourceId, (float) value);
-        case 5:
-            value = getTimestamp();
+            return longitudeResponse.floating(value);
+        }
+        case 5: {
+            Date value = getTimestamp();
             printReadLog(server, getModel().name, getModel().id, getId(), resourceId, value);
-            return ReadResponse.success(resourceId, (Date) value);
+            return timestampResponse.time(value.getTime());
+        }
         default:
             return super.read(server, resourceId);
         }
@@ -117,13 +123,13 @@ public class MyLocation extends BaseInstanceEnabler {
     private void moveLatitude(float delta) {
         this.latitude = this.latitude + delta * this.scaleFactor;
         this.timestamp = new Date();
-        fireResourcesChange(getResourcePath(0), getResourcePath(5));
+        notifications.fireResourcesChange(0, 5);
     }
 
     private void moveLongitude(float delta) {
         this.longitude = this.longitude + delta * this.scaleFactor;
         this.timestamp = new Date();
-        fireResourcesChange(getResourcePath(1), getResourcePath(5));
+        notifications.fireResourcesChange(1, 5);
     }
 
     public float getLatitude() {
@@ -138,4 +144,9 @@ public class MyLocation extends BaseInstanceEnabler {
     public List<Integer> getAvailableResourceIds(ObjectModel model) {
         return supportedResources;
     }
+
+    @Override
+    public void destroy() {
+        notifyTask.cancel();
+    }
 }
@@ -0,0 +1,92 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client.objects;
+
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.leshan.client.resource.BaseInstanceEnabler;
+import org.eclipse.leshan.client.servers.LwM2mServer;
+import org.eclipse.leshan.core.node.LwM2mNode;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.response.ReadResponse;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Sits in front of {@link BaseInstanceEnabler#fireResourcesChange(LwM2mPath...)}.
+ * <p>
+ * Resources are marked dirty, then on {@link #flush()} each dirty resource is read (as {@link LwM2mServer#SYSTEM}) and
+ * compared to the value of the last notification. Unchanged resources are dropped and the changed ones are reported
+ * in one batched change event, so a tick ends with at most one notification pass per instance.
+ */
+@Slf4j
+public class NotificationCoalescer {
+
+    private final BaseInstanceEnabler enabler;
+    // guarded by this
+    private final Set<Integer> dirtyResources = new TreeSet<>();
+    private final Map<Integer, LwM2mNode> lastNotifiedValues = new HashMap<>();
+
+    public NotificationCoalescer(BaseInstanceEnabler enabler) {
+        this.enabler = enabler;
+    }
+
+    public synchronized void markDirty(int... resourceIds) {
+        for (int resourceId : resourceIds) {
+            dirtyResources.add(resourceId);
+        }
+    }
+
+    /**
+     * Mark resources dirty and flush immediately.
+     */
+    public void fireResourcesChange(int... resourceIds) {
+        markDirty(resourceIds);
+        flush();
+    }
+
+    public void flush() {
+        List<LwM2mPath> changedPaths;
+        synchronized (this) {
+            if (dirtyResources.isEmpty() || enabler.getModel() == null || enabler.getId() == null) {
+                // not yet attached to an object enabler
+                return;
+            }
+            changedPaths = new ArrayList<>(dirtyResources.size());
+            for (Integer resourceId : dirtyResources) {
+                ReadResponse response = enabler.read(LwM2mServer.SYSTEM, resourceId);
+                LwM2mNode value = response.isSuccess() ? response.getContent() : null;
+                LwM2mNode previous = value == null ? lastNotifiedValues.remove(resourceId)
+                        : lastNotifiedValues.put(resourceId, value);
+                if (value == null || !value.equals(previous)) {
+                    changedPaths.add(new LwM2mPath(enabler.getModel().id, enabler.getId(), resourceId));
+                }
+            }
+            if (log.isTraceEnabled()) {
+                log.trace("/{}/{} dirty resources {}, changed {}", enabler.getModel().id, enabler.getId(),
+                        dirtyResources, changedPaths);
+            }
+            dirtyResources.clear();
+        }
+        if (!changedPaths.isEmpty()) {
+            enabler.fireResourcesChange(changedPaths.toArray(new LwM2mPath[0]));
+        }
+    }
+}
@@ -20,19 +20,20 @@ import org.eclipse.leshan.client.resource.BaseInstanceEnabler;
 import org.eclipse.leshan.client.servers.LwM2mServer;
 import org.eclipse.leshan.core.Destroyable;
 import org.eclipse.leshan.core.model.ObjectModel;
+import org.eclipse.leshan.core.node.LwM2mObjectInstance;
+import org.eclipse.leshan.core.node.LwM2mResource;
 import org.eclipse.leshan.core.request.argument.Arguments;
 import org.eclipse.leshan.core.response.ExecuteResponse;
 import org.eclipse.leshan.core.response.ReadResponse;
-import org.eclipse.leshan.core.util.NamedThreadFactory;
+import org.thingsboard.lwm2m.demo.client.scheduler.HashedWheelScheduler;
+import org.thingsboard.lwm2m.demo.client.scheduler.ScheduledTask;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.thingsboard.lwm2m.demo.client.util.Utils.printReadLog;
 
@@ -47,55 +48,72 @@ public class RandomTemperatureSensor extends BaseInstanceEnabler implements Dest
     private static final int RESET_MIN_MAX_MEASURED_VALUES = 5605;
     private static final List<Integer> supportedResources = Arrays.asList(SENSOR_VALUE, UNITS, MAX_MEASURED_VALUE,
             MIN_MEASURED_VALUE, RESET_MIN_MAX_MEASURED_VALUES);
-    private final ScheduledExecutorService scheduler;
+    private static final List<Integer> READABLE_RESOURCES = Arrays.asList(SENSOR_VALUE, UNITS, MIN_MEASURED_VALUE,
+            MAX_MEASURED_VALUE);
+    private static final ReadResponse UNITS_RESPONSE = ReadResponse.success(UNITS, UNIT_CELSIUS);
+    private final ScheduledTask adjustTask;
+    private final NotificationCoalescer notifications = new NotificationCoalescer(this);
     private final Random rng = new Random();
-    private double currentTemp = 20d;
-    private double minMeasuredValue = currentTemp;
-    private double maxMeasuredValue = currentTemp;
+    // readers never lock: state changes publish a new immutable snapshot
+    private final AtomicReference<Measure> measure = new AtomicReference<>(Measure.of(20d));
 
     public RandomTemperatureSensor() {
         this(5);
     }
 
     public RandomTemperatureSensor(Integer timeDataFrequency) {
-        this.scheduler = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("Id = 3303 - TemperatureSensor -> schedule Time period = [" + timeDataFrequency + "] sec"));
-        scheduler.scheduleAtFixedRate(new Runnable() {
-            @Override
-            public void run() {
-                adjustTemperature();
-            }
-        }, timeDataFrequency, timeDataFrequency, TimeUnit.SECONDS);
+        this(timeDataFrequency, HashedWheelScheduler.getDefault());
+    }
+
+    public RandomTemperatureSensor(Integer timeDataFrequency, HashedWheelScheduler scheduler) {
+        this.adjustTask = scheduler.schedulePeriodic(this::adjustTemperature, timeDataFrequency, timeDataFrequency,
+                TimeUnit.SECONDS);
+    }
+
+    @Override
+    public ReadResponse read(LwM2mServer server, int resourceId) {
+        ReadResponse response = read(server, resourceId, measure.get());
+        return response != null ? response : super.read(server, resourceId);
     }
 
+    /**
+     * Whole instance (read or observe of /3303/x): all resources come from the same snapshot, so sensor value and
+     * min/max are consistent with each other.
+     */
     @Override
-    public synchronized ReadResponse read(LwM2mServer server, int resourceId) {
-        Object value;
+    public ReadResponse read(LwM2mServer server) {
+        Measure current = measure.get();
+        List<LwM2mResource> resources = new ArrayList<>(READABLE_RESOURCES.size());
+        for (int resourceId : READABLE_RESOURCES) {
+            resources.add((LwM2mResource) read(server, resourceId, current).getContent());
+        }
+        return ReadResponse.success(new LwM2mObjectInstance(getId(), resources));
+    }
+
+    private ReadResponse read(LwM2mServer server, int resourceId, Measure current) {
         return switch (resourceId) {
             case MIN_MEASURED_VALUE -> {
-                value = getTwoDigitValue(minMeasuredValue);
-                printReadLog(server, getModel().name, getModel().id, getId(), resourceId, value);
-                yield ReadResponse.success(resourceId, (double)value);
+                printReadLog(server, getModel().name, getModel().id, getId(), resourceId, current.min);
+                yield current.minResponse;
             }
             case MAX_MEASURED_VALUE -> {
-                value = getTwoDigitValue(maxMeasuredValue);
-                printReadLog(server, getModel().name, getModel().id, getId(), resourceId, value);
-                yield ReadResponse.success(resourceId, (double)value);
+                printReadLog(server, getModel().name, getModel().id, getId(), resourceId, current.max);
+                yield current.maxResponse;
             }
             case SENSOR_VALUE -> {
-                value = getTwoDigitValue(currentTemp);
-                printReadLog(server, getModel().name, getModel().id, getId(), resourceId, getTwoDigitValue(currentTemp));
-                yield ReadResponse.success(resourceId, (double)value);
+                printReadLog(server, getModel().name, getModel().id, getId(), resourceId, current.value);
+                yield current.valueResponse;
             }
             case UNITS -> {
                 printReadLog(server, getModel().name, getModel().id, getId(), resourceId, UNIT_CELSIUS);
-                yield ReadResponse.success(resourceId, UNIT_CELSIUS);
+                yield UNITS_RESPONSE;
             }
-            default -> super.read(server, resourceId);
+            default -> null;
         };
     }
 
     @Override
-    public synchronized ExecuteResponse execute(LwM2mServer server, int resourceId, Arguments arguments) {
+    public ExecuteResponse execute(LwM2mServer server, int resourceId, Arguments arguments) {
         log.info("Execute on Temperature resource /{}/{}/{}", getModel().id, getId(), resourceId);
         switch (resourceId) {
         case RESET_MIN_MAX_MEASURED_VALUES:
@@ -110,37 +128,32 @@ public class RandomTemperatureSensor extends BaseInstanceEnabler implements Dest
 //        log.info("Read on Temperature resource /{}/{}/{} = {}", modelId, getId(), resourceId, value);
 //    }
 
-    private double getTwoDigitValue(double value) {
-        BigDecimal toBeTruncated = BigDecimal.valueOf(value);
-        return toBeTruncated.setScale(2, RoundingMode.HALF_UP).doubleValue();
+    /**
+     * Rounds half away from zero to 2 decimals, without allocating.
+     */
+    static double getTwoDigitValue(double value) {
+        return Math.copySign(Math.floor(Math.abs(value) * 100 + 0.5) / 100, value);
     }
 
     private void adjustTemperature() {
         float delta = (rng.nextInt(20) - 10) / 10f;
-        currentTemp += delta;
-        Integer changedResource = adjustMinMaxMeasuredValue(currentTemp);
-        if (changedResource != null) {
-            fireResourcesChange(getResourcePath(SENSOR_VALUE), getResourcePath(changedResource));
+        Measure previous;
+        Measure next;
+        do {
+            previous = measure.get();
+            next = previous.adjust(previous.rawValue + delta);
+        } while (!measure.compareAndSet(previous, next));
+        if (next.rawMax != previous.rawMax) {
+            notifications.fireResourcesChange(SENSOR_VALUE, MAX_MEASURED_VALUE);
+        } else if (next.rawMin != previous.rawMin) {
+            notifications.fireResourcesChange(SENSOR_VALUE, MIN_MEASURED_VALUE);
         } else {
-            fireResourceChange(SENSOR_VALUE);
-        }
-    }
-
-    private synchronized Integer adjustMinMaxMeasuredValue(double newTemperature) {
-        if (newTemperature > maxMeasuredValue) {
-            maxMeasuredValue = newTemperature;
-            return MAX_MEASURED_VALUE;
-        } else if (newTemperature < minMeasuredValue) {
-            minMeasuredValue = newTemperature;
-            return MIN_MEASURED_VALUE;
-        } else {
-            return null;
+            notifications.fireResourcesChange(SENSOR_VALUE);
         }
     }
 
     private void resetMinMaxMeasuredValues() {
-        minMeasuredValue = currentTemp;
-        maxMeasuredValue = currentTemp;
+        measure.updateAndGet(current -> Measure.of(current.rawValue));
     }
 
     @Override
@@ -150,6 +163,29 @@ public class RandomTemperatureSensor extends BaseInstanceEnabler implements Dest
 
     @Override
     public void destroy() {
-        scheduler.shutdown();
+        adjustTask.cancel();
+    }
+
+    /**
+     * Current, min and max temperatures with their read responses, built once by change.
+     */
+    private record Measure(double rawValue, double rawMin, double rawMax, double value, double min, double max,
+                           ReadResponse valueResponse, ReadResponse minResponse, ReadResponse maxResponse) {
+
+        static Measure of(double value) {
+            return of(value, value, value);
+        }
+
+        static Measure of(double rawValue, double rawMin, double rawMax) {
+            double value = getTwoDigitValue(rawValue);
+            double min = getTwoDigitValue(rawMin);
+            double max = getTwoDigitValue(rawMax);
+            return new Measure(rawValue, rawMin, rawMax, value, min, max, ReadResponse.success(SENSOR_VALUE, value),
+                    ReadResponse.success(MIN_MEASURED_VALUE, min), ReadResponse.success(MAX_MEASURED_VALUE, max));
+        }
+
+        Measure adjust(double newValue) {
+            return of(newValue, Math.min(rawMin, newValue), Math.max(rawMax, newValue));
+        }
     }
 }
@@ -0,0 +1,82 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client.objects;
+
+import org.eclipse.leshan.core.response.ReadResponse;
+
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * Last {@link ReadResponse} of one single-instance resource.
+ * <p>
+ * {@link ReadResponse} and its content are immutable, so as long as the value does not change the same response can be
+ * returned to every reader without allocating anything. The response is rebuilt when the value changes. Safe for
+ * concurrent readers: the value and its response are published together.
+ */
+class ReadResponseCache {
+
+    private final int resourceId;
+    private volatile Entry entry;
+
+    ReadResponseCache(int resourceId) {
+        this.resourceId = resourceId;
+    }
+
+    ReadResponse integer(long value) {
+        Entry e = entry;
+        if (e == null || e.key != value) {
+            e = new Entry(value, null, ReadResponse.success(resourceId, value));
+            entry = e;
+        }
+        return e.response;
+    }
+
+    ReadResponse floating(double value) {
+        long key = Double.doubleToLongBits(value);
+        Entry e = entry;
+        if (e == null || e.key != key) {
+            e = new Entry(key, null, ReadResponse.success(resourceId, value));
+            entry = e;
+        }
+        return e.response;
+    }
+
+    ReadResponse string(String value) {
+        Entry e = entry;
+        if (e == null || !Objects.equals(e.value, value)) {
+            e = new Entry(0, value, ReadResponse.success(resourceId, value));
+            entry = e;
+        }
+        return e.response;
+    }
+
+    /**
+     * LwM2M time has a precision of one second, the response is rebuilt when the second changes.
+     */
+    ReadResponse time(long epochMillis) {
+        long seconds = Math.floorDiv(epochMillis, 1000);
+        Entry e = entry;
+        if (e == null || e.key != seconds) {
+            e = new Entry(seconds, null, ReadResponse.success(resourceId, new Date(seconds * 1000)));
+            entry = e;
+        }
+        return e.response;
+    }
+
+    private record Entry(long key, Object value, ReadResponse response) {
+    }
+}
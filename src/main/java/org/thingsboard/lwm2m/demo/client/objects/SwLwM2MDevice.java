@@ -17,17 +17,9 @@ package org.thingsboard.lwm2m.demo.client.objects;
 
 import com.google.common.hash.Hashing;
 import lombok.extern.slf4j.Slf4j;
-import org.eclipse.californium.core.CoapClient;
-import org.eclipse.californium.core.CoapHandler;
-import org.eclipse.californium.core.CoapResponse;
-import org.eclipse.californium.core.coap.CoAP;
-import org.eclipse.californium.core.coap.Request;
-import org.eclipse.californium.core.config.CoapConfig;
-import org.eclipse.californium.core.network.CoapEndpoint;
-import org.eclipse.californium.elements.config.Configuration;
-import org.eclipse.californium.elements.util.DaemonThreadFactory;
 import org.eclipse.leshan.client.resource.BaseInstanceEnabler;
 import org.eclipse.leshan.client.servers.LwM2mServer;
+import org.eclipse.leshan.core.Destroyable;
 import org.eclipse.leshan.core.model.ObjectModel;
 import org.eclipse.leshan.core.node.LwM2mResource;
 import org.eclipse.leshan.core.request.argument.Argument;
@@ -38,25 +30,30 @@ import org.eclipse.leshan.core.response.WriteResponse;
 import org.eclipse.leshan.core.util.StringUtils;
 import org.thingsboard.lwm2m.demo.client.entities.LwM2MClientOtaInfo;
 import org.thingsboard.lwm2m.demo.client.entities.OtaPackageType;
+import org.thingsboard.lwm2m.demo.client.metrics.ClientMetrics;
+import org.thingsboard.lwm2m.demo.client.ota.OtaBlobStore;
+import org.thingsboard.lwm2m.demo.client.ota.OtaContext;
+import org.thingsboard.lwm2m.demo.client.ota.OtaDownloadEndpoints;
+import org.thingsboard.lwm2m.demo.client.ota.OtaDownloadFile;
+import org.thingsboard.lwm2m.demo.client.ota.OtaDwellTimes;
+import org.thingsboard.lwm2m.demo.client.ota.OtaStateMachine;
+import org.thingsboard.lwm2m.demo.client.ota.ResumableOtaDownload;
+import org.thingsboard.lwm2m.demo.client.scheduler.HashedWheelScheduler;
+import org.thingsboard.lwm2m.demo.client.scheduler.ScheduledTask;
 import org.thingsboard.lwm2m.demo.client.util.SoftwareUpdateResult;
 import org.thingsboard.lwm2m.demo.client.util.SoftwareUpdateState;
 
-import javax.security.auth.Destroyable;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import static org.eclipse.californium.core.config.CoapConfig.DEFAULT_BLOCKWISE_STATUS_LIFETIME_IN_SECONDS;
+import static org.thingsboard.lwm2m.demo.client.ota.OtaStateMachine.after;
 import static org.thingsboard.lwm2m.demo.client.util.FirmwareUpdateState.DOWNLOADED;
 import static org.thingsboard.lwm2m.demo.client.util.SoftwareUpdateResult.*;
 import static org.thingsboard.lwm2m.demo.client.util.SoftwareUpdateState.*;
@@ -69,13 +66,29 @@ public class SwLwM2MDevice extends BaseInstanceEnabler implements Destroyable {
     private static final String PACKAGE_NANE_DEF = "software";
     private static final String PACKAGE_VERSION_DEF = "1.0.0";
 
-    private final ScheduledExecutorService scheduler = new ScheduledThreadPoolExecutor(1,
-            new DaemonThreadFactory(getClass().getSimpleName() + "-test-scope"));
     private final AtomicInteger state = new AtomicInteger(0);
 
     private final AtomicInteger updateResult = new AtomicInteger(0);
 
-    private final Timer timer;
+    private final ScheduledTask notifyTask;
+    private final NotificationCoalescer notifications = new NotificationCoalescer(this);
+    private final ReadResponseCache pkgNameResponse = new ReadResponseCache(0);
+    private final ReadResponseCache pkgVersionResponse = new ReadResponseCache(1);
+    private final ReadResponseCache stateResponse = new ReadResponseCache(7);
+    private final ReadResponseCache updateResultResponse = new ReadResponseCache(9);
+    private final ClientMetrics metrics;
+    private final OtaDownloadEndpoints downloadEndpoints;
+    private final OtaBlobStore blobStore;
+    private final OtaContext otaContext;
+    private final OtaStateMachine transitions;
+    private final HashedWheelScheduler scheduler;
+    // Package URI download in progress or last one, null if none
+    private volatile ResumableOtaDownload download;
+    // SHA-256 of the stored package linked to the package file, null if none
+    private volatile String packageBlob;
+    // System.nanoTime() at the beginning of the current download / install, 0 if none
+    private volatile long downloadStartNanos;
+    private volatile long installStartNanos;
     private boolean testObject;
     private boolean testOta;
     private String packageURI;
@@ -87,37 +100,42 @@ public class SwLwM2MDevice extends BaseInstanceEnabler implements Destroyable {
     }
 
     public SwLwM2MDevice(Integer timeDataFrequency) {
-        this.initOtaSw();
-        this.timer = new Timer("Id = [9] LWM2M Software Management -> schedule Time period = [" + timeDataFrequency + "] sec");
-        timer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                fireResourceChange(1);
-                fireResourceChange(7);
-                fireResourceChange(9);
-            }
-        }, timeDataFrequency*1000, timeDataFrequency*1000);
+        this(timeDataFrequency, false, false);
     }
 
     public SwLwM2MDevice(Integer timeDataFrequency, boolean testObject, boolean testOta) {
+        this(timeDataFrequency, testObject, testOta, HashedWheelScheduler.getDefault());
+    }
+
+    public SwLwM2MDevice(Integer timeDataFrequency, boolean testObject, boolean testOta, HashedWheelScheduler scheduler) {
+        this(timeDataFrequency, testObject, testOta, scheduler, ClientMetrics.getDefault(), new OtaDownloadEndpoints(),
+                new OtaBlobStore(Paths.get(OTA_FOLDER_DEF, OTA_BLOBS_FOLDER)), new OtaContext(Paths.get(OTA_FOLDER_DEF)));
+    }
+
+    /**
+     * @param downloadEndpoints endpoints used to download packages by URI, destroyed with this object
+     * @param blobStore         packages stored once for all clients
+     * @param otaContext        folder and pending update information of this client
+     */
+    public SwLwM2MDevice(Integer timeDataFrequency, boolean testObject, boolean testOta, HashedWheelScheduler scheduler,
+            ClientMetrics metrics, OtaDownloadEndpoints downloadEndpoints, OtaBlobStore blobStore,
+            OtaContext otaContext) {
+        this.metrics = metrics;
+        this.downloadEndpoints = downloadEndpoints;
+        this.blobStore = blobStore;
+        this.otaContext = otaContext;
+        this.transitions = new OtaStateMachine(scheduler, "SW");
+        this.scheduler = scheduler;
         this.testObject = testObject;
         this.testOta = testOta;
         this.initOtaSw();
         // notify new date each 5 second
-        this.timer = new Timer("Id = [9] LWM2M Software Management -> schedule Time period = [" + timeDataFrequency + "] sec");
-        timer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                fireResourceChange(1);
-                fireResourceChange(7);
-                fireResourceChange(9);
-            }
-        }, timeDataFrequency*1000, timeDataFrequency*1000);
+        this.notifyTask = scheduler.schedulePeriodic(() -> notifications.fireResourcesChange(1, 7, 9),
+                timeDataFrequency, timeDataFrequency, TimeUnit.SECONDS);
     }
 
-
     private void initOtaSw(){
-        LwM2MClientOtaInfo infoSw = readOtaInfoFromFile(getPathInfoOtaSw());
+        LwM2MClientOtaInfo infoSw = readOtaInfoFromFile(otaContext.getSwInfoPath());
         if (infoSw != null) {
             this.setPkgName(infoSw.getTitle());
             this.setPackageVersion(infoSw.getVersion());
@@ -126,24 +144,27 @@ public class SwLwM2MDevice extends BaseInstanceEnabler implements Destroyable {
 
     @Override
     public ReadResponse read(LwM2mServer server, int resourceId) {
-        Object value;
         switch (resourceId) {
-            case 0:
-                value = getPkgName();
+            case 0: {
+                String value = getPkgName();
                 printReadLog(server, getModel().name, getModel().id, getId(), resourceId, value);
-                return ReadResponse.success(resourceId, (String) value);
-            case 1:
-                value = getPkgVersion();
+                return pkgNameResponse.string(value);
+            }
+            case 1: {
+                String value = getPkgVersion();
                 printReadLog(server, getModel().name, getModel().id, getId(), resourceId, value);
-                return ReadResponse.success(resourceId, (String) value);
-            case 7:
-                value = getState();
+                return pkgVersionResponse.string(value);
+            }
+            case 7: {
+                int value = getState();
                 printReadLog(server, getModel().name, getModel().id, getId(), resourceId, value);
-                return ReadResponse.success(resourceId, (int) value);
-            case 9:
-                value = getUpdateResult();
+                return stateResponse.integer(value);
+            }
+            case 9: {
+                int value = getUpdateResult();
                 printReadLog(server, getModel().name, getModel().id, getId(), resourceId, value);
-                return ReadResponse.success(resourceId, (int) value);
+                return updateResultResponse.integer(value);
+            }
             default:
                 return super.read(server, resourceId);
         }
@@ -159,6 +180,7 @@ public class SwLwM2MDevice extends BaseInstanceEnabler implements Destroyable {
         switch (resourceId) {
             case 4: // This Resource is only executable when the value of the State Resource is DELIVERED
                 if (this.getState() == SoftwareUpdateState.DELIVERED.getCode() && this.getUpdateResult() == SoftwareUpdateResult.SUCCESSFULLY_DOWNLOADED_VERIFIED.getCode()) {
+                    this.installStartNanos = System.nanoTime();
                     if (this.testObject || this.testOta) {
                         this.startUpdatingSw();
                     }
@@ -195,6 +217,7 @@ public class SwLwM2MDevice extends BaseInstanceEnabler implements Destroyable {
 
         switch (resourceId) {
             case 2:
+                this.downloadStartNanos = System.nanoTime();
                 if (this.testObject) {
                     this.downloadingToDownloadedSuccessTest(resourceId);
                     this.saveOtaInfoUpdateSwWithObject19((byte[]) value.getValue());
@@ -206,6 +229,7 @@ public class SwLwM2MDevice extends BaseInstanceEnabler implements Destroyable {
                 }
                 return WriteResponse.success();
             case 3:
+                this.downloadStartNanos = System.nanoTime();
                 this.setPackageURI((String) value.getValue());
                 if (this.testObject) {
                     this.downloadingToDownloadedSuccessTest(resourceId);
@@ -227,7 +251,7 @@ public class SwLwM2MDevice extends BaseInstanceEnabler implements Destroyable {
         if (state != this.state.get()){
             this.state.set(state);
             log.info("Update state on Device resource /{}/{}/{} [{}] [{}]", getModel().id, getId(), 7, this.state.get(), SoftwareUpdateState.fromUpdateStateSwByCode(this.state.get()).getType());
-            fireResourceChange(7);
+            notifications.fireResourcesChange(7);
         }
 
     }
@@ -240,7 +264,18 @@ public class SwLwM2MDevice extends BaseInstanceEnabler implements Destroyable {
         if (updateResult != this.updateResult.get()) {
             this.updateResult.set(updateResult);
             log.info("Update result on Device resource /{}/{}/{} [{}] [{}]", getModel().id, getId(), 9, this.updateResult.get(), SoftwareUpdateResult.fromUpdateResultSwByCode(this.updateResult.get()).getType());
-            fireResourceChange(9);
+            if (updateResult == SoftwareUpdateResult.SUCCESSFULLY_DOWNLOADED_VERIFIED.getCode() && downloadStartNanos != 0) {
+                metrics.recordSince(ClientMetrics.SW_DOWNLOAD, downloadStartNanos);
+                downloadStartNanos = 0;
+            } else if (updateResult == SoftwareUpdateResult.SUCCESSFULLY_INSTALLED.getCode() && installStartNanos != 0) {
+                metrics.recordSince(ClientMetrics.SW_INSTALL, installStartNanos);
+                installStartNanos = 0;
+            } else if (updateResult >= SoftwareUpdateResult.NOT_ENOUGH_STORAGE.getCode()) {
+                metrics.increment(ClientMetrics.SW_FAILURE);
+                downloadStartNanos = 0;
+                installStartNanos = 0;
+            }
+            notifications.fireResourcesChange(9);
         }
     }
 
@@ -266,11 +301,12 @@ public class SwLwM2MDevice extends BaseInstanceEnabler implements Destroyable {
     }
 
     private void setPackageURI(String packageURI) {
-        if (!packageURI.equals(this.packageURI)) {
+        boolean changed = !packageURI.equals(this.packageURI);
+        this.packageURI = packageURI;
+        if (changed) {
             log.info("Write on Device packageURI: [{}]", packageURI);
-            fireResourceChange(1);
+            notifications.fireResourcesChange(1);
         }
-        this.packageURI = packageURI;
     }
 
     @Override
@@ -280,61 +316,79 @@ public class SwLwM2MDevice extends BaseInstanceEnabler implements Destroyable {
 
     @Override
     public void destroy() {
-        scheduler.shutdownNow();
+        notifyTask.cancel();
+        transitions.cancel();
+        ResumableOtaDownload current = download;
+        if (current != null) {
+            current.cancel();
+        }
+        downloadEndpoints.destroy();
     }
 
     private void downloadingToDownloadedSuccessTest(int resourceId) {
-        scheduler.schedule(() -> {
-            try {
-                this.setState(DOWNLOAD_STARTED.getCode());
-                this.setUpdateResult(DOWNLOADING.getCode());
-                Thread.sleep(100);
-
-                this.setState(DOWNLOADED.getCode());
-                Thread.sleep(100);
-
-                this.setState(DELIVERED.getCode());
-                this.setUpdateResult(SUCCESSFULLY_DOWNLOADED_VERIFIED.getCode());
-            } catch (Exception e) {
-
-            }
-        }, 100, TimeUnit.MILLISECONDS);
+        OtaDwellTimes dwell = otaContext.getDwellTimes();
+        transitions.start(
+                after(dwell.start(), () -> {
+                    this.setState(DOWNLOAD_STARTED.getCode());
+                    this.setUpdateResult(DOWNLOADING.getCode());
+                }),
+                after(dwell.downloading(), () -> this.setState(DOWNLOADED.getCode())),
+                after(dwell.downloaded(), () -> {
+                    this.setState(DELIVERED.getCode());
+                    this.setUpdateResult(SUCCESSFULLY_DOWNLOADED_VERIFIED.getCode());
+                }));
         String msgResource = resourceId == 2 ? "Via resource 2." : "Via Resource 3 (PackageURI = " + this.getPackageURI() + ").";
         log.info("Finish Write data SW. {}", msgResource);
     }
 
     private void startUpdatingSw() {
-        LwM2MClientOtaInfo infoSw = getOtaInfoUpdateSw();
+        LwM2MClientOtaInfo infoSw = otaContext.getSwUpdateInfo();
         if (infoSw != null ) {
-            writeOtaInfoToFile(getPathInfoOtaSw(), infoSw);
+            writeOtaInfoToFile(otaContext.getSwInfoPath(), infoSw);
             this.setPkgName(infoSw.getTitle());
             this.setPackageVersion(infoSw.getVersion());
-            setOtaInfoUpdateSw(null);
+            otaContext.setSwUpdateInfo(null);
         }
     }
 
     private String startDownloadingSw(byte[] data) {
         this.setState(SoftwareUpdateState.DOWNLOAD_STARTED.getCode());
         this.setUpdateResult(SoftwareUpdateResult.DOWNLOADING.getCode());
+        try (OtaDownloadFile file = OtaDownloadFile.create(otaContext.getFolder())) {
+            if (data != null) {
+                file.append(data);
+            }
+            return finishDownloadingSw(file);
+        } catch (IOException e) {
+            log.error("File writing error: ", e);
+            this.updateResFailed(SoftwareUpdateResult.OUT_OFF_MEMORY.getCode());
+            return "File writing error: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Verifies the received package against the expected checksum and size, then moves it in place.
+     */
+    private String finishDownloadingSw(OtaDownloadFile file) {
         String result = "";
-        if (data != null && data.length > 0) {
-            LwM2MClientOtaInfo infoSw = getOtaInfoUpdateSw();
+        if (file.size() > 0) {
+            LwM2MClientOtaInfo infoSw = otaContext.getSwUpdateInfo();
             if (infoSw != null ) {
-                String fileChecksumSHA256 = Hashing.sha256().hashBytes(data).toString();
+                String fileChecksumSHA256 = file.checksum();
                 if (!fileChecksumSHA256.equals(infoSw.getChecksum())) {
                     result = "File writing error: failed ChecksumSHA256. Payload: " + fileChecksumSHA256 + " Original: " + infoSw.getChecksum();
                     log.error(result);
                     this.updateResFailed(SoftwareUpdateResult.PACKAGE_CHECK_FAILURE.getCode());
                     return result;
                 }
-                if (data.length != infoSw.getDataSize()) {
-                    result = "File writing error: failed FileSize.. Payload: " + data.length + " Original: " + infoSw.getDataSize();
+                if (file.size() != infoSw.getDataSize()) {
+                    result = "File writing error: failed FileSize.. Payload: " + file.size() + " Original: " + infoSw.getDataSize();
                     log.error(result);
                     this.updateResFailed(SoftwareUpdateResult.PACKAGE_CHECK_FAILURE.getCode());
                     return result;
                 }
             } else {
-                this.saveOtaInfoUpdateSwWithObject19(data);
+                this.createOtaInfoUpdateSw(file.checksum(), file.size());
             }
             this.setState(SoftwareUpdateState.DOWNLOADED.getCode());
             String filePath = getPathDataOtaSW(infoSw);
@@ -342,15 +396,13 @@ public class SwLwM2MDevice extends BaseInstanceEnabler implements Destroyable {
             try {
                 Files.createDirectories(dirPath);
                 renameOtaFilesToTmp(dirPath, PREF_SW, PREF_TMP);
-                try (FileOutputStream fos = new FileOutputStream(filePath)) {
-                    fos.write(data);
-                    log.info("Data successfully saved to: \"{}\", size: [{}]", filePath, data.length);
-                    deleteOtaFiles(dirPath, PREF_TMP);
-                    this.setState(SoftwareUpdateState.DELIVERED.getCode());
-                    this.setUpdateResult(SUCCESSFULLY_DOWNLOADED_VERIFIED.getCode());
-                    return result;
-                }
-
+                blobStore.store(file, Paths.get(filePath));
+                this.setPackageBlob(file.checksum());
+                log.info("Data successfully saved to: \"{}\", size: [{}]", filePath, file.size());
+                deleteOtaFiles(dirPath, PREF_TMP);
+                this.setState(SoftwareUpdateState.DELIVERED.getCode());
+                this.setUpdateResult(SUCCESSFULLY_DOWNLOADED_VERIFIED.getCode());
+                return result;
             } catch (IOException e) {
                 result = "File writing error: " + e.getMessage();
                 log.error("File writing error: ", e);
@@ -366,113 +418,147 @@ public class SwLwM2MDevice extends BaseInstanceEnabler implements Destroyable {
     }
 
     private void updatingSuccessTest() {
-        scheduler.schedule(() -> {
-            try {
-                this.setState(SoftwareUpdateState.INSTALLED.getCode());
-                Thread.sleep(100);
-                this.setUpdateResult(SoftwareUpdateResult.SUCCESSFULLY_INSTALLED.getCode());
-                Thread.sleep(100);
-                this.setState(SoftwareUpdateState.INITIAL.getCode());
-                this.setUpdateResult(SoftwareUpdateResult.INITIAL.getCode());
-            } catch (Exception e) {
-            }
-        }, 100, TimeUnit.MILLISECONDS);
+        OtaDwellTimes dwell = otaContext.getDwellTimes();
+        transitions.start(
+                after(dwell.start(), () -> this.setState(SoftwareUpdateState.INSTALLED.getCode())),
+                after(dwell.updating(), () -> this.setUpdateResult(SoftwareUpdateResult.SUCCESSFULLY_INSTALLED.getCode())),
+                after(dwell.result(), this::resetToInitial));
     }
 
 
     private void updateResFailed(int res) {
-        scheduler.schedule(() -> {
-            try {
-                this.setUpdateResult(res);
-                Thread.sleep(100);
-                this.setState(SoftwareUpdateState.INITIAL.getCode());
-                this.setUpdateResult(SoftwareUpdateResult.INITIAL.getCode());
-            } catch (Exception e) {
-            }
-        }, 100, TimeUnit.MILLISECONDS);
+        OtaDwellTimes dwell = otaContext.getDwellTimes();
+        transitions.start(
+                after(dwell.start(), () -> this.setUpdateResult(res)),
+                after(dwell.result(), this::resetToInitial));
+    }
+
+    private void resetToInitial() {
+        this.setState(SoftwareUpdateState.INITIAL.getCode());
+        this.setUpdateResult(SoftwareUpdateResult.INITIAL.getCode());
     }
 
     private void startDownloadingSwUri() {
-        CoapClient client = new CoapClient(getPackageURI());
-        Configuration networkConfig = new Configuration();
-        networkConfig.set(CoapConfig.BLOCKWISE_STRICT_BLOCK2_OPTION, true);
-        networkConfig.set(CoapConfig.BLOCKWISE_ENTITY_TOO_LARGE_AUTO_FAILOVER, true);
-        networkConfig.set(CoapConfig.BLOCKWISE_STATUS_LIFETIME, DEFAULT_BLOCKWISE_STATUS_LIFETIME_IN_SECONDS, TimeUnit.SECONDS);
-        networkConfig.set(CoapConfig.MAX_RESOURCE_BODY_SIZE, 256 * 1024 * 1024);
-        networkConfig.set(CoapConfig.RESPONSE_MATCHING, CoapConfig.MatcherMode.RELAXED);
-        networkConfig.set(CoapConfig.PREFERRED_BLOCK_SIZE, 1024);
-        networkConfig.set(CoapConfig.MAX_MESSAGE_SIZE, 1024);
-        networkConfig.set(CoapConfig.MAX_RETRANSMIT, 4);
-
-
-        CoapEndpoint endpoint = new CoapEndpoint.Builder().setConfiguration(networkConfig)
-                .build();
-        client.setEndpoint(endpoint);
-        client.useCONs(); // Used Confirmable request
-        client.setTimeout(10000L); // Time out
-
-        Request request = new Request(CoAP.Code.GET);
-        request.setConfirmable(true); // Used Confirmable (CON)
-
-        log.info("Send CoAP-request to [{}]", getPackageURI());
-
-        client.advanced(new CoapHandler() {
-            @Override
-            public void onLoad(CoapResponse response) {
-                byte[] payload = response.getPayload();
-                String resultSavePayload = startDownloadingSw(payload);
+        this.setState(SoftwareUpdateState.DOWNLOAD_STARTED.getCode());
+        this.setUpdateResult(SoftwareUpdateResult.DOWNLOADING.getCode());
+        LwM2MClientOtaInfo infoSw = otaContext.getSwUpdateInfo();
+        String checksum = infoSw != null ? infoSw.getChecksum() : null;
+        // a package stored before a restart is hashed again, by the blob store and not by the thread of the request
+        blobStore.contains(checksum).whenComplete((stored, error) -> {
+            // the reference keeps the stored package until it is linked; it may have been deleted since the check
+            if (error == null && stored && blobStore.acquire(checksum)) {
+                this.linkStoredSw(infoSw);
+            } else {
+                this.downloadSwUri(checksum);
+            }
+        });
+    }
+
+    private void downloadSwUri(String checksum) {
+        log.info("Download package from [{}]", getPackageURI());
+        ResumableOtaDownload download = new ResumableOtaDownload(otaContext.getFolder(), "sw", getPackageURI(), checksum,
+                downloadEndpoints, scheduler);
+        this.download = download;
+        download.start().whenComplete((file, error) -> {
+            if (error instanceof CancellationException) {
+                // this object is destroyed
+                return;
+            }
+            if (error != null) {
+                // the partial file is kept, the next download of this package resumes it
+                log.error("An error occurred while retrieving the response: {}", error.getMessage());
+                this.updateResFailed(SoftwareUpdateResult.CONNECTION_LOST.getCode());
+                return;
+            }
+            try (file) {
+                String resultSavePayload = finishDownloadingSw(file);
                 if (!resultSavePayload.isEmpty()) {
                     log.error(resultSavePayload);
                 }
+            } catch (IOException e) {
+                log.error("File writing error: ", e);
+            } finally {
+                download.discard();
             }
+        });
+    }
 
-            @Override
-            public void onError() {
-                log.error("An error occurred while retrieving the response.");
-            }
-        }, request);
+
+    /**
+     * Links the package already stored by a previous download, of this client or another one, instead of downloading
+     * it again.
+     */
+    private void linkStoredSw(LwM2MClientOtaInfo infoSw) {
+        String filePath = getPathDataOtaSW(infoSw);
+        Path dirPath = Paths.get(filePath).getParent();
+        try {
+            Files.createDirectories(dirPath);
+            renameOtaFilesToTmp(dirPath, PREF_SW, PREF_TMP);
+            blobStore.link(infoSw.getChecksum(), Paths.get(filePath));
+            this.setPackageBlob(infoSw.getChecksum());
+            log.info("Package [{}] already stored, linked to: \"{}\"", infoSw.getChecksum(), filePath);
+            this.setState(SoftwareUpdateState.DOWNLOADED.getCode());
+            deleteOtaFiles(dirPath, PREF_TMP);
+            this.setState(SoftwareUpdateState.DELIVERED.getCode());
+            this.setUpdateResult(SUCCESSFULLY_DOWNLOADED_VERIFIED.getCode());
+        } catch (IOException e) {
+            blobStore.release(infoSw.getChecksum());
+            log.error("File writing error: ", e);
+            this.updateResFailed(SoftwareUpdateResult.OUT_OFF_MEMORY.getCode());
+        }
     }
 
+    private void setPackageBlob(String checksum) {
+        String previous = packageBlob;
+        packageBlob = checksum;
+        if (previous != null) {
+            blobStore.release(previous);
+        }
+    }
 
     private String getPathDataOtaSW(LwM2MClientOtaInfo infoSW) {
         String fileName = infoSW == null || StringUtils.isEmpty(infoSW.getFileName()) ? SW_DATA_FILE_NANE_DEF : infoSW.getFileName();
-        return getOtaFolder() + "/" + fileName;
+        return otaContext.resolve(fileName).toString();
     }
 
 
     private void saveOtaInfoUpdateSwWithObject19(byte[] data) {
         if (data != null && data.length > 0) {
-            LwM2MClientOtaInfo infoSw = getOtaInfoUpdateSw();
-            if (infoSw == null ) {
-                String fileChecksumSHA256 = Hashing.sha256().hashBytes(data).toString();
-                infoSw = new LwM2MClientOtaInfo();
-                infoSw.setType(OtaPackageType.SOFTWARE);
-                infoSw.setFileName(SW_DATA_FILE_NANE_DEF);
-                infoSw.setChecksum(fileChecksumSHA256);
-                infoSw.setDataSize(data.length);
-                setOtaInfoUpdateSw(infoSw);
-                log.info("Create new SW info with default params.");
+            if (otaContext.getSwUpdateInfo() == null) {
+                this.createOtaInfoUpdateSw(Hashing.sha256().hashBytes(data).toString(), data.length);
             }
         } else {
-            setOtaInfoUpdateSw(null);
+            otaContext.setSwUpdateInfo(null);
             log.info("New SW info is not Created with default params (PackageURI + testObject). data = null");
-            String path = getOtaFolder();
-            deleteOtaFiles(Paths.get(path), PREF_SW);
+            Path path = otaContext.getFolder();
+            deleteOtaFiles(path, PREF_SW);
+            this.setPackageBlob(null);
             log.info("Delete all SW files from path: [{}/{}...]", path, PREF_SW);
         }
     }
 
 
+    private void createOtaInfoUpdateSw(String checksum, long size) {
+        LwM2MClientOtaInfo infoSw = new LwM2MClientOtaInfo();
+        infoSw.setType(OtaPackageType.SOFTWARE);
+        infoSw.setFileName(SW_DATA_FILE_NANE_DEF);
+        infoSw.setChecksum(checksum);
+        infoSw.setDataSize((int) size);
+        otaContext.setSwUpdateInfo(infoSw);
+        log.info("Create new SW info with default params.");
+    }
+
     /**
      * This executable resource may have one argument.
      * If used with no argument or argument is 0, the Package is removed i from the Device.
      */
     private void deleteSwFile(){
-        LwM2MClientOtaInfo infoSw = readOtaInfoFromFile(getPathInfoOtaSw());
+        LwM2MClientOtaInfo infoSw = readOtaInfoFromFile(otaContext.getSwInfoPath());
         if (infoSw != null) {
             String filePath = getPathDataOtaSW(infoSw);
             Path path = Paths.get(filePath);
             deleteOtaFiles(path.getParent(), path.getFileName().toString());
+            this.setPackageBlob(null);
             log.info("[{}] successfully is removed from the Device", filePath);
         }
     }
@@ -0,0 +1,171 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client.ota;
+
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.californium.core.coap.BlockOption;
+
+import java.io.IOException;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+
+/**
+ * Block size of one CoAP download, chosen within the SZX range of RFC 7959 (16 to 1024 bytes).
+ * <p>
+ * The transfer starts with the largest block which fits in the MTU of the local interface towards the server, so that
+ * no block is fragmented. In adaptive mode, a retransmitted block halves the block size (loss, or fragments dropped on
+ * the path); after {@value #GROW_AFTER_BLOCKS} blocks received without retransmission nor RTT spike, the block size is
+ * doubled again up to that limit. The server may always impose a smaller size.
+ * <p>
+ * Not thread-safe: blocks of a download are requested one after the other.
+ */
+@Slf4j
+class AdaptiveBlockSize {
+
+    static final int MIN_SZX = 0;  // 16 bytes
+    static final int MAX_SZX = 6;  // 1024 bytes, 7 is reserved for BERT (CoAP over TCP)
+    // IPv6 header 40, UDP header 8
+    private static final int IP_UDP_OVERHEAD = 48;
+    // CoAP header 4, token up to 8, Block2, Content-Format, ETag and Size2 options
+    private static final int COAP_OVERHEAD = 32;
+    // DTLS record header 13, explicit nonce 8, AEAD tag up to 16
+    private static final int DTLS_OVERHEAD = 37;
+    private static final int DEFAULT_MTU = 1280;
+    static final int GROW_AFTER_BLOCKS = 8;
+    // RTT above this multiple of the smoothed RTT means queues are building up
+    private static final int RTT_SPIKE_FACTOR = 2;
+
+    private final boolean adaptive;
+    private int maxSzx;
+    private int szx;
+    private long srttNanos;
+    private int cleanBlocks;
+    private long blocks;
+    private long retransmissions;
+    private int changes;
+    private int minUsedSzx;
+
+    /**
+     * @param blockSize initial block size, lowered to fit <code>pathMtu</code>
+     * @param pathMtu   MTU towards the server, <code>0</code> if unknown
+     */
+    AdaptiveBlockSize(int blockSize, int pathMtu, boolean secure, boolean adaptive) {
+        this.adaptive = adaptive;
+        this.maxSzx = Math.min(MAX_SZX, largestSzx(pathMtu > 0 ? pathMtu : DEFAULT_MTU, secure));
+        if (!adaptive) {
+            // a fixed block size is kept even if it does not fit, fragmentation is then left to the network
+            this.maxSzx = BlockOption.size2Szx(blockSize);
+        }
+        this.szx = Math.min(BlockOption.size2Szx(blockSize), maxSzx);
+        this.minUsedSzx = szx;
+    }
+
+    int getSzx() {
+        return szx;
+    }
+
+    int getBlockSize() {
+        return BlockOption.szx2Size(szx);
+    }
+
+    /**
+     * Records a received block and chooses the size of the next one.
+     *
+     * @param responseSzx   size of the block sent by the server
+     * @param rttNanos      time between the request and its response, retransmissions included
+     * @param retransmitted true if the request had to be retransmitted
+     * @param nextOffset    offset of the next block, the next block size must divide it
+     */
+    void onBlock(int responseSzx, long rttNanos, boolean retransmitted, long nextOffset) {
+        blocks++;
+        if (responseSzx < szx) {
+            // the server does not send larger blocks, do not ask for them again
+            maxSzx = responseSzx;
+            setSzx(responseSzx, "server block size");
+        }
+        if (retransmitted) {
+            retransmissions++;
+            cleanBlocks = 0;
+            if (adaptive && szx > MIN_SZX) {
+                setSzx(szx - 1, "retransmission");
+            }
+            return;
+        }
+        boolean spike = srttNanos > 0 && rttNanos > RTT_SPIKE_FACTOR * srttNanos;
+        // RFC 6298 smoothing, only on samples without retransmission (Karn's algorithm)
+        srttNanos = srttNanos == 0 ? rttNanos : srttNanos + (rttNanos - srttNanos) / 8;
+        if (spike) {
+            cleanBlocks = 0;
+            return;
+        }
+        cleanBlocks++;
+        if (adaptive && cleanBlocks >= GROW_AFTER_BLOCKS && szx < maxSzx
+                && nextOffset % BlockOption.szx2Size(szx + 1) == 0) {
+            setSzx(szx + 1, "no loss");
+            cleanBlocks = 0;
+        }
+    }
+
+    String summary() {
+        return String.format("block size %d bytes (min %d, max %d), %d blocks, %d retransmissions, %d changes, srtt %.1f ms",
+                getBlockSize(), BlockOption.szx2Size(minUsedSzx), BlockOption.szx2Size(maxSzx), blocks,
+                retransmissions, changes, srttNanos / 1_000_000.0);
+    }
+
+    private void setSzx(int newSzx, String reason) {
+        if (newSzx == szx) {
+            return;
+        }
+        log.debug("Block size {} -> {} bytes ({}), srtt {} ms", BlockOption.szx2Size(szx),
+                BlockOption.szx2Size(newSzx), reason, srttNanos / 1_000_000);
+        szx = newSzx;
+        minUsedSzx = Math.min(minUsedSzx, newSzx);
+        changes++;
+    }
+
+    /**
+     * @return largest SZX whose datagram fits in <code>mtu</code>
+     */
+    static int largestSzx(int mtu, boolean secure) {
+        int payload = mtu - IP_UDP_OVERHEAD - COAP_OVERHEAD - (secure ? DTLS_OVERHEAD : 0);
+        int szx = MAX_SZX;
+        while (szx > MIN_SZX && BlockOption.szx2Size(szx) > payload) {
+            szx--;
+        }
+        return szx;
+    }
+
+    /**
+     * MTU of the local interface used to reach <code>destination</code>, an upper bound of the path MTU.
+     *
+     * @return <code>0</code> if unknown
+     */
+    static int localPathMtu(InetSocketAddress destination) {
+        if (destination.isUnresolved()) {
+            return 0;
+        }
+        // connecting a UDP socket sends nothing, it only selects the route
+        try (DatagramSocket socket = new DatagramSocket()) {
+            socket.connect(destination);
+            NetworkInterface networkInterface = NetworkInterface.getByInetAddress(socket.getLocalAddress());
+            return networkInterface != null ? networkInterface.getMTU() : 0;
+        } catch (IOException e) {
+            log.debug("Unknown MTU towards [{}]: {}", destination, e.getMessage());
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client.ota;
+
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.californium.core.CoapClient;
+import org.eclipse.californium.core.CoapHandler;
+import org.eclipse.californium.core.CoapResponse;
+import org.eclipse.californium.core.coap.BlockOption;
+import org.eclipse.californium.core.coap.MessageObserverAdapter;
+import org.eclipse.californium.core.coap.Request;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Downloads an OTA package with CoAP Block2, one block at a time, handing each block to an {@link OtaDownloadFile} as
+ * it arrives.
+ * <p>
+ * Transparent blockwise transfer of Californium is disabled (<code>MAX_RESOURCE_BODY_SIZE = 0</code>): it would
+ * assemble the whole body in memory before delivering it. Blocks are requested explicitly instead, following the block
+ * size chosen by the server if it is smaller than the requested one. Requests are sent through the endpoints of
+ * {@link OtaDownloadEndpoints}, which outlive the download.
+ * <p>
+ * Unless a fixed size is configured, the block size follows the link: see {@link AdaptiveBlockSize}. The sizes used
+ * are logged when the download ends.
+ * <p>
+ * The transfer starts after the bytes already in the file, so a partial download is resumed from its next block.
+ */
+@Slf4j
+public class CoapBlockDownloader {
+
+    public static final int DEFAULT_BLOCK_SIZE = 1024;
+    private static final long DEFAULT_TIMEOUT_MS = 10000L;
+
+    private final OtaDownloadEndpoints endpoints;
+    private final int blockSize;
+
+    /**
+     * Notified after each block is appended, e.g. to record the confirmed offset of a resumable download.
+     */
+    @FunctionalInterface
+    public interface BlockListener {
+        void onBlock(int blockSize, int num) throws IOException;
+    }
+
+    public CoapBlockDownloader(OtaDownloadEndpoints endpoints) {
+        this(endpoints, DEFAULT_BLOCK_SIZE);
+    }
+
+    public CoapBlockDownloader(OtaDownloadEndpoints endpoints, int blockSize) {
+        this.endpoints = endpoints;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * @return completed with the number of received bytes once the last block is written to <code>file</code>
+     */
+    public CompletableFuture<Long> download(String uri, OtaDownloadFile file) {
+        return download(uri, file, (size, num) -> {});
+    }
+
+    /**
+     * @param file empty, or holding a whole number of blocks of <code>blockSize</code> bytes already received
+     * @see AdaptiveBlockSize
+     */
+    public CompletableFuture<Long> download(String uri, OtaDownloadFile file, BlockListener listener) {
+        if (file.size() % blockSize != 0) {
+            return CompletableFuture.failedFuture(new IOException("Partial download of " + file.size()
+                    + " bytes does not end on a block of " + blockSize + " bytes"));
+        }
+        CoapClient client = new CoapClient(uri);
+        try {
+            client.setEndpoint(endpoints.getEndpoint(uri));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        client.useCONs(); // Used Confirmable request
+        client.setTimeout(DEFAULT_TIMEOUT_MS);
+
+        URI target = URI.create(uri);
+        boolean secure = "coaps".equalsIgnoreCase(target.getScheme());
+        int port = target.getPort() > 0 ? target.getPort() : secure ? 5684 : 5683;
+        int pathMtu = AdaptiveBlockSize.localPathMtu(new InetSocketAddress(target.getHost(), port));
+        AdaptiveBlockSize adaptive = new AdaptiveBlockSize(blockSize, pathMtu, secure, endpoints.isAdaptiveBlockSize());
+        log.debug("Download [{}] in blocks of [{}] bytes, MTU [{}]", uri, adaptive.getBlockSize(), pathMtu);
+
+        CompletableFuture<Long> result = new CompletableFuture<>();
+        // the endpoint is kept for the next downloads
+        result.whenComplete((size, error) -> {
+            client.shutdown();
+            log.info("Download of [{}] {}: {}", uri, error == null ? "completed" : "stopped", adaptive.summary());
+        });
+        requestBlock(client, file, listener, adaptive, result);
+        return result;
+    }
+
+    private void requestBlock(CoapClient client, OtaDownloadFile file, BlockListener listener,
+                              AdaptiveBlockSize adaptive, CompletableFuture<Long> result) {
+        int szx = adaptive.getSzx();
+        // sizes are powers of two and only grow on a multiple of the larger block, the offset is a whole block
+        int num = (int) (file.size() / BlockOption.szx2Size(szx));
+        Request request = Request.newGet();
+        request.setConfirmable(true); // Used Confirmable (CON)
+        request.getOptions().setBlock2(szx, false, num);
+        boolean[] retransmitted = {false};
+        request.addMessageObserver(new MessageObserverAdapter() {
+            @Override
+            public void onRetransmission() {
+                retransmitted[0] = true;
+            }
+        });
+        log.debug("Request block [{}] of [{}] bytes from [{}]", num, BlockOption.szx2Size(szx), client.getURI());
+        long sent = System.nanoTime();
+
+        client.advanced(new CoapHandler() {
+            @Override
+            public void onLoad(CoapResponse response) {
+                long rttNanos = System.nanoTime() - sent;
+                try {
+                    if (!response.isSuccess()) {
+                        throw new IOException("Block " + num + " was refused: " + response.getCode());
+                    }
+                    byte[] payload = response.getPayload();
+                    BlockOption block2 = response.getOptions().getBlock2();
+                    if (block2 == null) {
+                        // server does not support blockwise transfer, the whole package is in this response
+                        file.append(payload);
+                        result.complete(file.size());
+                        return;
+                    }
+                    if (block2.getOffset() != file.size()) {
+                        throw new IOException("Unexpected block offset " + block2.getOffset() + ", expected " + file.size());
+                    }
+                    file.append(payload);
+                    listener.onBlock(block2.getSize(), block2.getNum());
+                    if (block2.isM()) {
+                        // the server may answer with smaller blocks than requested, continue with its size at most
+                        adaptive.onBlock(block2.getSzx(), rttNanos, retransmitted[0], file.size());
+                        requestBlock(client, file, listener, adaptive, result);
+                    } else {
+                        result.complete(file.size());
+                    }
+                } catch (IOException | RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            }
+
+            @Override
+            public void onError() {
+                result.completeExceptionally(new IOException("No response for block " + num + " from " + client.getURI()));
+            }
+        }, request);
+    }
+}
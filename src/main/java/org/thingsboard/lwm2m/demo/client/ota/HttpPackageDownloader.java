@@ -0,0 +1,291 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client.ota;
+
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.californium.elements.util.NamedThreadFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Downloads OTA packages from <code>http://</code> and <code>https://</code> package URIs with the JDK
+ * {@link HttpClient}. The body is written to the {@link OtaDownloadFile} chunk by chunk as it is received.
+ * <p>
+ * A file already holding the beginning of the package is continued with a <code>Range</code> request. If the server
+ * ignores the range and sends the whole package, the file is restarted from the first byte.
+ * <p>
+ * At most <code>concurrency</code> downloads run at the same time, the next ones wait for a free slot. One instance is
+ * shared by all clients of a fleet and must be destroyed by its owner.
+ */
+@Slf4j
+public class HttpPackageDownloader {
+
+    public static final int DEFAULT_CONCURRENCY = 4;
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    // time to receive the response headers, the body may take longer
+    private static final Duration RESPONSE_TIMEOUT = Duration.ofSeconds(30);
+
+    /**
+     * Notified after each received chunk, e.g. to record the offset of a resumable download.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        void onReceived(long size) throws IOException;
+    }
+
+    private final Semaphore slots;
+    private final Queue<Runnable> waiting = new ConcurrentLinkedQueue<>();
+    private ExecutorService executor;
+    private HttpClient client;
+    private boolean destroyed;
+
+    public HttpPackageDownloader() {
+        this(DEFAULT_CONCURRENCY);
+    }
+
+    public HttpPackageDownloader(int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1: " + concurrency);
+        }
+        this.slots = new Semaphore(concurrency);
+    }
+
+    public static boolean isHttp(String uri) {
+        String scheme = URI.create(uri).getScheme();
+        return "http".equalsIgnoreCase(scheme) || "https".equalsIgnoreCase(scheme);
+    }
+
+    /**
+     * @param file empty, or holding the first bytes of the package, the download continues after them
+     * @return completed with the size of the package once its last byte is written to <code>file</code>
+     */
+    public CompletableFuture<Long> download(String uri, OtaDownloadFile file, ProgressListener listener) {
+        CompletableFuture<Long> result = new CompletableFuture<>();
+        waiting.add(() -> {
+            result.whenComplete((size, error) -> {
+                slots.release();
+                startWaiting();
+            });
+            try {
+                send(uri, file, listener, result);
+            } catch (IOException | RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        startWaiting();
+        return result;
+    }
+
+    public synchronized void destroy() {
+        destroyed = true;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void startWaiting() {
+        while (!waiting.isEmpty() && slots.tryAcquire()) {
+            Runnable download = waiting.poll();
+            if (download == null) {
+                slots.release();
+                return;
+            }
+            download.run();
+        }
+    }
+
+    private void send(String uri, OtaDownloadFile file, ProgressListener listener, CompletableFuture<Long> result)
+            throws IOException {
+        long offset = file.size();
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(uri)).timeout(RESPONSE_TIMEOUT).GET();
+        if (offset > 0) {
+            request.header("Range", "bytes=" + offset + "-");
+            log.info("Resume HTTP download of [{}] from byte [{}]", uri, offset);
+        }
+        getClient().sendAsync(request.build(), info -> new FileBodySubscriber(uri, info, file, offset, listener))
+                .whenComplete((response, error) -> {
+                    if (error != null) {
+                        result.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause() : error);
+                    } else {
+                        result.complete(response.body());
+                    }
+                });
+    }
+
+    private synchronized HttpClient getClient() throws IOException {
+        if (destroyed) {
+            throw new IOException("HTTP package downloader is destroyed");
+        }
+        if (client == null) {
+            executor = Executors.newCachedThreadPool(new NamedThreadFactory("OTA-HTTP#"));
+            client = HttpClient.newBuilder()
+                    .connectTimeout(CONNECT_TIMEOUT)
+                    .followRedirects(HttpClient.Redirect.NORMAL)
+                    .executor(executor)
+                    .build();
+        }
+        return client;
+    }
+
+    /**
+     * Writes each chunk of the body to the file and asks for the next one only once it is written, so a slow disk
+     * slows down the transfer instead of buffering the package in memory.
+     */
+    private static class FileBodySubscriber implements HttpResponse.BodySubscriber<Long> {
+
+        private final CompletableFuture<Long> body = new CompletableFuture<>();
+        private final OtaDownloadFile file;
+        private final ProgressListener listener;
+        private final IOException rejected;
+        private Flow.Subscription subscription;
+
+        FileBodySubscriber(String uri, HttpResponse.ResponseInfo info, OtaDownloadFile file, long offset,
+                ProgressListener listener) {
+            this.file = file;
+            this.listener = listener;
+            this.rejected = accept(uri, info, file, offset);
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (rejected != null) {
+                subscription.cancel();
+                body.completeExceptionally(rejected);
+            } else if (body.isDone()) {
+                // nothing left to receive
+                subscription.cancel();
+            } else {
+                subscription.request(1);
+            }
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            if (body.isDone()) {
+                return;
+            }
+            try {
+                for (ByteBuffer buffer : buffers) {
+                    file.append(buffer);
+                }
+                listener.onReceived(file.size());
+                subscription.request(1);
+            } catch (IOException | RuntimeException e) {
+                subscription.cancel();
+                body.completeExceptionally(e);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            body.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            body.complete(file.size());
+        }
+
+        @Override
+        public CompletionStage<Long> getBody() {
+            return body;
+        }
+
+        /**
+         * @return reason to refuse the body, null if it continues the file
+         */
+        private IOException accept(String uri, HttpResponse.ResponseInfo info, OtaDownloadFile file, long offset) {
+            try {
+                switch (info.statusCode()) {
+                    case 200 -> {
+                        if (offset > 0) {
+                            log.info("Range ignored by [{}], download the whole package again", uri);
+                            file.truncate(0);
+                        }
+                    }
+                    case 206 -> {
+                        long start = contentRangeStart(info);
+                        if (start != offset) {
+                            return new IOException("Unexpected range start " + start + ", expected " + offset);
+                        }
+                    }
+                    case 416 -> {
+                        // the previous download stopped after the last byte: "bytes */<size>"
+                        if (contentRangeSize(info) != offset) {
+                            return new IOException("Range from " + offset + " refused by " + uri);
+                        }
+                        body.complete(file.size());
+                    }
+                    default -> {
+                        return new IOException("Package download refused by " + uri + ": HTTP " + info.statusCode());
+                    }
+                }
+                return null;
+            } catch (IOException e) {
+                return e;
+            }
+        }
+
+        private static long contentRangeStart(HttpResponse.ResponseInfo info) throws IOException {
+            String range = contentRange(info);
+            int dash = range.indexOf('-');
+            if (!range.startsWith("bytes ") || dash < 0) {
+                throw new IOException("Invalid Content-Range: " + range);
+            }
+            return parse(range, range.substring("bytes ".length(), dash));
+        }
+
+        private static long contentRangeSize(HttpResponse.ResponseInfo info) throws IOException {
+            String range = contentRange(info);
+            int slash = range.lastIndexOf('/');
+            if (slash < 0) {
+                throw new IOException("Invalid Content-Range: " + range);
+            }
+            return parse(range, range.substring(slash + 1));
+        }
+
+        private static String contentRange(HttpResponse.ResponseInfo info) throws IOException {
+            return info.headers().firstValue("Content-Range")
+                    .orElseThrow(() -> new IOException("Missing Content-Range in HTTP " + info.statusCode()));
+        }
+
+        private static long parse(String range, String value) throws IOException {
+            try {
+                return Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid Content-Range: " + range, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,269 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client.ota;
+
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.californium.elements.util.DaemonThreadFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * OTA packages stored once by SHA-256, shared by all clients of a fleet.
+ * <p>
+ * A verified download is moved to <code>&lt;directory&gt;/&lt;sha256&gt;.bin</code>, then hard-linked (copied if the
+ * file system has no links) to the package file of the client. A client expecting a package which is already stored
+ * links it instead of downloading it again.
+ * <p>
+ * The digest of a stored package is computed once, by a thread of the store, and shared by the clients checking it
+ * meanwhile; following checks use the cached result. Clients take a reference on a stored package before linking it
+ * and hold it while they use the package; the stored package is deleted with its last reference, files linked to it
+ * keep their content.
+ */
+@Slf4j
+public class OtaBlobStore {
+
+    private static final String BLOB_SUFFIX = ".bin";
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+
+    private final Path directory;
+    // counts are only changed under their entry, together with the stored package
+    private final ConcurrentMap<String, Integer> references = new ConcurrentHashMap<>();
+    private final Set<String> verified = ConcurrentHashMap.newKeySet();
+    private final ConcurrentMap<String, CompletableFuture<Boolean>> verifications = new ConcurrentHashMap<>();
+    private final AtomicLong linkCounter = new AtomicLong();
+    private ExecutorService executor;
+    private boolean destroyed;
+
+    public OtaBlobStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return completed with true if a package with this SHA-256 is stored; its content is hashed on the first check
+     * only, off the calling thread
+     */
+    public CompletableFuture<Boolean> contains(String checksum) {
+        if (checksum == null || checksum.isEmpty()) {
+            return CompletableFuture.completedFuture(false);
+        }
+        String key = checksum.toLowerCase(Locale.ROOT);
+        if (!Files.exists(blobPath(key))) {
+            verified.remove(key);
+            return CompletableFuture.completedFuture(false);
+        }
+        if (verified.contains(key)) {
+            return CompletableFuture.completedFuture(true);
+        }
+        try {
+            return verifications.computeIfAbsent(key, this::startVerification);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Takes a reference on a stored package, so that it is not deleted before it is linked and while it is used.
+     *
+     * @return false if no package with this SHA-256 is stored (any more), there is nothing to release then
+     */
+    public boolean acquire(String checksum) {
+        String key = checksum.toLowerCase(Locale.ROOT);
+        boolean[] acquired = {false};
+        // release() deletes the package under the same entry, so the package can't go between the check and the count
+        references.compute(key, (k, count) -> {
+            if (!Files.exists(blobPath(k))) {
+                return count;
+            }
+            acquired[0] = true;
+            return count != null ? count + 1 : 1;
+        });
+        return acquired[0];
+    }
+
+    /**
+     * Stores a verified download, unless the same package is already stored, takes a reference on the package and
+     * links it to <code>target</code>. The download file is moved, not copied; if the package was already stored, it
+     * is left to its owner to delete.
+     */
+    public void store(OtaDownloadFile file, Path target) throws IOException {
+        String key = file.checksum();
+        Path blob = blobPath(key);
+        // a package stored before a restart is hashed once before being kept instead of this download
+        if (Files.exists(blob) && !verified.contains(key)) {
+            verify(key);
+        }
+        try {
+            references.compute(key, (k, count) -> {
+                if (!Files.exists(blob) || !verified.contains(k)) {
+                    try {
+                        Files.createDirectories(directory);
+                        file.moveTo(blob);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    verified.add(k);
+                    log.debug("OTA package [{}] stored, size: [{}]", k, file.size());
+                }
+                return count != null ? count + 1 : 1;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        try {
+            link(key, target);
+        } catch (IOException e) {
+            release(key);
+            throw e;
+        }
+    }
+
+    /**
+     * Links the stored package to <code>target</code>, replacing it. The caller holds a reference on the package,
+     * taken by {@link #acquire}.
+     */
+    public void link(String checksum, Path target) throws IOException {
+        String key = checksum.toLowerCase(Locale.ROOT);
+        Path blob = blobPath(key);
+        // other clients may link the same target: create the link aside, then move it in place
+        Path link = target.resolveSibling(".ota-link-" + linkCounter.incrementAndGet());
+        try {
+            Files.createLink(link, blob);
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            Files.copy(blob, link, StandardCopyOption.REPLACE_EXISTING);
+        }
+        try {
+            Files.move(link, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(link, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Drops a reference taken by {@link #acquire} or {@link #store}. The stored package is deleted with its last
+     * reference.
+     */
+    public void release(String checksum) {
+        String key = checksum.toLowerCase(Locale.ROOT);
+        references.computeIfPresent(key, (k, count) -> {
+            if (count > 1) {
+                return count - 1;
+            }
+            // deleted under the entry, acquire() waits and then finds no package
+            verified.remove(k);
+            try {
+                Files.deleteIfExists(blobPath(k));
+                log.debug("OTA package [{}] no longer used, deleted", k);
+            } catch (IOException e) {
+                log.warn("Failed to delete stored OTA package [{}]: {}", k, e.getMessage());
+            }
+            return null;
+        });
+    }
+
+    public int getReferences(String checksum) {
+        return references.getOrDefault(checksum.toLowerCase(Locale.ROOT), 0);
+    }
+
+    public synchronized void destroy() {
+        destroyed = true;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private CompletableFuture<Boolean> startVerification(String key) {
+        CompletableFuture<Boolean> verification = new CompletableFuture<>();
+        getExecutor().execute(() -> {
+            try {
+                verification.complete(verify(key));
+            } catch (RuntimeException e) {
+                verification.completeExceptionally(e);
+            } finally {
+                verifications.remove(key, verification);
+            }
+        });
+        return verification;
+    }
+
+    private boolean verify(String key) {
+        Path blob = blobPath(key);
+        try {
+            if (key.equals(sha256(blob))) {
+                verified.add(key);
+                return true;
+            }
+            log.warn("Stored OTA package [{}] does not match its checksum, deleted", blob);
+            Files.deleteIfExists(blob);
+        } catch (IOException e) {
+            log.warn("Can't check stored OTA package [{}]: {}", blob, e.getMessage());
+        }
+        return false;
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (destroyed) {
+            throw new RejectedExecutionException("OTA blob store is destroyed");
+        }
+        if (executor == null) {
+            // hashing is bound by the disk, one thread for all clients
+            executor = Executors.newSingleThreadExecutor(new DaemonThreadFactory("OTA-Verify#"));
+        }
+        return executor;
+    }
+
+    private Path blobPath(String key) {
+        return directory.resolve(key + BLOB_SUFFIX);
+    }
+
+    private static String sha256(Path path) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(HASH_BUFFER_SIZE);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
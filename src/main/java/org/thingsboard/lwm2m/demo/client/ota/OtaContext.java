@@ -0,0 +1,86 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client.ota;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.thingsboard.lwm2m.demo.client.entities.LwM2MClientOtaInfo;
+import org.thingsboard.lwm2m.demo.client.entities.OtaPackageType;
+import org.thingsboard.lwm2m.demo.client.util.Utils;
+
+import java.nio.file.Path;
+
+import static org.thingsboard.lwm2m.demo.client.util.Utils.FW_INFO_FILE_NANE_DEF;
+import static org.thingsboard.lwm2m.demo.client.util.Utils.SW_INFO_FILE_NANE_DEF;
+
+/**
+ * OTA state of one client: the folder of its package and info files, and the update information written by the
+ * server to Object 19 (instance 65533 for firmware, 65534 for software) until the firmware or software object uses it,
+ * and the {@link OtaDwellTimes} of its simulated updates.
+ * <p>
+ * Object 19 instances and the firmware and software objects of a client share the same instance, so clients running
+ * in the same process do not see each other's updates.
+ */
+public class OtaContext {
+
+    @Getter
+    private final Path folder;
+    @Getter
+    private final OtaDwellTimes dwellTimes;
+    @Getter
+    @Setter
+    private volatile LwM2MClientOtaInfo fwUpdateInfo;
+    @Getter
+    @Setter
+    private volatile LwM2MClientOtaInfo swUpdateInfo;
+
+    public OtaContext(Path folder) {
+        this(folder, OtaDwellTimes.DEFAULT);
+    }
+
+    public OtaContext(Path folder, OtaDwellTimes dwellTimes) {
+        this.folder = folder;
+        this.dwellTimes = dwellTimes;
+    }
+
+    /**
+     * @return context using a sub-folder of <code>otaFolder</code> named after <code>endpoint</code>
+     * @see Utils#toFileName(String)
+     */
+    public static OtaContext forClient(Path otaFolder, String endpoint, OtaDwellTimes dwellTimes) {
+        return new OtaContext(otaFolder.resolve(Utils.toFileName(endpoint)), dwellTimes);
+    }
+
+    public void setUpdateInfo(LwM2MClientOtaInfo info) {
+        if (OtaPackageType.FIRMWARE.equals(info.getType())) {
+            setFwUpdateInfo(info);
+        } else {
+            setSwUpdateInfo(info);
+        }
+    }
+
+    public Path resolve(String fileName) {
+        return folder.resolve(fileName);
+    }
+
+    public String getFwInfoPath() {
+        return resolve(FW_INFO_FILE_NANE_DEF).toString();
+    }
+
+    public String getSwInfoPath() {
+        return resolve(SW_INFO_FILE_NANE_DEF).toString();
+    }
+}
@@ -0,0 +1,177 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client.ota;
+
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.californium.core.config.CoapConfig;
+import org.eclipse.californium.core.network.CoapEndpoint;
+import org.eclipse.californium.elements.config.Configuration;
+import org.eclipse.californium.scandium.DTLSConnector;
+import org.eclipse.californium.scandium.config.DtlsConfig;
+import org.eclipse.californium.scandium.config.DtlsConnectorConfig;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Consumer;
+
+/**
+ * CoAP and CoAPs endpoints used to download OTA packages by <code>Package URI</code>, and the HTTP downloader used for
+ * <code>http://</code> and <code>https://</code> URIs.
+ * <p>
+ * One endpoint of each scheme is created on the first download which needs it, then reused by the following ones, so
+ * repeated OTA cycles do not open new sockets or threads. Firmware and software objects of a client share the same
+ * instance; {@link #destroy()} may be called by both. The HTTP downloader is destroyed with it only if it was created
+ * by it.
+ */
+@Slf4j
+public class OtaDownloadEndpoints {
+
+    private final Consumer<DtlsConnectorConfig.Builder> dtlsIdentity;
+    private final ScheduledExecutorService mainExecutor;
+    private final ScheduledExecutorService secondaryExecutor;
+    private final ExecutorService dtlsExecutor;
+    private final HttpPackageDownloader httpDownloader;
+    private final boolean ownHttpDownloader;
+    private CoapEndpoint coapEndpoint;
+    private CoapEndpoint coapsEndpoint;
+    private volatile int coapBlockSize;
+    private boolean destroyed;
+
+    /**
+     * Endpoints using their own threads, without DTLS identity: only <code>coap://</code> URIs are supported.
+     */
+    public OtaDownloadEndpoints() {
+        this(null, null, null, null, null);
+    }
+
+    /**
+     * @param dtlsIdentity sets credentials of the client on the DTLS configuration, <code>null</code> if
+     *                     <code>coaps://</code> URIs are not supported
+     * @param mainExecutor executors of the CoAP stack, <code>null</code> to let each endpoint create its own
+     * @param dtlsExecutor executor of the DTLS connector, <code>null</code> to let it create its own
+     * @param httpDownloader downloader shared by the fleet, <code>null</code> to create one for this client
+     */
+    public OtaDownloadEndpoints(Consumer<DtlsConnectorConfig.Builder> dtlsIdentity,
+            ScheduledExecutorService mainExecutor, ScheduledExecutorService secondaryExecutor,
+            ExecutorService dtlsExecutor, HttpPackageDownloader httpDownloader) {
+        this.dtlsIdentity = dtlsIdentity;
+        this.mainExecutor = mainExecutor;
+        this.secondaryExecutor = secondaryExecutor;
+        this.dtlsExecutor = dtlsExecutor;
+        this.ownHttpDownloader = httpDownloader == null;
+        this.httpDownloader = httpDownloader != null ? httpDownloader : new HttpPackageDownloader();
+    }
+
+    public HttpPackageDownloader getHttpDownloader() {
+        return httpDownloader;
+    }
+
+    /**
+     * @return fixed block size of CoAP downloads, <code>0</code> if it adapts to the link
+     */
+    public int getCoapBlockSize() {
+        return coapBlockSize;
+    }
+
+    /**
+     * @param coapBlockSize fixed block size of CoAP downloads, from 16 to 1024 bytes, or <code>0</code> to start with
+     *                      the largest block fitting the MTU and adapt it to retransmissions and RTT
+     */
+    public void setCoapBlockSize(int coapBlockSize) {
+        if (coapBlockSize != 0 && (coapBlockSize < 16 || coapBlockSize > 1024 || Integer.bitCount(coapBlockSize) != 1)) {
+            throw new IllegalArgumentException("Block size must be 0 or a power of 2 from 16 to 1024: " + coapBlockSize);
+        }
+        this.coapBlockSize = coapBlockSize;
+    }
+
+    public boolean isAdaptiveBlockSize() {
+        return coapBlockSize == 0;
+    }
+
+    /**
+     * @return started endpoint for the scheme of <code>uri</code>
+     */
+    public synchronized CoapEndpoint getEndpoint(String uri) throws IOException {
+        if (destroyed) {
+            throw new IOException("OTA download endpoints are destroyed");
+        }
+        String scheme = URI.create(uri).getScheme();
+        if ("coap".equalsIgnoreCase(scheme)) {
+            if (coapEndpoint == null) {
+                coapEndpoint = start(new CoapEndpoint.Builder().setConfiguration(createConfiguration()).build());
+            }
+            return coapEndpoint;
+        }
+        if ("coaps".equalsIgnoreCase(scheme)) {
+            if (dtlsIdentity == null) {
+                throw new IOException("No DTLS identity to download " + uri);
+            }
+            if (coapsEndpoint == null) {
+                coapsEndpoint = start(createCoapsEndpoint());
+            }
+            return coapsEndpoint;
+        }
+        throw new IOException("Unsupported scheme of package URI: " + uri);
+    }
+
+    public synchronized void destroy() {
+        if (destroyed) {
+            return;
+        }
+        destroyed = true;
+        if (coapEndpoint != null) {
+            coapEndpoint.destroy();
+        }
+        if (coapsEndpoint != null) {
+            coapsEndpoint.destroy();
+        }
+        if (ownHttpDownloader) {
+            httpDownloader.destroy();
+        }
+    }
+
+    private CoapEndpoint createCoapsEndpoint() {
+        Configuration configuration = createConfiguration();
+        DtlsConnectorConfig.Builder builder = DtlsConnectorConfig.builder(configuration);
+        builder.set(DtlsConfig.DTLS_ROLE, DtlsConfig.DtlsRole.CLIENT_ONLY);
+        dtlsIdentity.accept(builder);
+        DTLSConnector connector = new DTLSConnector(builder.build());
+        if (dtlsExecutor != null) {
+            connector.setExecutor(dtlsExecutor);
+        }
+        return new CoapEndpoint.Builder().setConfiguration(configuration).setConnector(connector).build();
+    }
+
+    private CoapEndpoint start(CoapEndpoint endpoint) throws IOException {
+        if (mainExecutor != null) {
+            endpoint.setExecutors(mainExecutor, secondaryExecutor);
+        }
+        endpoint.start();
+        log.debug("OTA download endpoint started [{}]", endpoint.getUri());
+        return endpoint;
+    }
+
+    private static Configuration createConfiguration() {
+        Configuration networkConfig = new Configuration();
+        // blocks are requested one by one, nothing is assembled in memory
+        networkConfig.set(CoapConfig.MAX_RESOURCE_BODY_SIZE, 0);
+        networkConfig.set(CoapConfig.RESPONSE_MATCHING, CoapConfig.MatcherMode.RELAXED);
+        networkConfig.set(CoapConfig.MAX_RETRANSMIT, 4);
+        return networkConfig;
+    }
+}
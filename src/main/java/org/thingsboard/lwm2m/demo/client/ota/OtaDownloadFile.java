@@ -0,0 +1,195 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client.ota;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * OTA package being received: each block is appended to a temporary file as it arrives and added to a running SHA-256,
+ * so only one block is held in memory whatever the package size.
+ * <p>
+ * The temporary file is created next to the final one and moved in place by {@link #moveTo(Path)} once the package is
+ * verified. Closing a temporary file without moving it deletes it, a partial file opened with {@link #open(Path, long)}
+ * is kept so that the download can be resumed. Not thread-safe: blocks are appended in order by one transfer.
+ */
+public class OtaDownloadFile implements Closeable {
+
+    private static final String PART_PREFIX = "ota-";
+    private static final String PART_SUFFIX = ".part";
+    private static final int RESUME_BUFFER_SIZE = 64 * 1024;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MessageDigest digest;
+    private final boolean keepOnClose;
+    private long size;
+    private String checksum;
+    private boolean moved;
+
+    private OtaDownloadFile(Path path, long resumeOffset, boolean keepOnClose) throws IOException {
+        this.path = path;
+        this.keepOnClose = keepOnClose;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.digest = sha256();
+        try {
+            resume(Math.min(resumeOffset, channel.size()));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates an empty temporary file in <code>directory</code>. Its name does not match OTA file masks, so it is not
+     * touched by {@link org.thingsboard.lwm2m.demo.client.util.Utils#renameOtaFilesToTmp}.
+     */
+    public static OtaDownloadFile create(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        return new OtaDownloadFile(Files.createTempFile(directory, PART_PREFIX, PART_SUFFIX), 0, false);
+    }
+
+    /**
+     * Opens a partial download kept across transfers. The first <code>resumeOffset</code> bytes already received are
+     * kept and hashed again, anything after them is dropped.
+     */
+    public static OtaDownloadFile open(Path path, long resumeOffset) throws IOException {
+        Files.createDirectories(path.getParent());
+        return new OtaDownloadFile(path, resumeOffset, true);
+    }
+
+    public void append(byte[] block) throws IOException {
+        append(block, 0, block.length);
+    }
+
+    public void append(byte[] block, int offset, int length) throws IOException {
+        append(ByteBuffer.wrap(block, offset, length));
+    }
+
+    /**
+     * Appends the remaining bytes of <code>block</code>, e.g. a chunk of an HTTP body, without copying it.
+     */
+    public void append(ByteBuffer block) throws IOException {
+        if (checksum != null) {
+            throw new IllegalStateException("Checksum already computed for " + path);
+        }
+        int length = block.remaining();
+        digest.update(block.duplicate());
+        while (block.hasRemaining()) {
+            channel.write(block);
+        }
+        size += length;
+    }
+
+    /**
+     * Drops the bytes received after <code>size</code>, e.g. when the server sends the whole package again instead of
+     * the requested range.
+     */
+    public void truncate(long size) throws IOException {
+        if (checksum != null) {
+            throw new IllegalStateException("Checksum already computed for " + path);
+        }
+        digest.reset();
+        resume(Math.min(size, this.size));
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Makes received blocks durable, before their offset is recorded as confirmed.
+     */
+    public void force() throws IOException {
+        channel.force(false);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return hex SHA-256 of all appended blocks; no block can be appended afterward
+     */
+    public String checksum() {
+        if (checksum == null) {
+            checksum = HexFormat.of().formatHex(digest.digest());
+        }
+        return checksum;
+    }
+
+    /**
+     * Flushes the received package and moves it to <code>target</code>, replacing any existing file.
+     */
+    public void moveTo(Path target) throws IOException {
+        channel.force(false);
+        channel.close();
+        try {
+            Files.move(path, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(path, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        moved = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        if (!moved && !keepOnClose) {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    /**
+     * Truncates to <code>offset</code> and rebuilds the running digest from the kept bytes.
+     */
+    private void resume(long offset) throws IOException {
+        channel.truncate(offset);
+        ByteBuffer buffer = ByteBuffer.allocate(RESUME_BUFFER_SIZE);
+        long position = 0;
+        while (position < offset) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), offset - position));
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            digest.update(buffer.array(), 0, read);
+            position += read;
+        }
+        size = position;
+        channel.position(position);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client.ota;
+
+/**
+ * Time in milliseconds spent in each step of a simulated firmware or software update.
+ *
+ * @param start       before the first transition following the request of the server
+ * @param downloading in Downloading (FW) / Download started (SW)
+ * @param downloaded  in Downloaded before Delivered (SW only)
+ * @param updating    in Updating (FW) / Installed before the result (SW)
+ * @param result      between a final update result and the return to Idle / Initial
+ */
+public record OtaDwellTimes(long start, long downloading, long downloaded, long updating, long result) {
+
+    public static final OtaDwellTimes DEFAULT = new OtaDwellTimes(100, 100, 100, 100, 100);
+
+    public OtaDwellTimes {
+        if (start < 0 || downloading < 0 || downloaded < 0 || updating < 0 || result < 0) {
+            throw new IllegalArgumentException("Dwell times must be positive or 0");
+        }
+    }
+
+    /**
+     * @param value comma separated <code>step=milliseconds</code>, e.g. <code>downloading=2000,updating=5000</code>;
+     *              steps which are not set keep their {@link #DEFAULT} value
+     */
+    public static OtaDwellTimes parse(String value) {
+        long start = DEFAULT.start;
+        long downloading = DEFAULT.downloading;
+        long downloaded = DEFAULT.downloaded;
+        long updating = DEFAULT.updating;
+        long result = DEFAULT.result;
+        for (String entry : value.split(",")) {
+            int equal = entry.indexOf('=');
+            if (equal <= 0) {
+                throw new IllegalArgumentException("Dwell time must be set as step=milliseconds: " + entry);
+            }
+            String step = entry.substring(0, equal).trim();
+            long ms;
+            try {
+                ms = Long.parseLong(entry.substring(equal + 1).trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid dwell time of " + step + ": " + entry.substring(equal + 1));
+            }
+            switch (step) {
+                case "start" -> start = ms;
+                case "downloading" -> downloading = ms;
+                case "downloaded" -> downloaded = ms;
+                case "updating" -> updating = ms;
+                case "result" -> result = ms;
+                default -> throw new IllegalArgumentException("Unknown OTA step " + step
+                        + ", expected start, downloading, downloaded, updating or result");
+            }
+        }
+        return new OtaDwellTimes(start, downloading, downloaded, updating, result);
+    }
+}
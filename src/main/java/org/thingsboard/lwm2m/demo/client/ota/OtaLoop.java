@@ -0,0 +1,147 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client.ota;
+
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.lwm2m.demo.client.metrics.ClientMetrics;
+import org.thingsboard.lwm2m.demo.client.metrics.OtaLoopStats;
+import org.thingsboard.lwm2m.demo.client.scheduler.HashedWheelScheduler;
+import org.thingsboard.lwm2m.demo.client.scheduler.ScheduledTask;
+import org.thingsboard.lwm2m.demo.client.util.FirmwareUpdateResult;
+import org.thingsboard.lwm2m.demo.client.util.FirmwareUpdateState;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Continuous firmware update cycles of one client, for soak tests of the OTA service of the server.
+ * <p>
+ * A cycle starts when the firmware object leaves Idle (package or package URI written by the server) and ends when it
+ * is back to Idle, after a successful update or a failure. After the think time, the client reports its previous
+ * package again, so the server sees it is not on the target firmware and sends the next update.
+ * <p>
+ * Time spent in each state is recorded in the <code>fw.loop.&lt;state&gt;</code> histograms and the whole cycle in
+ * <code>fw.loop.cycle</code>; cycles, failures and downloaded bytes are summed in {@link OtaLoopStats}.
+ */
+@Slf4j
+public class OtaLoop {
+
+    public static final String CYCLE = "fw.loop.cycle";
+
+    private final OtaLoopStats stats;
+    private final ClientMetrics metrics;
+    private final HashedWheelScheduler scheduler;
+    private final long thinkTimeMs;
+    private Runnable nextPackage = () -> {};
+    // guarded by this
+    private FirmwareUpdateState state = FirmwareUpdateState.IDLE;
+    private long stateSinceNanos = System.nanoTime();
+    private long cycleStartNanos;
+    private long cycleBytes;
+    private long cycleDownloadNanos;
+    private boolean cycleSuccess;
+    private ScheduledTask thinkTask;
+
+    public OtaLoop(OtaLoopStats stats, ClientMetrics metrics, HashedWheelScheduler scheduler, long thinkTimeMs) {
+        this.stats = stats;
+        this.metrics = metrics;
+        this.scheduler = scheduler;
+        this.thinkTimeMs = thinkTimeMs;
+    }
+
+    /**
+     * @param nextPackage reports the previous package of the client to the server, called after the think time
+     */
+    public void setNextPackage(Runnable nextPackage) {
+        this.nextPackage = nextPackage;
+    }
+
+    public synchronized void onState(FirmwareUpdateState newState) {
+        if (newState == state) {
+            return;
+        }
+        long now = System.nanoTime();
+        long inState = now - stateSinceNanos;
+        if (state != FirmwareUpdateState.IDLE || cycleStartNanos != 0) {
+            // Idle before the first cycle is the registration time, not think time
+            metrics.histogram("fw.loop." + state.name().toLowerCase(Locale.ROOT)).record(inState, TimeUnit.NANOSECONDS);
+        }
+        if (state == FirmwareUpdateState.DOWNLOADING) {
+            cycleDownloadNanos += inState;
+        }
+        if (state == FirmwareUpdateState.IDLE) {
+            startCycle(now);
+        } else if (newState == FirmwareUpdateState.IDLE) {
+            endCycle(now);
+        }
+        state = newState;
+        stateSinceNanos = now;
+    }
+
+    public synchronized void onResult(FirmwareUpdateResult result) {
+        if (result == FirmwareUpdateResult.SUCCESS) {
+            cycleSuccess = true;
+        }
+    }
+
+    /**
+     * @param bytes size of the package received in the current cycle
+     */
+    public synchronized void onDownloaded(long bytes) {
+        cycleBytes += bytes;
+    }
+
+    public synchronized void destroy() {
+        if (thinkTask != null) {
+            thinkTask.cancel();
+            thinkTask = null;
+        }
+    }
+
+    private void startCycle(long now) {
+        if (thinkTask != null) {
+            // the server did not wait for the previous package to be reported
+            thinkTask.cancel();
+            thinkTask = null;
+        }
+        stats.onFirstCycle();
+        cycleStartNanos = now;
+        cycleBytes = 0;
+        cycleDownloadNanos = 0;
+        cycleSuccess = false;
+    }
+
+    private void endCycle(long now) {
+        metrics.histogram(CYCLE).record(now - cycleStartNanos, TimeUnit.NANOSECONDS);
+        stats.onCycle(cycleSuccess, cycleBytes, cycleDownloadNanos);
+        if (log.isDebugEnabled()) {
+            log.debug("OTA cycle {} in {} ms, {} bytes at {} KB/s", cycleSuccess ? "succeeded" : "failed",
+                    (now - cycleStartNanos) / 1_000_000, cycleBytes,
+                    cycleDownloadNanos > 0 ? cycleBytes * 1_000_000_000L / 1024 / cycleDownloadNanos : 0);
+        }
+        thinkTask = scheduler.schedule(this::thinkTimeElapsed, thinkTimeMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void thinkTimeElapsed() {
+        synchronized (this) {
+            thinkTask = null;
+            if (state != FirmwareUpdateState.IDLE) {
+                return;
+            }
+        }
+        nextPackage.run();
+    }
+}
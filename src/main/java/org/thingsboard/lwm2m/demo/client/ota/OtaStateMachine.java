@@ -0,0 +1,102 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client.ota;
+
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.lwm2m.demo.client.scheduler.HashedWheelScheduler;
+import org.thingsboard.lwm2m.demo.client.scheduler.ScheduledTask;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timed state transitions of a simulated firmware or software update.
+ * <p>
+ * An event (package written, update executed, failure) starts a sequence of {@link Transition}s: each one is a
+ * one-shot task of the {@link HashedWheelScheduler}, scheduled when the previous one has run, so nothing sleeps and
+ * no thread is held between two states. A new event replaces the transitions still pending from the previous one,
+ * e.g. a failure reported while an update is in progress.
+ */
+@Slf4j
+public class OtaStateMachine {
+
+    private final HashedWheelScheduler scheduler;
+    private final String name;
+    // guarded by this
+    private ScheduledTask pending;
+    private long sequence;
+
+    /**
+     * @param delayMs time spent in the current state before <code>action</code> moves to the next one
+     */
+    public record Transition(long delayMs, Runnable action) {
+    }
+
+    public static Transition after(long delayMs, Runnable action) {
+        return new Transition(delayMs, action);
+    }
+
+    public OtaStateMachine(HashedWheelScheduler scheduler, String name) {
+        this.scheduler = scheduler;
+        this.name = name;
+    }
+
+    /**
+     * Cancels pending transitions and starts <code>transitions</code>, executed in order.
+     */
+    public synchronized void start(Transition... transitions) {
+        cancel();
+        schedule(sequence, List.of(transitions), 0);
+    }
+
+    public synchronized void cancel() {
+        sequence++;
+        if (pending != null) {
+            pending.cancel();
+            pending = null;
+        }
+    }
+
+    private void schedule(long current, List<Transition> transitions, int index) {
+        if (index == transitions.size()) {
+            pending = null;
+            return;
+        }
+        Transition transition = transitions.get(index);
+        pending = scheduler.schedule(() -> run(current, transitions, index), transition.delayMs(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    private void run(long current, List<Transition> transitions, int index) {
+        synchronized (this) {
+            if (current != sequence) {
+                // replaced by a newer event after this task was handed to a worker
+                return;
+            }
+        }
+        // not under the lock: actions fire notifications, events may come from the threads sending them
+        try {
+            transitions.get(index).action().run();
+        } catch (RuntimeException e) {
+            log.error("{}: transition {} failed", name, index, e);
+        }
+        synchronized (this) {
+            if (current == sequence) {
+                schedule(current, transitions, index + 1);
+            }
+        }
+    }
+}
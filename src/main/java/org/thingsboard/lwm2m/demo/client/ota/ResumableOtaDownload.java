@@ -0,0 +1,219 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client.ota;
+
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.lwm2m.demo.client.scheduler.HashedWheelScheduler;
+import org.thingsboard.lwm2m.demo.client.scheduler.ScheduledTask;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.thingsboard.lwm2m.demo.client.util.Utils.OBJECT_MAPPER;
+
+/**
+ * OTA download which survives a lost connection or a restart of the client.
+ * <p>
+ * Received bytes are kept in <code>&lt;name&gt;-download.part</code> in the OTA folder, and the last confirmed offset in
+ * <code>&lt;name&gt;-download.json</code> next to it. A new download of the same URI and checksum starts again from
+ * there: with the next Block2 request for CoAP, with a <code>Range</code> request for HTTP. The SHA-256 of the kept
+ * bytes is computed again from the partial file. A failed transfer is retried from there a few times before being
+ * reported, after a delay on the scheduler of the client; {@link #cancel()} drops a pending retry.
+ * <p>
+ * Names do not match OTA file masks, so the files are not touched by
+ * {@link org.thingsboard.lwm2m.demo.client.util.Utils#renameOtaFilesToTmp}.
+ */
+@Slf4j
+public class ResumableOtaDownload {
+
+    private static final String PART_SUFFIX = "-download.part";
+    private static final String CHECKPOINT_SUFFIX = "-download.json";
+    /** Blocks received between two checkpoints, each one costs a sync of the partial file. */
+    private static final int CHECKPOINT_INTERVAL = 64;
+    /** Bytes received over HTTP between two checkpoints. */
+    private static final long HTTP_CHECKPOINT_INTERVAL = 1024 * 1024;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_DELAY_MS = 2000L;
+
+    private final Path partFile;
+    private final Path checkpointFile;
+    private final String uri;
+    private final String checksum;
+    private final OtaDownloadEndpoints endpoints;
+    private final HashedWheelScheduler scheduler;
+    private final CompletableFuture<OtaDownloadFile> result = new CompletableFuture<>();
+    // guarded by this
+    private ScheduledTask retryTask;
+
+    /**
+     * @param name     <code>fw</code> or <code>sw</code>, one download of each can be in progress
+     * @param checksum expected SHA-256 of the package, may be null if unknown
+     */
+    public ResumableOtaDownload(Path directory, String name, String uri, String checksum,
+            OtaDownloadEndpoints endpoints, HashedWheelScheduler scheduler) {
+        this.endpoints = endpoints;
+        this.scheduler = scheduler;
+        this.partFile = directory.resolve(name + PART_SUFFIX);
+        this.checkpointFile = directory.resolve(name + CHECKPOINT_SUFFIX);
+        this.uri = uri;
+        this.checksum = checksum;
+    }
+
+    /**
+     * @return completed with the whole package once the last block is received; closing it keeps the partial file,
+     * call {@link #discard()} once it is moved in place or rejected
+     */
+    public CompletableFuture<OtaDownloadFile> start() {
+        attempt(1);
+        return result;
+    }
+
+    /**
+     * Cancels the future returned by {@link #start()} and a pending retry. The partial file is kept.
+     */
+    public synchronized void cancel() {
+        result.cancel(false);
+        if (retryTask != null) {
+            retryTask.cancel();
+            retryTask = null;
+        }
+    }
+
+    /**
+     * Deletes the partial file and its checkpoint, the next download starts from the first block.
+     */
+    public void discard() {
+        try {
+            Files.deleteIfExists(checkpointFile);
+            Files.deleteIfExists(partFile);
+        } catch (IOException e) {
+            log.warn("Failed to delete partial download [{}]: {}", partFile, e.getMessage());
+        }
+    }
+
+    private void attempt(int attempt) {
+        if (result.isDone()) {
+            return;
+        }
+        Checkpoint checkpoint = readCheckpoint();
+        int blockSize = checkpoint != null ? checkpoint.blockSize()
+                : endpoints.isAdaptiveBlockSize() ? CoapBlockDownloader.DEFAULT_BLOCK_SIZE : endpoints.getCoapBlockSize();
+        OtaDownloadFile file;
+        try {
+            file = OtaDownloadFile.open(partFile, checkpoint != null ? checkpoint.offset() : 0);
+        } catch (IOException e) {
+            result.completeExceptionally(e);
+            return;
+        }
+        if (file.size() > 0) {
+            log.info("Resume download of [{}] from block [{}], [{}] bytes already received", uri,
+                    file.size() / blockSize, file.size());
+        }
+
+        // the server may answer with smaller blocks, the checkpoint records the size in use;
+        // any offset can be resumed with a Range request
+        int[] lastBlockSize = {HttpPackageDownloader.isHttp(uri) ? 1 : blockSize};
+        CompletableFuture<Long> transfer;
+        if (HttpPackageDownloader.isHttp(uri)) {
+            long[] lastCheckpoint = {file.size()};
+            transfer = endpoints.getHttpDownloader().download(uri, file, size -> {
+                if (size - lastCheckpoint[0] >= HTTP_CHECKPOINT_INTERVAL) {
+                    writeCheckpoint(file, 1);
+                    lastCheckpoint[0] = size;
+                }
+            });
+        } else {
+            transfer = new CoapBlockDownloader(endpoints, blockSize).download(uri, file, (size, num) -> {
+                lastBlockSize[0] = size;
+                if ((num + 1) % CHECKPOINT_INTERVAL == 0) {
+                    writeCheckpoint(file, size);
+                }
+            });
+        }
+        transfer.whenComplete((size, error) -> {
+            if (error == null) {
+                if (!result.complete(file)) {
+                    // cancelled meanwhile, the partial file is kept
+                    try {
+                        file.close();
+                    } catch (IOException e) {
+                        log.warn("Failed to close partial download [{}]: {}", partFile, e.getMessage());
+                    }
+                }
+                return;
+            }
+            try (file) {
+                writeCheckpoint(file, lastBlockSize[0]);
+            } catch (IOException e) {
+                log.warn("Failed to save download checkpoint [{}]: {}", checkpointFile, e.getMessage());
+            }
+            if (attempt < MAX_ATTEMPTS) {
+                log.warn("Download of [{}] failed at [{}] bytes ({}), retry [{}/{}]", uri, file.size(),
+                        error.getMessage(), attempt, MAX_ATTEMPTS - 1);
+                scheduleRetry(attempt + 1);
+            } else {
+                result.completeExceptionally(error);
+            }
+        });
+    }
+
+    private synchronized void scheduleRetry(int attempt) {
+        if (!result.isDone()) {
+            retryTask = scheduler.schedule(() -> attempt(attempt), RETRY_DELAY_MS * (attempt - 1),
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private Checkpoint readCheckpoint() {
+        if (!Files.exists(checkpointFile)) {
+            return null;
+        }
+        try {
+            Checkpoint checkpoint = OBJECT_MAPPER.readValue(checkpointFile.toFile(), Checkpoint.class);
+            if (uri.equals(checkpoint.uri()) && Objects.equals(checksum, checkpoint.checksum())
+                    && checkpoint.blockSize() > 0 && checkpoint.offset() % checkpoint.blockSize() == 0) {
+                return checkpoint;
+            }
+            log.info("Partial download [{}] is for another package, start from the first block", partFile);
+        } catch (IOException e) {
+            log.warn("Can't read download checkpoint [{}]: {}", checkpointFile, e.getMessage());
+        }
+        return null;
+    }
+
+    private void writeCheckpoint(OtaDownloadFile file, int blockSize) throws IOException {
+        // blocks must be on disk before their offset is recorded
+        file.force();
+        long offset = file.size() - file.size() % blockSize;
+        Path tmp = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        OBJECT_MAPPER.writeValue(tmp.toFile(), new Checkpoint(uri, checksum, blockSize, offset));
+        try {
+            Files.move(tmp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, checkpointFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+        log.debug("Download checkpoint of [{}]: [{}] bytes in blocks of [{}]", uri, offset, blockSize);
+    }
+
+    record Checkpoint(String uri, String checksum, int blockSize, long offset) {
+    }
+}
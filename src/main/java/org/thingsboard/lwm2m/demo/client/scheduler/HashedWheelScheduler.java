@@ -0,0 +1,301 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client.scheduler;
+
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.californium.elements.util.DaemonThreadFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A hashed timing wheel shared by all instance enablers of all clients.
+ * <p>
+ * One tick thread moves around the wheel and hands expired tasks to a fixed pool of workers, so the number of threads
+ * does not depend on the number of objects or clients. Timing precision is the tick duration, which is plenty for
+ * simulated sensors reporting every few seconds.
+ * <p>
+ * Periodic tasks never overlap: next execution is scheduled once the current one is finished.
+ */
+@Slf4j
+public class HashedWheelScheduler {
+
+    public static final long DEFAULT_TICK_MS = 100;
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+    public static final int DEFAULT_WORKERS = 2;
+
+    private static final int MAX_TRANSFERS_BY_TICK = 100_000;
+
+    private static volatile HashedWheelScheduler defaultScheduler;
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Queue<WheelTask> pendingTasks = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger activeTasks = new AtomicInteger();
+    private final ExecutorService workers;
+    private final Thread tickThread;
+    private final long startTime;
+    private volatile boolean running = true;
+    // only accessed by tick thread
+    private long tick;
+
+    public HashedWheelScheduler(String name, int workers) {
+        this(name, DEFAULT_TICK_MS, TimeUnit.MILLISECONDS, DEFAULT_WHEEL_SIZE, workers);
+    }
+
+    public HashedWheelScheduler(String name, long tickDuration, TimeUnit unit, int wheelSize, int workers) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration must be greater than 0");
+        }
+        if (workers <= 0) {
+            throw new IllegalArgumentException("workers must be greater than 0");
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        // wheel size is rounded to a power of 2 to use a mask instead of a modulo
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.workers = Executors.newFixedThreadPool(workers, new DaemonThreadFactory(name + "-worker#"));
+        this.startTime = System.nanoTime();
+        this.tickThread = new DaemonThreadFactory(name + "-tick#").newThread(this::runTicks);
+        this.tickThread.start();
+    }
+
+    /**
+     * @return a scheduler shared by instance enablers which were not created with an explicit one.
+     */
+    public static HashedWheelScheduler getDefault() {
+        HashedWheelScheduler scheduler = defaultScheduler;
+        if (scheduler == null) {
+            synchronized (HashedWheelScheduler.class) {
+                scheduler = defaultScheduler;
+                if (scheduler == null) {
+                    scheduler = new HashedWheelScheduler("LwM2M-Scheduler", DEFAULT_WORKERS);
+                    defaultScheduler = scheduler;
+                }
+            }
+        }
+        return scheduler;
+    }
+
+    public ScheduledTask schedule(Runnable task, long delay, TimeUnit unit) {
+        return add(task, unit.toNanos(delay), 0);
+    }
+
+    public ScheduledTask schedulePeriodic(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("period must be greater than 0");
+        }
+        return add(task, unit.toNanos(initialDelay), unit.toNanos(period));
+    }
+
+    /**
+     * @return number of scheduled tasks not yet executed (one-shot) or not cancelled (periodic).
+     */
+    public int getActiveTasks() {
+        return activeTasks.get();
+    }
+
+    public void destroy() {
+        running = false;
+        tickThread.interrupt();
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(2, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        if (this == defaultScheduler) {
+            defaultScheduler = null;
+        }
+    }
+
+    private ScheduledTask add(Runnable task, long delayNanos, long periodNanos) {
+        if (!running) {
+            throw new RejectedExecutionException("Scheduler is destroyed");
+        }
+        WheelTask wheelTask = new WheelTask(task, now() + Math.max(0, delayNanos), periodNanos);
+        activeTasks.incrementAndGet();
+        pendingTasks.add(wheelTask);
+        return wheelTask;
+    }
+
+    private long now() {
+        return System.nanoTime() - startTime;
+    }
+
+    private void runTicks() {
+        while (running) {
+            long deadline = waitForNextTick();
+            if (deadline < 0) {
+                break;
+            }
+            transferPendingTasks();
+            wheel[(int) (tick & mask)].expire(deadline);
+            tick++;
+        }
+    }
+
+    private long waitForNextTick() {
+        long deadline = tickNanos * (tick + 1);
+        while (true) {
+            long current = now();
+            long sleepMs = (deadline - current + 999_999) / 1_000_000;
+            if (sleepMs <= 0) {
+                return current;
+            }
+            try {
+                Thread.sleep(sleepMs);
+            } catch (InterruptedException e) {
+                if (!running) {
+                    return -1;
+                }
+            }
+        }
+    }
+
+    private void transferPendingTasks() {
+        for (int i = 0; i < MAX_TRANSFERS_BY_TICK; i++) {
+            WheelTask task = pendingTasks.poll();
+            if (task == null) {
+                return;
+            }
+            if (task.isCancelled()) {
+                continue;
+            }
+            long expectedTick = task.deadline / tickNanos;
+            task.remainingRounds = (expectedTick - tick) / wheel.length;
+            // tasks already late are put in the current bucket
+            long ticks = Math.max(expectedTick, tick);
+            wheel[(int) (ticks & mask)].add(task);
+        }
+    }
+
+    private void dispatch(WheelTask task) {
+        try {
+            workers.execute(task);
+        } catch (RejectedExecutionException e) {
+            if (running) {
+                log.warn("Unable to execute scheduled task", e);
+            }
+        }
+    }
+
+    /**
+     * A bucket is a single linked list of tasks, only accessed by the tick thread.
+     */
+    private class Bucket {
+        private WheelTask head;
+
+        void add(WheelTask task) {
+            task.next = head;
+            head = task;
+        }
+
+        void expire(long deadline) {
+            WheelTask task = head;
+            head = null;
+            while (task != null) {
+                WheelTask next = task.next;
+                task.next = null;
+                if (task.isCancelled()) {
+                    // nothing to do, activeTasks is already decremented
+                } else if (task.remainingRounds <= 0 && task.deadline <= deadline) {
+                    dispatch(task);
+                } else {
+                    task.remainingRounds--;
+                    add(task);
+                }
+                task = next;
+            }
+        }
+    }
+
+    private class WheelTask implements ScheduledTask, Runnable {
+        private final Runnable task;
+        private final long periodNanos;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+        private long deadline;
+        // only accessed by tick thread
+        private long remainingRounds;
+        private WheelTask next;
+
+        private static final int WAITING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        WheelTask(Runnable task, long deadline, long periodNanos) {
+            this.task = task;
+            this.deadline = deadline;
+            this.periodNanos = periodNanos;
+        }
+
+        @Override
+        public void run() {
+            if (periodNanos == 0) {
+                if (!state.compareAndSet(WAITING, EXPIRED)) {
+                    return;
+                }
+                activeTasks.decrementAndGet();
+                execute();
+            } else {
+                if (isCancelled()) {
+                    return;
+                }
+                execute();
+                if (!isCancelled() && running) {
+                    // fixed rate, but do not try to catch up executions missed by a late or slow task
+                    deadline = Math.max(deadline + periodNanos, now());
+                    pendingTasks.add(this);
+                }
+            }
+        }
+
+        private void execute() {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                log.warn("Scheduled task [{}] failed", task, t);
+            }
+        }
+
+        @Override
+        public boolean cancel() {
+            if (state.compareAndSet(WAITING, CANCELLED)) {
+                activeTasks.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+    }
+}
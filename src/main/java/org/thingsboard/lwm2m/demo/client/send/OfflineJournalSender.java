@@ -0,0 +1,270 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client.send;
+
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.leshan.client.observer.LwM2mClientObserverAdapter;
+import org.eclipse.leshan.client.resource.listener.ObjectsListener;
+import org.eclipse.leshan.client.resource.listener.ObjectsListenerAdapter;
+import org.eclipse.leshan.client.send.DataSender;
+import org.eclipse.leshan.client.send.DataSenderManager;
+import org.eclipse.leshan.client.send.NoDataException;
+import org.eclipse.leshan.client.servers.LwM2mServer;
+import org.eclipse.leshan.core.Destroyable;
+import org.eclipse.leshan.core.ResponseCode;
+import org.eclipse.leshan.core.model.LwM2mModel;
+import org.eclipse.leshan.core.node.LwM2mNode;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.TimestampedLwM2mNodes;
+import org.eclipse.leshan.core.node.codec.CodecException;
+import org.eclipse.leshan.core.node.codec.LwM2mDecoder;
+import org.eclipse.leshan.core.node.codec.LwM2mEncoder;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.request.DeregisterRequest;
+import org.eclipse.leshan.core.request.RegisterRequest;
+import org.eclipse.leshan.core.request.UpdateRequest;
+import org.thingsboard.lwm2m.demo.client.metrics.ClientMetrics;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps values produced while the client is offline in a {@link TelemetryJournal}, and sends them back in batched
+ * Send requests once it is registered again.
+ * <p>
+ * The client is offline from the start until its registration succeeds, and again when a registration or update
+ * fails or times out, or after deregistration. Meanwhile, each change of a resource of the journaled objects is read
+ * and appended to the journal with its timestamp, encoded in SenML-CBOR. When online, changes are left to
+ * observations.
+ * <p>
+ * After a successful registration or update, the journal is drained from the oldest record, {@link #DRAIN_BATCH}
+ * records per Send, one Send at a time. Records are removed only when the server acknowledged them, so a failed Send
+ * or a restart of the client replays them later.
+ */
+@Slf4j
+public class OfflineJournalSender extends LwM2mClientObserverAdapter implements DataSender, Destroyable {
+
+    public static final String DEFAULT_NAME = "OFFLINE_JOURNAL";
+    public static final int DRAIN_BATCH = 256;
+
+    public static final String JOURNALED = "send.journal";
+    public static final String DRAINED = "send.journal.drained";
+
+    private static final ContentFormat RECORD_FORMAT = ContentFormat.SENML_CBOR;
+
+    private final TelemetryJournal journal;
+    private final Set<Integer> objectIds;
+    private final LwM2mEncoder encoder;
+    private final LwM2mDecoder decoder;
+    private final LwM2mModel model;
+    private final ContentFormat contentFormat;
+    private final long timeoutMs;
+    private final ClientMetrics metrics;
+    private volatile DataSenderManager dataSenderManager;
+    private volatile LwM2mServer server;
+    // guarded by this
+    private boolean draining;
+
+    /**
+     * @param objectIds     objects whose resource changes are journaled while offline
+     * @param contentFormat {@link ContentFormat#SENML_CBOR} or {@link ContentFormat#SENML_JSON}, for Send requests
+     * @param timeoutMs     timeout of a Send request
+     */
+    public OfflineJournalSender(TelemetryJournal journal, Set<Integer> objectIds, LwM2mEncoder encoder,
+            LwM2mDecoder decoder, LwM2mModel model, ContentFormat contentFormat, long timeoutMs,
+            ClientMetrics metrics) {
+        this.journal = journal;
+        this.objectIds = Set.copyOf(objectIds);
+        this.encoder = encoder;
+        this.decoder = decoder;
+        this.model = model;
+        this.contentFormat = contentFormat;
+        this.timeoutMs = timeoutMs;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return listener to add to the object tree of the client
+     */
+    public ObjectsListener getObjectsListener() {
+        return new ObjectsListenerAdapter() {
+            @Override
+            public void resourceChanged(LwM2mPath... paths) {
+                if (server == null) {
+                    record(paths);
+                }
+            }
+        };
+    }
+
+    @Override
+    public void setDataSenderManager(DataSenderManager dataSenderManager) {
+        this.dataSenderManager = dataSenderManager;
+    }
+
+    @Override
+    public String getName() {
+        return DEFAULT_NAME;
+    }
+
+    @Override
+    public void destroy() {
+        server = null;
+        journal.close();
+    }
+
+    @Override
+    public void onRegistrationSuccess(LwM2mServer server, RegisterRequest request, String registrationID) {
+        online(server);
+    }
+
+    @Override
+    public void onUpdateSuccess(LwM2mServer server, UpdateRequest request) {
+        online(server);
+    }
+
+    @Override
+    public void onRegistrationFailure(LwM2mServer server, RegisterRequest request, ResponseCode responseCode,
+            String errorMessage, Exception cause) {
+        offline();
+    }
+
+    @Override
+    public void onRegistrationTimeout(LwM2mServer server, RegisterRequest request) {
+        offline();
+    }
+
+    @Override
+    public void onUpdateFailure(LwM2mServer server, UpdateRequest request, ResponseCode responseCode,
+            String errorMessage, Exception cause) {
+        offline();
+    }
+
+    @Override
+    public void onUpdateTimeout(LwM2mServer server, UpdateRequest request) {
+        offline();
+    }
+
+    @Override
+    public void onDeregistrationStarted(LwM2mServer server, DeregisterRequest request) {
+        offline();
+    }
+
+    private void online(LwM2mServer server) {
+        this.server = server;
+        drain();
+    }
+
+    private void offline() {
+        server = null;
+    }
+
+    private void record(LwM2mPath... paths) {
+        List<LwM2mPath> journaled = new ArrayList<>(paths.length);
+        for (LwM2mPath path : paths) {
+            if (path.isResource() && objectIds.contains(path.getObjectId())) {
+                journaled.add(path);
+            }
+        }
+        DataSenderManager manager = dataSenderManager;
+        if (journaled.isEmpty() || manager == null) {
+            return;
+        }
+        Map<LwM2mPath, LwM2mNode> values;
+        try {
+            values = manager.getCurrentValues(LwM2mServer.SYSTEM, journaled);
+        } catch (NoDataException | IllegalArgumentException e) {
+            log.debug("Unable to read {} for the journal: {}", journaled, e.getMessage());
+            return;
+        }
+        Instant now = Instant.now();
+        values.forEach((path, node) -> {
+            if (node == null) {
+                return;
+            }
+            try {
+                byte[] record = encoder.encodeTimestampedNodes(
+                        TimestampedLwM2mNodes.builder().put(now, path, node).build(), RECORD_FORMAT, model);
+                if (journal.append(record)) {
+                    metrics.increment(JOURNALED);
+                }
+            } catch (CodecException e) {
+                log.warn("Unable to journal {}", path, e);
+            }
+        });
+    }
+
+    private void drain() {
+        synchronized (this) {
+            if (draining || journal.isEmpty()) {
+                return;
+            }
+            draining = true;
+        }
+        sendNextBatch();
+    }
+
+    private void sendNextBatch() {
+        LwM2mServer target = server;
+        TelemetryJournal.Batch batch = journal.peek(DRAIN_BATCH);
+        if (target == null || batch.records().isEmpty()) {
+            stopDraining();
+            return;
+        }
+        TimestampedLwM2mNodes.Builder builder = TimestampedLwM2mNodes.builder();
+        for (byte[] record : batch.records()) {
+            try {
+                builder.add(decoder.decodeTimestampedNodes(record, RECORD_FORMAT, null, model));
+            } catch (CodecException e) {
+                // e.g. the object model changed since the record was written, nothing to replay
+                log.warn("Skip unreadable journal record: {}", e.getMessage());
+            }
+        }
+        try {
+            TimestampedLwM2mNodes nodes = builder.build();
+            if (nodes.isEmpty()) {
+                journal.commit(batch);
+                sendNextBatch();
+                return;
+            }
+            dataSenderManager.sendData(target, contentFormat, nodes, response -> {
+                if (response.isSuccess()) {
+                    journal.commit(batch);
+                    metrics.increment(DRAINED);
+                    log.debug("Sent {} journaled samples, {} left", batch.records().size(), journal.size());
+                    sendNextBatch();
+                } else {
+                    log.warn("Send of {} journaled samples rejected by server: {} {}", batch.records().size(),
+                            response.getCode(), response.getErrorMessage());
+                    stopDraining();
+                }
+            }, e -> {
+                log.warn("Send of {} journaled samples failed: {}", batch.records().size(), e.getMessage());
+                stopDraining();
+            }, timeoutMs);
+        } catch (RuntimeException e) {
+            log.warn("Unable to send {} journaled samples", batch.records().size(), e);
+            stopDraining();
+        }
+    }
+
+    private synchronized void stopDraining() {
+        draining = false;
+    }
+}
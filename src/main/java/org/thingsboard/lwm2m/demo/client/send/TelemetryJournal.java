@@ -0,0 +1,257 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client.send;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only journal of records kept in a memory-mapped ring file of fixed size, so records survive a restart of the
+ * client (or a crash of the process, as the page cache is written back by the system).
+ * <p>
+ * Records are read from the oldest with {@link #peek(int)} and removed with {@link #commit(Batch)} once delivered. When
+ * a new record does not fit, the oldest ones are evicted.
+ * <p>
+ * The file starts with a header holding the logical positions of the oldest record (head) and of the end of the last
+ * one (tail); a record is its length on 4 bytes followed by its content, and may wrap around the end of the file.
+ * The head is moved before a record is overwritten and the tail after it is written, so an interrupted append never
+ * exposes a partial record.
+ */
+@Slf4j
+public class TelemetryJournal implements AutoCloseable {
+
+    private static final int MAGIC = 0x544A524E; // "TJRN"
+    private static final int VERSION = 1;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int HEAD_OFFSET = 16;
+    private static final int TAIL_OFFSET = 24;
+    static final int HEADER_SIZE = 32;
+
+    private final Path file;
+    private final int capacity;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    // guarded by this
+    private long head;
+    private long tail;
+    private int count;
+    private long evicted;
+
+    /**
+     * Records read by {@link #peek(int)}.
+     *
+     * @param end logical position following the last record of the batch
+     */
+    public record Batch(List<byte[]> records, long end) {
+    }
+
+    private TelemetryJournal(Path file, int capacity, FileChannel channel, MappedByteBuffer buffer) {
+        this.file = file;
+        this.capacity = capacity;
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Opens the journal stored in <code>file</code>, or creates it. Records of an existing journal are kept if it was
+     * created with the same <code>capacity</code>, otherwise it is reset.
+     *
+     * @param capacity size in bytes of records and their length, header excluded
+     */
+    public static TelemetryJournal open(Path file, int capacity) throws IOException {
+        if (capacity < 64) {
+            throw new IllegalArgumentException("Journal capacity must be at least 64 bytes: " + capacity);
+        }
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        long fileSize = HEADER_SIZE + (long) capacity;
+        boolean existing = Files.isRegularFile(file);
+        if (existing && Files.size(file) != fileSize) {
+            log.warn("Journal {} was created with another capacity, it is reset", file);
+            existing = false;
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            channel.truncate(fileSize);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+            TelemetryJournal journal = new TelemetryJournal(file, capacity, channel, buffer);
+            if (!existing || !journal.load()) {
+                journal.reset();
+            }
+            return journal;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Appends <code>record</code>, evicting the oldest records if there is not enough space left.
+     *
+     * @return <code>false</code> if the record is larger than the journal
+     */
+    public synchronized boolean append(byte[] record) {
+        long size = 4L + record.length;
+        if (size > capacity) {
+            return false;
+        }
+        while (tail + size - head > capacity) {
+            head += 4L + readInt(head);
+            count--;
+            evicted++;
+        }
+        buffer.putLong(HEAD_OFFSET, head);
+        writeInt(tail, record.length);
+        write(tail + 4, record);
+        tail += size;
+        count++;
+        buffer.putLong(TAIL_OFFSET, tail);
+        return true;
+    }
+
+    /**
+     * @return up to <code>max</code> oldest records, which stay in the journal until {@link #commit(Batch)}
+     */
+    public synchronized Batch peek(int max) {
+        List<byte[]> records = new ArrayList<>(Math.min(max, count));
+        long position = head;
+        while (records.size() < max && position < tail) {
+            byte[] record = read(position + 4, readInt(position));
+            records.add(record);
+            position += 4L + record.length;
+        }
+        return new Batch(records, position);
+    }
+
+    /**
+     * Removes the records of <code>batch</code>, except the ones already evicted since it was peeked.
+     */
+    public synchronized void commit(Batch batch) {
+        while (head < batch.end() && head < tail) {
+            head += 4L + readInt(head);
+            count--;
+        }
+        buffer.putLong(HEAD_OFFSET, head);
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    public synchronized boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * @return number of records evicted since the journal was opened
+     */
+    public synchronized long getEvicted() {
+        return evicted;
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            buffer.force();
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Unable to close journal {}", file, e);
+        }
+    }
+
+    private boolean load() {
+        if (buffer.getInt(MAGIC_OFFSET) != MAGIC || buffer.getInt(VERSION_OFFSET) != VERSION
+                || buffer.getInt(CAPACITY_OFFSET) != capacity) {
+            log.warn("Journal {} has an unknown format, it is reset", file);
+            return false;
+        }
+        long storedHead = buffer.getLong(HEAD_OFFSET);
+        long storedTail = buffer.getLong(TAIL_OFFSET);
+        if (storedHead < 0 || storedHead > storedTail || storedTail - storedHead > capacity) {
+            log.warn("Journal {} is corrupted, it is reset", file);
+            return false;
+        }
+        int records = 0;
+        for (long position = storedHead; position < storedTail; records++) {
+            int length = readInt(position);
+            if (length < 0 || position + 4L + length > storedTail) {
+                log.warn("Journal {} is corrupted at record {}, it is reset", file, records);
+                return false;
+            }
+            position += 4L + length;
+        }
+        head = storedHead;
+        tail = storedTail;
+        count = records;
+        if (count > 0) {
+            log.info("Journal {} reopened with {} records", file, count);
+        }
+        return true;
+    }
+
+    private void reset() {
+        head = 0;
+        tail = 0;
+        count = 0;
+        buffer.putInt(MAGIC_OFFSET, MAGIC);
+        buffer.putInt(VERSION_OFFSET, VERSION);
+        buffer.putInt(CAPACITY_OFFSET, capacity);
+        buffer.putLong(HEAD_OFFSET, head);
+        buffer.putLong(TAIL_OFFSET, tail);
+    }
+
+    private int readInt(long position) {
+        byte[] bytes = read(position, 4);
+        return (bytes[0] & 0xFF) << 24 | (bytes[1] & 0xFF) << 16 | (bytes[2] & 0xFF) << 8 | bytes[3] & 0xFF;
+    }
+
+    private void writeInt(long position, int value) {
+        write(position, new byte[] { (byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8),
+                (byte) value });
+    }
+
+    private byte[] read(long position, int length) {
+        byte[] bytes = new byte[length];
+        int offset = (int) (position % capacity);
+        int first = Math.min(length, capacity - offset);
+        buffer.get(HEADER_SIZE + offset, bytes, 0, first);
+        if (first < length) {
+            buffer.get(HEADER_SIZE, bytes, first, length - first);
+        }
+        return bytes;
+    }
+
+    private void write(long position, byte[] bytes) {
+        int offset = (int) (position % capacity);
+        int first = Math.min(bytes.length, capacity - offset);
+        buffer.put(HEADER_SIZE + offset, bytes, 0, first);
+        if (first < bytes.length) {
+            buffer.put(HEADER_SIZE, bytes, first, bytes.length - first);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client.send;
+
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.leshan.client.send.DataSender;
+import org.eclipse.leshan.client.send.DataSenderManager;
+import org.eclipse.leshan.client.send.NoDataException;
+import org.eclipse.leshan.client.servers.LwM2mServer;
+import org.eclipse.leshan.core.Destroyable;
+import org.eclipse.leshan.core.Startable;
+import org.eclipse.leshan.core.Stoppable;
+import org.eclipse.leshan.core.node.LwM2mNode;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.TimestampedLwM2mNodes;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.thingsboard.lwm2m.demo.client.metrics.ClientMetrics;
+import org.thingsboard.lwm2m.demo.client.scheduler.HashedWheelScheduler;
+import org.thingsboard.lwm2m.demo.client.scheduler.ScheduledTask;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Automatic time-series Send: configured resources are sampled periodically into a history buffer per resource, and
+ * the buffered samples are sent in one SenML Send request, each value with its own timestamp, once a resource holds
+ * <code>batchSize</code> samples or the oldest sample is <code>maxAgeMs</code> old.
+ * <p>
+ * Samples are taken even when the client is not registered, and samples of a failed Send are put back in the history,
+ * so values are delivered late rather than lost. Each history keeps at most {@link #HISTORY_BATCHES} batches, older
+ * samples are dropped first (counted in <code>send.batch.dropped</code>).
+ * <p>
+ * Only one Send is in flight at a time. Thresholds are checked when a sample is taken, so a batch may be up to one
+ * sample period older than <code>maxAgeMs</code>.
+ */
+@Slf4j
+public class TimeSeriesDataSender implements DataSender, Startable, Stoppable, Destroyable {
+
+    public static final String DEFAULT_NAME = "TIME_SERIES";
+    public static final int HISTORY_BATCHES = 4;
+
+    public static final String BATCH = "send.batch";
+    public static final String BATCH_DROPPED = "send.batch.dropped";
+
+    private final List<LwM2mPath> paths;
+    private final long samplePeriodMs;
+    private final int batchSize;
+    private final long maxAgeMs;
+    private final ContentFormat contentFormat;
+    private final long timeoutMs;
+    private final HashedWheelScheduler scheduler;
+    private final ClientMetrics metrics;
+    private volatile DataSenderManager dataSenderManager;
+    private volatile Supplier<Collection<LwM2mServer>> servers = Collections::emptyList;
+
+    // guarded by this
+    private final Map<LwM2mPath, ArrayDeque<Sample>> history = new LinkedHashMap<>();
+    private Instant oldest;
+    private boolean sending;
+    private ScheduledTask sampleTask;
+
+    private record Sample(Instant timestamp, LwM2mNode node) {
+    }
+
+    /**
+     * @param contentFormat {@link ContentFormat#SENML_CBOR} or {@link ContentFormat#SENML_JSON}
+     * @param timeoutMs     timeout of a Send request
+     */
+    public TimeSeriesDataSender(List<LwM2mPath> paths, long samplePeriodMs, int batchSize, long maxAgeMs,
+            ContentFormat contentFormat, long timeoutMs, HashedWheelScheduler scheduler, ClientMetrics metrics) {
+        this.paths = List.copyOf(paths);
+        this.samplePeriodMs = samplePeriodMs;
+        this.batchSize = batchSize;
+        this.maxAgeMs = maxAgeMs;
+        this.contentFormat = contentFormat;
+        this.timeoutMs = timeoutMs;
+        this.scheduler = scheduler;
+        this.metrics = metrics;
+        for (LwM2mPath path : this.paths) {
+            history.put(path, new ArrayDeque<>());
+        }
+    }
+
+    /**
+     * @param servers registered servers of the client, the batch is sent to the first one
+     */
+    public void setServers(Supplier<Collection<LwM2mServer>> servers) {
+        this.servers = servers;
+    }
+
+    @Override
+    public void setDataSenderManager(DataSenderManager dataSenderManager) {
+        this.dataSenderManager = dataSenderManager;
+    }
+
+    @Override
+    public String getName() {
+        return DEFAULT_NAME;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (sampleTask == null) {
+            sampleTask = scheduler.schedulePeriodic(this::sample, samplePeriodMs, samplePeriodMs,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (sampleTask != null) {
+            sampleTask.cancel();
+            sampleTask = null;
+        }
+    }
+
+    @Override
+    public synchronized void destroy() {
+        stop();
+        history.values().forEach(ArrayDeque::clear);
+        oldest = null;
+    }
+
+    private void sample() {
+        Map<LwM2mPath, LwM2mNode> values;
+        try {
+            // values are read as the client itself, whichever server gets them
+            values = dataSenderManager.getCurrentValues(LwM2mServer.SYSTEM, paths);
+        } catch (NoDataException | IllegalArgumentException e) {
+            log.debug("Unable to sample {}: {}", paths, e.getMessage());
+            return;
+        }
+        Instant now = Instant.now();
+        synchronized (this) {
+            boolean full = false;
+            for (Map.Entry<LwM2mPath, LwM2mNode> value : values.entrySet()) {
+                ArrayDeque<Sample> samples = history.get(value.getKey());
+                if (samples == null || value.getValue() == null) {
+                    continue;
+                }
+                samples.addLast(new Sample(now, value.getValue()));
+                trim(samples);
+                full |= samples.size() >= batchSize;
+            }
+            if (oldest == null) {
+                oldest = now;
+            }
+            if (!full && now.toEpochMilli() - oldest.toEpochMilli() < maxAgeMs) {
+                return;
+            }
+        }
+        flush();
+    }
+
+    private void flush() {
+        Iterator<LwM2mServer> registered = servers.get().iterator();
+        if (!registered.hasNext()) {
+            // not registered yet or registration lost, keep sampling until a server is back
+            return;
+        }
+        LwM2mServer server = registered.next();
+        Map<LwM2mPath, List<Sample>> batch = new LinkedHashMap<>();
+        TimestampedLwM2mNodes.Builder builder = TimestampedLwM2mNodes.builder();
+        synchronized (this) {
+            if (sending) {
+                return;
+            }
+            history.forEach((path, samples) -> {
+                if (!samples.isEmpty()) {
+                    batch.put(path, List.copyOf(samples));
+                    samples.forEach(sample -> builder.put(sample.timestamp(), path, sample.node()));
+                    samples.clear();
+                }
+            });
+            oldest = null;
+            if (batch.isEmpty()) {
+                return;
+            }
+            sending = true;
+        }
+        int count = batch.values().stream().mapToInt(List::size).sum();
+        try {
+            TimestampedLwM2mNodes nodes = builder.build();
+            dataSenderManager.sendData(server, contentFormat, nodes, response -> {
+                if (response.isSuccess()) {
+                    metrics.increment(BATCH);
+                    log.debug("Sent batch of {} samples of {} resources", count, batch.size());
+                    sent();
+                } else {
+                    log.warn("Send of {} samples rejected by server: {} {}", count, response.getCode(),
+                            response.getErrorMessage());
+                    requeue(batch);
+                }
+            }, e -> {
+                log.warn("Send of {} samples failed: {}", count, e.getMessage());
+                requeue(batch);
+            }, timeoutMs);
+        } catch (RuntimeException e) {
+            log.warn("Unable to send {} samples", count, e);
+            requeue(batch);
+        }
+    }
+
+    private synchronized void sent() {
+        sending = false;
+    }
+
+    /**
+     * Puts the samples of a failed batch back before the ones taken since, they are sent with the next batch.
+     */
+    private synchronized void requeue(Map<LwM2mPath, List<Sample>> batch) {
+        sending = false;
+        batch.forEach((path, failed) -> {
+            ArrayDeque<Sample> samples = history.get(path);
+            for (int i = failed.size() - 1; i >= 0; i--) {
+                samples.addFirst(failed.get(i));
+            }
+            trim(samples);
+            Instant first = samples.peekFirst().timestamp();
+            if (oldest == null || first.isBefore(oldest)) {
+                oldest = first;
+            }
+        });
+    }
+
+    private void trim(ArrayDeque<Sample> samples) {
+        while (samples.size() > batchSize * HISTORY_BATCHES) {
+            samples.removeFirst();
+            metrics.increment(BATCH_DROPPED);
+        }
+    }
+}
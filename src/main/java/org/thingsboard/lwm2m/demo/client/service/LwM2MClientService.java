@@ -15,22 +15,56 @@
  */
 package org.thingsboard.lwm2m.demo.client.service;
 
+import lombok.extern.slf4j.Slf4j;
 import org.eclipse.leshan.client.LeshanClient;
 import org.springframework.stereotype.Service;
+import org.thingsboard.lwm2m.demo.client.core.LwM2MClientSharedResources;
 
+import java.util.Collections;
+import java.util.List;
+
+@Slf4j
 @Service
 public class LwM2MClientService {
 
-    private LeshanClient client;
+    private List<LeshanClient> clients = Collections.emptyList();
+    private LwM2MClientSharedResources sharedResources;
+    private RampUpController rampUpController;
 
     public void start(LeshanClient client) {
-        this.client = client;
-        client.start();
+        start(Collections.singletonList(client), null, null);
+    }
+
+    public void start(List<LeshanClient> clients, LwM2MClientSharedResources sharedResources,
+            RampUpController rampUpController) {
+        this.clients = clients;
+        this.sharedResources = sharedResources;
+        this.rampUpController = rampUpController;
+        if (rampUpController != null && sharedResources != null) {
+            rampUpController.start(clients, sharedResources.getScheduler());
+            return;
+        }
+        for (LeshanClient client : clients) {
+            client.start();
+        }
+        if (clients.size() > 1) {
+            log.info("{} clients started", clients.size());
+        }
     }
 
     public void stop() {
-        if (client != null) {
-            client.destroy(true);
+        if (rampUpController != null) {
+            rampUpController.cancel();
+        }
+        for (LeshanClient client : clients) {
+            try {
+                client.destroy(true);
+            } catch (RuntimeException e) {
+                log.warn("Unable to destroy client", e);
+            }
+        }
+        if (sharedResources != null) {
+            sharedResources.destroy();
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,135 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.leshan.client.LeshanClient;
+import org.thingsboard.lwm2m.demo.client.scheduler.HashedWheelScheduler;
+import org.thingsboard.lwm2m.demo.client.scheduler.ScheduledTask;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Starts the clients of a fleet following an arrival curve instead of all at once, so Register requests and DTLS
+ * handshakes do not hit the server in the same second.
+ */
+@Slf4j
+public class RampUpController {
+
+    public enum Curve {
+        /**
+         * One client every 1/rate second.
+         */
+        LINEAR,
+        /**
+         * Bursts of <code>step</code> clients every step/rate second.
+         */
+        STEP,
+        /**
+         * Poisson arrivals: exponentially distributed inter-arrival times with a mean of 1/rate second.
+         */
+        POISSON
+    }
+
+    private final Curve curve;
+    private final double rate;
+    private final int step;
+    private final Random random;
+    private final List<ScheduledTask> pendingStarts = new ArrayList<>();
+
+    /**
+     * @param curve arrival curve
+     * @param rate arrival rate in clients per second, 0 or less starts all clients at once
+     * @param step number of clients started together with {@link Curve#STEP}
+     */
+    public RampUpController(Curve curve, double rate, int step) {
+        this(curve, rate, step, new Random());
+    }
+
+    public RampUpController(Curve curve, double rate, int step, Random random) {
+        this.curve = curve;
+        this.rate = rate;
+        this.step = Math.max(1, step);
+        this.random = random;
+    }
+
+    public boolean isEnabled() {
+        return rate > 0;
+    }
+
+    /**
+     * @return start offset of each client in milliseconds, relative to the start of the ramp-up.
+     */
+    public long[] computeStartOffsets(int count) {
+        long[] offsets = new long[count];
+        if (!isEnabled()) {
+            return offsets;
+        }
+        double offsetInSec = 0;
+        for (int i = 0; i < count; i++) {
+            switch (curve) {
+            case LINEAR:
+                offsetInSec = i / rate;
+                break;
+            case STEP:
+                offsetInSec = (i / step) * (step / rate);
+                break;
+            case POISSON:
+                if (i > 0) {
+                    offsetInSec += -Math.log(1 - random.nextDouble()) / rate;
+                }
+                break;
+            default:
+                throw new IllegalStateException(String.format("curve %s is not supported", curve));
+            }
+            offsets[i] = Math.round(offsetInSec * 1000);
+        }
+        return offsets;
+    }
+
+    public synchronized void start(List<LeshanClient> clients, HashedWheelScheduler scheduler) {
+        if (!isEnabled() || clients.size() == 1) {
+            clients.forEach(LeshanClient::start);
+            return;
+        }
+        long[] offsets = computeStartOffsets(clients.size());
+        log.info("Ramp-up of {} clients, curve {}, rate {}/s, last client starts in {} s", clients.size(), curve, rate,
+                offsets[offsets.length - 1] / 1000);
+        AtomicInteger started = new AtomicInteger();
+        for (int i = 0; i < clients.size(); i++) {
+            LeshanClient client = clients.get(i);
+            pendingStarts.add(scheduler.schedule(() -> {
+                client.start();
+                int count = started.incrementAndGet();
+                if (count == clients.size()) {
+                    log.info("Ramp-up finished, {} clients started", count);
+                }
+            }, offsets[i], TimeUnit.MILLISECONDS));
+        }
+    }
+
+    /**
+     * Cancel starts which are not yet executed.
+     */
+    public synchronized void cancel() {
+        pendingStarts.forEach(ScheduledTask::cancel);
+        pendingStarts.clear();
+    }
+}
@@ -30,7 +30,6 @@ import org.eclipse.leshan.core.model.ObjectModel;
 import org.eclipse.leshan.core.util.StringUtils;
 import org.thingsboard.lwm2m.demo.client.cli.TBSectionsCliMain;
 import org.thingsboard.lwm2m.demo.client.entities.LwM2MClientOtaInfo;
-import org.thingsboard.lwm2m.demo.client.entities.OtaPackageType;
 
 import java.io.File;
 import java.io.IOException;
@@ -59,23 +58,30 @@ public class Utils {
     public static final String FW_INFO_FILE_NANE_DEF = "FW_Ota.json";
     public static final String SW_DATA_FILE_NANE_DEF = "SW_OtaPackage.bin";
     public static final String SW_INFO_FILE_NANE_DEF = "SW_Ota.json";
+    // packages stored once by SHA-256 for all clients, in the OTA folder
+    public static final String OTA_BLOBS_FOLDER = "blobs";
+    public static final String JOURNAL_FOLDER_DEF = "./journal";
     public static final String PREF_TMP = "_tmp";
     public static final String PREF_FW = "FW_";
     public static final String PREF_SW = "SW_";
     public static final Integer FW_INFO_19_INSTANCE_ID = 65533;
     public static final Integer SW_INFO_19_INSTANCE_ID = 65534;
-    private static String otaFolder;
-    private static LwM2MClientOtaInfo otaInfoUpdateFw;
-    private static LwM2MClientOtaInfo otaInfoUpdateSw;
 
     public static final ObjectMapper OBJECT_MAPPER = JsonMapper.builder().build();
 
     public static LwM2mModelRepository createModel(TBSectionsCliMain cli) throws Exception {
+        return createModel(cli.main.modelsFolder);
+    }
+
+    /**
+     * @param modelsFolder folder of custom models overriding default ones, may be null
+     */
+    public static LwM2mModelRepository createModel(File modelsFolder) throws Exception {
 
         List<ObjectModel> models = ObjectLoader.loadAllDefault();
         models.addAll(ObjectLoader.loadDdfResources("/models", LwM2mDemoConstant.modelPaths));
-        if (cli.main.modelsFolder != null) {
-            List<ObjectModel> modelsCli = ObjectLoader.loadObjectsFromDir(cli.main.modelsFolder, true);
+        if (modelsFolder != null) {
+            List<ObjectModel> modelsCli = ObjectLoader.loadObjectsFromDir(modelsFolder, true);
             Set<Integer> idsToRemove = new HashSet<>();
             for (ObjectModel model : modelsCli) {
                 idsToRemove.add(model.id);
@@ -144,42 +150,18 @@ public class Utils {
         }
     }
 
-    public static String getOtaFolder() {
-        return StringUtils.isEmpty(Utils.otaFolder) ? OTA_FOLDER_DEF : Utils.otaFolder;
-    }
-
-    public static void setOtaFolder(String otaFolder) {
-        Utils.otaFolder = otaFolder;
+    /**
+     * @param otaFolder value of <code>-o</code>, may be empty
+     */
+    public static String getOtaFolder(String otaFolder) {
+        return StringUtils.isEmpty(otaFolder) ? OTA_FOLDER_DEF : otaFolder;
     }
 
-    public static void setOtaInfoUpdateFw(LwM2MClientOtaInfo otaInfoUpdateFW) {
-        Utils.otaInfoUpdateFw = otaInfoUpdateFW;
-    }
-
-    public static LwM2MClientOtaInfo getOtaInfoUpdateFw(){
-        return Utils.otaInfoUpdateFw;
-    }
-
-    public static void setOtaInfoUpdate(LwM2MClientOtaInfo otaInfoUpdate) {
-        if (otaInfoUpdate.getType().equals(OtaPackageType.FIRMWARE)) {
-            setOtaInfoUpdateFw(otaInfoUpdate);
-        } else {
-            setOtaInfoUpdateSw(otaInfoUpdate);
-        }
-    }
-    public static void setOtaInfoUpdateSw(LwM2MClientOtaInfo otaInfoUpdateSW) {
-        Utils.otaInfoUpdateSw = otaInfoUpdateSW;
-    }
-
-    public static LwM2MClientOtaInfo getOtaInfoUpdateSw(){
-        return Utils.otaInfoUpdateSw;
-    }
-
-    public static String getPathInfoOtaFw() {
-        return getOtaFolder() + "/" + FW_INFO_FILE_NANE_DEF;
-    }
-    public static String getPathInfoOtaSw() {
-        return getOtaFolder() + "/" + SW_INFO_FILE_NANE_DEF;
+    /**
+     * @return <code>endpoint</code> with characters which are not allowed in file names replaced by <code>'-'</code>
+     */
+    public static String toFileName(String endpoint) {
+        return endpoint.replaceAll("[^A-Za-z0-9._-]", "-");
     }
 
     public static void renameOtaFilesToTmp(Path directory, String mask, String prefix) {
@@ -243,11 +225,31 @@ public class Utils {
     }
 
     public static void printReadLog(LwM2mServer server, String nameClazz, int modelId, int instanceId, int resourceId, Object value) {
-        if (!server.isSystem()) {
+        if (isReadLogEnabled(server)) {
+            log.info("Read on {} resource /{}/{}/{} = {}", nameClazz, modelId, instanceId, resourceId, value);
+        }
+    }
+
+    /**
+     * Primitive variants: the value is only boxed when the log is actually written, so reads stay allocation-free.
+     * Ids are taken boxed as returned by the enablers, so these are preferred over the {@link Object} variant.
+     */
+    public static void printReadLog(LwM2mServer server, String nameClazz, Integer modelId, Integer instanceId, int resourceId, long value) {
+        if (isReadLogEnabled(server)) {
             log.info("Read on {} resource /{}/{}/{} = {}", nameClazz, modelId, instanceId, resourceId, value);
         }
     }
 
+    public static void printReadLog(LwM2mServer server, String nameClazz, Integer modelId, Integer instanceId, int resourceId, double value) {
+        if (isReadLogEnabled(server)) {
+            log.info("Read on {} resource /{}/{}/{} = {}", nameClazz, modelId, instanceId, resourceId, value);
+        }
+    }
+
+    public static boolean isReadLogEnabled(LwM2mServer server) {
+        return !server.isSystem() && log.isInfoEnabled();
+    }
+
     public static String printMap (Map<Integer, ?> map) {
         try {
             return OBJECT_MAPPER.writeValueAsString(map);
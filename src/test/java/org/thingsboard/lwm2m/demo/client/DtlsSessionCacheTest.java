@@ -0,0 +1,129 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client;
+
+import org.eclipse.californium.elements.AddressEndpointContext;
+import org.eclipse.californium.elements.RawData;
+import org.eclipse.californium.elements.config.Configuration;
+import org.eclipse.californium.scandium.DTLSConnector;
+import org.eclipse.californium.scandium.config.DtlsConfig;
+import org.eclipse.californium.scandium.config.DtlsConnectorConfig;
+import org.eclipse.californium.scandium.dtls.DTLSContext;
+import org.eclipse.californium.scandium.dtls.Handshaker;
+import org.eclipse.californium.scandium.dtls.ResumingClientHandshaker;
+import org.eclipse.californium.scandium.dtls.SessionAdapter;
+import org.eclipse.californium.scandium.dtls.pskstore.AdvancedMultiPskStore;
+import org.eclipse.californium.scandium.dtls.pskstore.AdvancedSinglePskStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DtlsSessionCacheTest {
+
+    private static final String IDENTITY = "client";
+    private static final byte[] SECRET = "secret".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path directory;
+
+    private DTLSConnector server;
+
+    @BeforeEach
+    void start() throws IOException {
+        AdvancedMultiPskStore pskStore = new AdvancedMultiPskStore();
+        pskStore.setKey(IDENTITY, SECRET);
+        server = new DTLSConnector(DtlsConnectorConfig.builder(configuration())
+                .setAddress(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))
+                .setAdvancedPskStore(pskStore)
+                .build());
+        server.setRawDataReceiver(data -> {});
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        server.destroy();
+    }
+
+    @Test
+    void resumeSessionSavedWithSamePassword() throws Exception {
+        assertFalse(handshake(new DtlsSessionCache(file(), "password")) instanceof ResumingClientHandshaker);
+        assertTrue(Files.isRegularFile(file()));
+
+        assertTrue(handshake(new DtlsSessionCache(file(), "password")) instanceof ResumingClientHandshaker);
+    }
+
+    @Test
+    void fullHandshakeWhenSavedWithAnotherPassword() throws Exception {
+        handshake(new DtlsSessionCache(file(), "password"));
+
+        assertFalse(handshake(new DtlsSessionCache(file(), "another")) instanceof ResumingClientHandshaker);
+    }
+
+    /**
+     * Starts a client with <code>cache</code>, resumes its session with the server, or makes a full handshake if
+     * there is none, and stops it, which saves the connection.
+     *
+     * @return handshaker of the client
+     */
+    private Handshaker handshake(DtlsSessionCache cache) throws Exception {
+        CompletableFuture<Handshaker> established = new CompletableFuture<>();
+        DtlsConnectorConfig config = DtlsConnectorConfig.builder(configuration())
+                .setAddress(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))
+                .setAdvancedPskStore(new AdvancedSinglePskStore(IDENTITY, SECRET))
+                .setSerializationLabel(DtlsSessionCache.LABEL)
+                .setSessionListener(new SessionAdapter() {
+                    @Override
+                    public void contextEstablished(Handshaker handshaker, DTLSContext context) {
+                        established.complete(handshaker);
+                    }
+                })
+                .build();
+        ClientDtlsConnector client = new ClientDtlsConnector(config, cache, null);
+        client.setRawDataReceiver(data -> {});
+        try {
+            client.start();
+            client.forceResumeSessionFor(server.getAddress());
+            client.send(RawData.outbound("hello".getBytes(StandardCharsets.UTF_8),
+                    new AddressEndpointContext(server.getAddress()), null, false));
+            return established.get(10, TimeUnit.SECONDS);
+        } finally {
+            client.destroy();
+        }
+    }
+
+    private Path file() {
+        return directory.resolve("client.dtls");
+    }
+
+    private static Configuration configuration() {
+        DtlsConfig.register();
+        return Configuration.createStandardWithoutFile();
+    }
+}
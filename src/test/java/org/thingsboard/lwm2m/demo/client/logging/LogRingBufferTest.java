@@ -0,0 +1,149 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client.logging;
+
+import org.junit.jupiter.api.Test;
+import org.thingsboard.lwm2m.demo.client.logging.LogRingBuffer.OverflowPolicy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogRingBufferTest {
+
+    @Test
+    void capacityIsRoundedToPowerOfTwo() {
+        assertEquals(8, new LogRingBuffer<Integer>(5, OverflowPolicy.DROP_NEWEST).capacity());
+        assertEquals(8, new LogRingBuffer<Integer>(8, OverflowPolicy.DROP_NEWEST).capacity());
+    }
+
+    @Test
+    void dropNewestKeepsBufferedMessages() {
+        LogRingBuffer<Integer> buffer = new LogRingBuffer<>(8, OverflowPolicy.DROP_NEWEST);
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i < 8, buffer.offer(i));
+        }
+
+        assertEquals(IntStream.range(0, 8).boxed().toList(), drain(buffer));
+        assertEquals(20, buffer.getAppended());
+        assertEquals(12, buffer.getDropped());
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    void dropOldestKeepsLatestMessages() {
+        LogRingBuffer<Integer> buffer = new LogRingBuffer<>(8, OverflowPolicy.DROP_OLDEST);
+        for (int i = 0; i < 20; i++) {
+            assertTrue(buffer.offer(i));
+        }
+
+        assertEquals(IntStream.range(12, 20).boxed().toList(), drain(buffer));
+        assertEquals(12, buffer.getDropped());
+    }
+
+    @Test
+    void blockWaitsForRoom() throws Exception {
+        LogRingBuffer<Integer> buffer = new LogRingBuffer<>(4, OverflowPolicy.BLOCK);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+
+        CompletableFuture<Boolean> blocked = CompletableFuture.supplyAsync(() -> buffer.offer(4));
+        Thread.sleep(100);
+        assertFalse(blocked.isDone());
+        assertEquals(0, (int) buffer.poll());
+        assertTrue(blocked.get(5, TimeUnit.SECONDS));
+
+        assertEquals(List.of(1, 2, 3, 4), drain(buffer));
+        assertEquals(0, buffer.getDropped());
+        assertEquals(1, buffer.getBlocked());
+    }
+
+    @Test
+    void closeReleasesBlockedProducer() throws Exception {
+        LogRingBuffer<Integer> buffer = new LogRingBuffer<>(4, OverflowPolicy.BLOCK);
+        for (int i = 0; i < 4; i++) {
+            buffer.offer(i);
+        }
+
+        CompletableFuture<Boolean> blocked = CompletableFuture.supplyAsync(() -> buffer.offer(4));
+        Thread.sleep(100);
+        buffer.close();
+        assertFalse(blocked.get(5, TimeUnit.SECONDS));
+        assertFalse(buffer.offer(5));
+
+        // buffered messages are still delivered
+        assertEquals(List.of(0, 1, 2, 3), drain(buffer));
+    }
+
+    @Test
+    void concurrentDrainLosesNothing() throws Exception {
+        int producers = 4;
+        int consumers = 2;
+        int messages = 100_000;
+        LogRingBuffer<Integer> buffer = new LogRingBuffer<>(256, OverflowPolicy.BLOCK);
+        AtomicInteger received = new AtomicInteger();
+        AtomicLong sum = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(producers + consumers);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                tasks.add(executor.submit(() -> {
+                    for (int i = 1; i <= messages; i++) {
+                        buffer.offer(i);
+                    }
+                }));
+            }
+            for (int c = 0; c < consumers; c++) {
+                tasks.add(executor.submit(() -> {
+                    while (received.get() < producers * messages) {
+                        buffer.drain(message -> {
+                            sum.addAndGet(message);
+                            received.incrementAndGet();
+                        });
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(producers * messages, received.get());
+        assertEquals((long) producers * messages * (messages + 1) / 2, sum.get());
+        assertEquals(0, buffer.getDropped());
+        assertTrue(buffer.isEmpty());
+    }
+
+    private static List<Integer> drain(LogRingBuffer<Integer> buffer) {
+        List<Integer> messages = new ArrayList<>();
+        buffer.drain(messages::add);
+        return messages;
+    }
+}
@@ -0,0 +1,157 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client.ota;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HttpPackageDownloaderTest {
+
+    private static final byte[] PACKAGE = new byte[300_001];
+
+    static {
+        new Random(1).nextBytes(PACKAGE);
+    }
+
+    @TempDir
+    Path directory;
+
+    private HttpServer server;
+    private HttpPackageDownloader downloader;
+    private final List<String> ranges = new CopyOnWriteArrayList<>();
+    private volatile boolean supportRange = true;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/fw.bin", this::handle);
+        server.start();
+        downloader = new HttpPackageDownloader(2);
+    }
+
+    @AfterEach
+    void stop() {
+        downloader.destroy();
+        server.stop(0);
+    }
+
+    @Test
+    void downloadWholePackage() throws Exception {
+        try (OtaDownloadFile file = OtaDownloadFile.create(directory)) {
+            long size = downloader.download(uri(), file, received -> {}).get(10, TimeUnit.SECONDS);
+
+            assertEquals(PACKAGE.length, size);
+            assertEquals(sha256(PACKAGE), file.checksum());
+            assertEquals(List.of(""), ranges);
+        }
+    }
+
+    @Test
+    void resumePartialPackageWithRange() throws Exception {
+        Path part = directory.resolve("fw-download.part");
+        Files.write(part, Arrays.copyOf(PACKAGE, 100_000));
+
+        try (OtaDownloadFile file = OtaDownloadFile.open(part, 100_000)) {
+            downloader.download(uri(), file, received -> {}).get(10, TimeUnit.SECONDS);
+
+            assertEquals(sha256(PACKAGE), file.checksum());
+            assertEquals(List.of("bytes=100000-"), ranges);
+        }
+        assertArrayEquals(PACKAGE, Files.readAllBytes(part));
+    }
+
+    @Test
+    void restartWhenRangeIsIgnored() throws Exception {
+        supportRange = false;
+        Path part = directory.resolve("fw-download.part");
+        Files.write(part, Arrays.copyOf(PACKAGE, 100_000));
+
+        try (OtaDownloadFile file = OtaDownloadFile.open(part, 100_000)) {
+            long size = downloader.download(uri(), file, received -> {}).get(10, TimeUnit.SECONDS);
+
+            assertEquals(PACKAGE.length, size);
+            assertEquals(sha256(PACKAGE), file.checksum());
+        }
+        assertArrayEquals(PACKAGE, Files.readAllBytes(part));
+    }
+
+    @Test
+    void completeWhenNothingIsLeft() throws Exception {
+        Path part = directory.resolve("fw-download.part");
+        Files.write(part, PACKAGE);
+
+        try (OtaDownloadFile file = OtaDownloadFile.open(part, PACKAGE.length)) {
+            long size = downloader.download(uri(), file, received -> {}).get(10, TimeUnit.SECONDS);
+
+            assertEquals(PACKAGE.length, size);
+            assertEquals(sha256(PACKAGE), file.checksum());
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        ranges.add(range == null ? "" : range);
+        int start = 0;
+        if (range != null && supportRange) {
+            start = Integer.parseInt(range.substring("bytes=".length(), range.length() - 1));
+        }
+        if (start >= PACKAGE.length) {
+            exchange.getResponseHeaders().add("Content-Range", "bytes */" + PACKAGE.length);
+            exchange.sendResponseHeaders(416, -1);
+            exchange.close();
+            return;
+        }
+        if (start > 0) {
+            exchange.getResponseHeaders().add("Content-Range",
+                    "bytes " + start + "-" + (PACKAGE.length - 1) + "/" + PACKAGE.length);
+            exchange.sendResponseHeaders(206, PACKAGE.length - start);
+        } else {
+            exchange.sendResponseHeaders(200, PACKAGE.length);
+        }
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write(PACKAGE, start, PACKAGE.length - start);
+        }
+    }
+
+    private String uri() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/fw.bin";
+    }
+
+    private static String sha256(byte[] data) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+    }
+}
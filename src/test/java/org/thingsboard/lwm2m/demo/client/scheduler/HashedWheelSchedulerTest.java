@@ -0,0 +1,129 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client.scheduler;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HashedWheelSchedulerTest {
+
+    // 8 buckets of 10 ms: a delay over 80 ms takes more than one round
+    private static final long TICK_MS = 10;
+    private static final int WHEEL_SIZE = 8;
+
+    private HashedWheelScheduler scheduler;
+
+    @BeforeEach
+    void start() {
+        scheduler = new HashedWheelScheduler("Test", TICK_MS, TimeUnit.MILLISECONDS, WHEEL_SIZE, 2);
+    }
+
+    @AfterEach
+    void stop() {
+        scheduler.destroy();
+    }
+
+    @Test
+    void runTaskNotBeforeItsDelay() throws Exception {
+        long[] delays = { 5, 50, 130, 500 };
+        long[] elapsed = new long[delays.length];
+        CountDownLatch done = new CountDownLatch(delays.length);
+        long start = System.nanoTime();
+        for (int i = 0; i < delays.length; i++) {
+            int index = i;
+            scheduler.schedule(() -> {
+                elapsed[index] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                done.countDown();
+            }, delays[i], TimeUnit.MILLISECONDS);
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < delays.length; i++) {
+            assertTrue(elapsed[i] >= delays[i], "task of " + delays[i] + " ms ran after " + elapsed[i] + " ms");
+        }
+        assertEquals(0, scheduler.getActiveTasks());
+    }
+
+    @Test
+    void runTasksOfSeveralRoundsInOrder() throws Exception {
+        List<Long> order = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(3);
+        // same bucket, different rounds
+        for (long delay : new long[] { 3 * WHEEL_SIZE * TICK_MS, WHEEL_SIZE * TICK_MS, 2 * WHEEL_SIZE * TICK_MS }) {
+            scheduler.schedule(() -> {
+                order.add(delay);
+                done.countDown();
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(WHEEL_SIZE * TICK_MS, 2 * WHEEL_SIZE * TICK_MS, 3 * WHEEL_SIZE * TICK_MS), order);
+    }
+
+    @Test
+    void cancelledTaskDoesNotRun() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        ScheduledTask task = scheduler.schedule(runs::incrementAndGet, 3 * WHEEL_SIZE * TICK_MS, TimeUnit.MILLISECONDS);
+
+        assertTrue(task.cancel());
+        assertTrue(task.isCancelled());
+        assertFalse(task.cancel());
+        assertEquals(0, scheduler.getActiveTasks());
+        Thread.sleep(5 * WHEEL_SIZE * TICK_MS);
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    void taskCanNotBeCancelledOnceRun() throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        ScheduledTask task = scheduler.schedule(done::countDown, TICK_MS, TimeUnit.MILLISECONDS);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertFalse(task.cancel());
+        assertFalse(task.isCancelled());
+    }
+
+    @Test
+    void cancelPeriodicTask() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch threeRuns = new CountDownLatch(3);
+        ScheduledTask task = scheduler.schedulePeriodic(() -> {
+            runs.incrementAndGet();
+            threeRuns.countDown();
+        }, 0, 2 * TICK_MS, TimeUnit.MILLISECONDS);
+
+        assertTrue(threeRuns.await(5, TimeUnit.SECONDS));
+        assertEquals(1, scheduler.getActiveTasks());
+        assertTrue(task.cancel());
+        assertEquals(0, scheduler.getActiveTasks());
+        // an execution may be running while the task is cancelled
+        Thread.sleep(5 * TICK_MS);
+        int cancelledRuns = runs.get();
+        Thread.sleep(20 * TICK_MS);
+        assertEquals(cancelledRuns, runs.get());
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ * Copyright © 2016-2025 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.lwm2m.demo.client.send;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TelemetryJournalTest {
+
+    // records of 10 bytes take 14 bytes with their length: 4 fit in the journal
+    private static final int CAPACITY = 64;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void peekAndCommitInOrder() throws Exception {
+        try (TelemetryJournal journal = TelemetryJournal.open(file(), CAPACITY)) {
+            append(journal, 0, 3);
+
+            TelemetryJournal.Batch batch = journal.peek(2);
+            assertEquals(List.of(record(0), record(1)), strings(batch));
+            assertEquals(3, journal.size());
+            journal.commit(batch);
+            assertEquals(List.of(record(2)), strings(journal.peek(10)));
+            assertEquals(1, journal.size());
+        }
+    }
+
+    @Test
+    void recordsWrapAroundEndOfFile() throws Exception {
+        try (TelemetryJournal journal = TelemetryJournal.open(file(), CAPACITY)) {
+            append(journal, 0, 4);
+            journal.commit(journal.peek(2));
+            // record 4 is split at the end of the file, record 5 starts at its beginning
+            append(journal, 4, 6);
+
+            assertEquals(List.of(record(2), record(3), record(4), record(5)), strings(journal.peek(10)));
+            assertEquals(0, journal.getEvicted());
+        }
+    }
+
+    @Test
+    void evictOldestRecordsWhenFull() throws Exception {
+        try (TelemetryJournal journal = TelemetryJournal.open(file(), CAPACITY)) {
+            append(journal, 0, 6);
+
+            assertEquals(4, journal.size());
+            assertEquals(2, journal.getEvicted());
+            assertEquals(List.of(record(2), record(3), record(4), record(5)), strings(journal.peek(10)));
+            assertFalse(journal.append(new byte[CAPACITY]));
+        }
+    }
+
+    @Test
+    void commitAfterEvictionKeepsNewRecords() throws Exception {
+        try (TelemetryJournal journal = TelemetryJournal.open(file(), CAPACITY)) {
+            append(journal, 0, 4);
+            TelemetryJournal.Batch batch = journal.peek(3);
+            // records 0 and 1 of the batch are evicted while it is sent
+            append(journal, 4, 6);
+            journal.commit(batch);
+
+            assertEquals(2, journal.getEvicted());
+            assertEquals(List.of(record(3), record(4), record(5)), strings(journal.peek(10)));
+        }
+    }
+
+    @Test
+    void reopenKeepsRecords() throws Exception {
+        try (TelemetryJournal journal = TelemetryJournal.open(file(), CAPACITY)) {
+            append(journal, 0, 5);
+            journal.commit(journal.peek(1));
+        }
+
+        try (TelemetryJournal journal = TelemetryJournal.open(file(), CAPACITY)) {
+            assertEquals(3, journal.size());
+            assertEquals(List.of(record(2), record(3), record(4)), strings(journal.peek(10)));
+        }
+    }
+
+    @Test
+    void reopenWithAnotherCapacityResets() throws Exception {
+        try (TelemetryJournal journal = TelemetryJournal.open(file(), CAPACITY)) {
+            append(journal, 0, 2);
+        }
+
+        try (TelemetryJournal journal = TelemetryJournal.open(file(), 2 * CAPACITY)) {
+            assertTrue(journal.isEmpty());
+        }
+    }
+
+    @Test
+    void corruptedHeaderResets() throws Exception {
+        try (TelemetryJournal journal = TelemetryJournal.open(file(), CAPACITY)) {
+            append(journal, 0, 2);
+        }
+        overwrite(0, ByteBuffer.allocate(4).putInt(0xDEADBEEF).flip());
+
+        try (TelemetryJournal journal = TelemetryJournal.open(file(), CAPACITY)) {
+            assertTrue(journal.isEmpty());
+            append(journal, 0, 1);
+            assertEquals(List.of(record(0)), strings(journal.peek(10)));
+        }
+    }
+
+    @Test
+    void corruptedRecordResets() throws Exception {
+        try (TelemetryJournal journal = TelemetryJournal.open(file(), CAPACITY)) {
+            append(journal, 0, 2);
+        }
+        // length of the first record goes past the tail
+        overwrite(TelemetryJournal.HEADER_SIZE, ByteBuffer.allocate(4).putInt(CAPACITY).flip());
+
+        try (TelemetryJournal journal = TelemetryJournal.open(file(), CAPACITY)) {
+            assertTrue(journal.isEmpty());
+        }
+    }
+
+    private Path file() {
+        return directory.resolve("telemetry.journal");
+    }
+
+    private void overwrite(long position, ByteBuffer bytes) throws Exception {
+        try (FileChannel channel = FileChannel.open(file(), StandardOpenOption.WRITE)) {
+            channel.write(bytes, position);
+        }
+    }
+
+    private static void append(TelemetryJournal journal, int from, int to) {
+        for (int i = from; i < to; i++) {
+            assertTrue(journal.append(record(i).getBytes(StandardCharsets.US_ASCII)));
+        }
+    }
+
+    private static String record(int index) {
+        return String.format("record-%03d", index);
+    }
+
+    private static List<String> strings(TelemetryJournal.Batch batch) {
+        return batch.records().stream().map(record -> new String(record, StandardCharsets.US_ASCII)).toList();
+    }
+}